@@ -0,0 +1,91 @@
+package com.turtlesort.icegen.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.turtlesort.icegen.BitboardBatchSolver;
+import com.turtlesort.icegen.IceMap;
+import com.turtlesort.icegen.IceMapSolver;
+import com.turtlesort.icegen.SolverResult;
+import com.turtlesort.icegen.generators.MapCorpus;
+import com.turtlesort.icegen.generators.SyntheticMapGenerator;
+
+/**
+ * Compares finding the optimal solutions of many 16x16 maps in lockstep with BitboardBatchSolver against
+ * solving the same maps one at a time. Scores are per map.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BatchSolverBenchmark {
+
+	private static final long SEED = 20140101L;
+	private static final int MAPS = 4096;
+	
+	@Param({"0.5", "0.8"})
+	public double iceDensity;
+	
+	private List<IceMap> maps;
+	private BitboardBatchSolver solver;
+	
+	@Setup
+	public void setup(){
+		
+		SyntheticMapGenerator generator = new MapCorpus(SEED, 1).getFamilyGenerator(16, this.iceDensity, 0.05);
+		
+		this.maps = new ArrayList<IceMap>(MAPS);
+		for(int i = 0; i < MAPS; i++){
+			this.maps.add(generator.generate());
+		}
+		
+		this.solver = new BitboardBatchSolver();
+	}
+	
+	@Benchmark
+	@OperationsPerInvocation(MAPS)
+	public SolverResult[] lockstep(){
+		return this.solver.solve(this.maps);
+	}
+	
+	@Benchmark
+	@OperationsPerInvocation(MAPS)
+	public SolverResult[] scalar(){
+		
+		SolverResult[] results = new SolverResult[MAPS];
+		for(int i = 0; i < MAPS; i++){
+			results[i] = BitboardBatchSolver.solveScalar(this.maps.get(i));
+		}
+		
+		return results;
+	}
+	
+	@Benchmark
+	@OperationsPerInvocation(MAPS)
+	public int breadthFirstMoveCount(){
+		
+		int total = 0;
+		for(int i = 0; i < MAPS; i++){
+			total += new IceMapSolver(this.maps.get(i)).findOptimalMoveCount();
+		}
+		
+		return total;
+	}
+	
+}
@@ -0,0 +1,59 @@
+package com.turtlesort.icegen.benchmarks;
+
+import java.io.File;
+
+import com.turtlesort.icegen.IceMap;
+import com.turtlesort.icegen.generators.MapCorpus;
+
+/**
+ * Inputs shared by the benchmarks. TMX maps are read from the directory given by the system property
+ * <code>icegen.maps</code>, which defaults to the <code>maps</code> directory of the working directory.
+ */
+public class BenchmarkMaps {
+
+	private static final String MAPS_DIRECTORY_PROPERTY = "icegen.maps";
+	private static final double ICE_DENSITY = MapCorpus.DEFAULT_ICE_DENSITIES[MapCorpus.DEFAULT_ICE_DENSITIES.length - 1];
+	private static final double BOULDER_DENSITY = MapCorpus.DEFAULT_BOULDER_DENSITIES[0];
+	
+	private BenchmarkMaps(){}
+	
+	/**
+	 * @param name - File name of a TMX map, e.g. map1.tmx
+	 * @return The TMX file in the benchmark maps directory
+	 */
+	public static File getMapFile(String name){
+		
+		File file = new File(System.getProperty(MAPS_DIRECTORY_PROPERTY, "maps"), name);
+		
+		if(!file.isFile()){
+			throw new IllegalStateException("Cannot find " + file.getAbsolutePath() 
+					+ ", run the benchmarks from the project directory or set -D" + MAPS_DIRECTORY_PROPERTY);
+		}
+		
+		return file;
+	}
+	
+	/**
+	 * @param name - File name of a TMX map, e.g. map1.tmx
+	 * @return The parsed map
+	 */
+	public static IceMap loadMap(String name){
+		return IceMap.parseTMXFile(getMapFile(name));
+	}
+	
+	/**
+	 * @param size - Width and height of the map
+	 * @param seed - Seed of the corpus the map is taken from
+	 * @return The first map of the synthetic corpus family with the given size, the corpus' highest ice
+	 * density and lowest boulder density. The same size and seed always give the same map.
+	 */
+	public static IceMap generateMap(int size, long seed){
+		
+		MapCorpus corpus = new MapCorpus(seed, 1);
+		IceMap map = corpus.getFamilyGenerator(size, ICE_DENSITY, BOULDER_DENSITY).generate();
+		map.setName("generated-" + size + "-" + seed);
+		
+		return map;
+	}
+	
+}
@@ -0,0 +1,54 @@
+package com.turtlesort.icegen.benchmarks;
+
+import java.util.LinkedList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.turtlesort.icegen.IceMap;
+import com.turtlesort.icegen.IceMapSolver;
+import com.turtlesort.icegen.NavigationNode;
+
+/**
+ * Measures IceMapSolver.solve on maps of increasing size from the synthetic MapCorpus to show how the
+ * solver scales. Maps are generated from a fixed seed so every run solves the same maps.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GeneratedMapSolverBenchmark {
+
+	private static final long SEED = 20140101L;
+	
+	@Param({"16", "32", "64", "128"})
+	public int size;
+	
+	@Param({"8", "12"})
+	public int moveLimit;
+	
+	private IceMap map;
+	
+	@Setup
+	public void setup(){
+		this.map = BenchmarkMaps.generateMap(this.size, SEED);
+	}
+	
+	@Benchmark
+	public LinkedList<NavigationNode[]> solve(){
+		return new IceMapSolver(this.map).solve(this.moveLimit, true);
+	}
+	
+}
@@ -0,0 +1,51 @@
+package com.turtlesort.icegen.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.turtlesort.icegen.IceMap;
+import com.turtlesort.icegen.generators.BasicMapGenerator;
+import com.turtlesort.icegen.generators.ExperimentalMapGenerator;
+import com.turtlesort.icegen.generators.IceMapGenerator;
+import com.turtlesort.icegen.generators.InterferenceMapGenerator;
+
+/**
+ * Measures how many maps per second each IceMapGenerator produces.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GeneratorBenchmark {
+
+	private IceMapGenerator basic = new BasicMapGenerator(10, 10, 15, 15);
+	private IceMapGenerator interference = new InterferenceMapGenerator();
+	private IceMapGenerator experimental = new ExperimentalMapGenerator();
+	
+	@Benchmark
+	public IceMap basicMapGenerator(){
+		return this.basic.generate();
+	}
+	
+	@Benchmark
+	public IceMap interferenceMapGenerator(){
+		return this.interference.generate();
+	}
+	
+	@Benchmark
+	public IceMap experimentalMapGenerator(){
+		return this.experimental.generate();
+	}
+	
+}
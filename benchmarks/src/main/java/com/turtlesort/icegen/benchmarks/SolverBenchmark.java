@@ -0,0 +1,64 @@
+package com.turtlesort.icegen.benchmarks;
+
+import java.util.LinkedList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.turtlesort.icegen.IceMap;
+import com.turtlesort.icegen.IceMapSolver;
+import com.turtlesort.icegen.NavigationNode;
+
+/**
+ * Measures IceMapSolver.solve on the TMX maps shipped in the maps directory at several move limits.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SolverBenchmark {
+
+	@Param({"map1.tmx", "map2.tmx", "map3.tmx"})
+	public String mapName;
+	
+	@Param({"10", "15", "20"})
+	public int moveLimit;
+	
+	@Param({"false", "true"})
+	public boolean pruneSolutionSet;
+	
+	private IceMap map;
+	private IceMapSolver solver;
+	
+	@Setup
+	public void setup(){
+		this.map = BenchmarkMaps.loadMap(this.mapName);
+		this.solver = new IceMapSolver(this.map);
+	}
+	
+	@Benchmark
+	public LinkedList<NavigationNode[]> solve(){
+		return new IceMapSolver(this.map).solve(this.moveLimit, this.pruneSolutionSet);
+	}
+	
+	/**
+	 * Solves with the same solver every time, the way the generators do, so its node arena is reused.
+	 */
+	@Benchmark
+	public LinkedList<NavigationNode[]> solveReusingSolver(){
+		return this.solver.solve(this.moveLimit, this.pruneSolutionSet);
+	}
+	
+}
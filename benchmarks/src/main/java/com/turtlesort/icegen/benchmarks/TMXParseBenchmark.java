@@ -0,0 +1,46 @@
+package com.turtlesort.icegen.benchmarks;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.turtlesort.icegen.IceMap;
+
+/**
+ * Measures how many TMX files per second IceMap.parseTMXFile can load.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TMXParseBenchmark {
+
+	@Param({"map1.tmx", "map2.tmx", "map3.tmx"})
+	public String mapName;
+	
+	private File file;
+	
+	@Setup
+	public void setup(){
+		this.file = BenchmarkMaps.getMapFile(this.mapName);
+	}
+	
+	@Benchmark
+	public IceMap parseTMXFile(){
+		return IceMap.parseTMXFile(this.file);
+	}
+	
+}
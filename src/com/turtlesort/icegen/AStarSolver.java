@@ -0,0 +1,241 @@
+package com.turtlesort.icegen;
+
+import java.util.Arrays;
+
+import com.turtlesort.icegen.IceMapSolver.Direction;
+
+/**
+ * Finds one optimal solution of a map with an A* search over the tiles a player can stop on. Every move
+ * costs one. Before searching, the tiles one slide away from the ending tile are found by walking outwards
+ * from it, and the rows and columns containing them are marked. The remaining number of moves from a tile
+ * is then estimated as 0 on the ending tile, 1 on a tile one slide away, 2 in a marked row or column and 3
+ * otherwise. A move never leaves the row or column it starts in, so the estimate never exceeds the true
+ * number of moves and drops by at most one per move. The search therefore finds an optimal solution
+ * without reopening tiles.
+ * 
+ * Unlike {@link IceMapSolver#solve(int, boolean)}, only a single solution is found, which makes this the
+ * better choice when only the optimal solution matters.
+ */
+public class AStarSolver {
+
+	// How many tiles are expanded between checks of the cancellation token (must be a power of two)
+	private static final int CANCELLATION_CHECK_INTERVAL = 256;
+	private static final Direction[] DIRECTIONS = Direction.values();
+	
+	private IceMapView map;
+	private SlideTable slideTable;
+	private int expandedTiles;
+	
+	// Lower bound data for the current search
+	private int endX;
+	private int endY;
+	private boolean[] oneMoveAway;
+	private boolean[] rowsOneMoveAway;
+	private boolean[] columnsOneMoveAway;
+	
+	/**
+	 * Constructor.
+	 * @param map The ice map to solve.
+	 */
+	public AStarSolver(IceMapView map){
+		this.map = map;
+	}
+	
+	/**
+	 * Makes the solver look up slides in a table instead of computing every slide as it is encountered.
+	 * @param slideTable - A table describing the map being solved, or null to compute slides directly
+	 * @see IceMapSolver#setSlideTable(SlideTable)
+	 */
+	public void setSlideTable(SlideTable slideTable){
+		this.slideTable = slideTable;
+	}
+	
+	/**
+	 * @return The number of tiles expanded by the last search
+	 */
+	public int getExpandedTiles(){
+		return this.expandedTiles;
+	}
+	
+	/**
+	 * Finds an optimal solution.
+	 * @return An optimal solution in the same form as the solutions of {@link IceMapSolver#solve(int)}, or null if
+	 * the map cannot be solved
+	 */
+	public NavigationNode[] findOptimalSolution(){
+		return this.findOptimalSolution(Integer.MAX_VALUE, null);
+	}
+	
+	/**
+	 * Finds an optimal solution that has at most the given number of moves.
+	 * @param moveLimit - The maximum number of moves the solution should have
+	 * @param token - A token that can stop the search, or null to always search to completion
+	 * @return An optimal solution, or null if there is no solution within the move limit or the token expired
+	 */
+	public NavigationNode[] findOptimalSolution(int moveLimit, CancellationToken token){
+		SolutionSet solutions = this.solve(moveLimit, token).getSolutionSet();
+		return solutions.isEmpty() ? null : solutions.get(0);
+	}
+	
+	/**
+	 * Finds an optimal solution that has at most the given number of moves, in the form returned by
+	 * {@link IceMapSolver#solve(int, boolean, CancellationToken)} so results of both solvers can be used interchangeably.
+	 * @param moveLimit - The maximum number of moves the solution should have
+	 * @param token - A token that can stop the search, or null to always search to completion
+	 * @return A result holding the optimal solution, or no solutions if there is none within the move limit.
+	 * The result is truncated if the token expired before the search finished.
+	 */
+	public SolverResult solve(int moveLimit, CancellationToken token){
+		
+		int width = this.map.getWidth();
+		int tiles = width * this.map.getHeight();
+		int endX = this.map.getEndX();
+		int endY = this.map.getEndY();
+		
+		this.expandedTiles = 0;
+		
+		// Like IceMapSolver, a starting tile that is also the ending tile does not count as a solution
+		if(this.map.isEnd(this.map.getStartX(), this.map.getStartY())){
+			return new SolverResult(SolutionSet.EMPTY, false);
+		}
+		
+		this.findTilesOneMoveAway();
+		
+		int[] moves = new int[tiles];		// Moves needed to reach each tile, -1 if not reached yet
+		int[] parents = new int[tiles];
+		byte[] directions = new byte[tiles];
+		boolean[] closed = new boolean[tiles];
+		IntPriorityQueue open = new IntPriorityQueue(64);
+		
+		Arrays.fill(moves, -1);
+		
+		int start = this.map.getStartY() * width + this.map.getStartX();
+		moves[start] = 0;
+		parents[start] = -1;
+		open.add(start, this.priority(0, this.map.getStartX(), this.map.getStartY()));
+		
+		while(!open.isEmpty()){
+			
+			int current = open.poll();
+			if(closed[current]) continue;		// A stale entry for a tile that was reached with fewer moves later
+			closed[current] = true;
+			
+			int x = current % width;
+			int y = current / width;
+			
+			if((++this.expandedTiles & (CANCELLATION_CHECK_INTERVAL - 1)) == 0 && token != null && token.isExpired()){
+				return new SolverResult(SolutionSet.EMPTY, true);
+			}
+			
+			int nextMoves = moves[current] + 1;
+			
+			for(Direction d : DIRECTIONS){
+				
+				int destination = this.slideTable != null ? this.slideTable.getDestination(x, y, d) : SlideTable.slide(this.map, x, y, d);
+				
+				if(closed[destination] || (moves[destination] != -1 && moves[destination] <= nextMoves)) continue;
+				
+				int destinationX = destination % width;
+				int destinationY = destination / width;
+				
+				if(nextMoves + this.estimate(destinationX, destinationY) > moveLimit) continue;
+				
+				moves[destination] = nextMoves;
+				parents[destination] = current;
+				directions[destination] = (byte)d.ordinal();
+				
+				// Every tile still in the queue has an estimated total of at least nextMoves, so no
+				// other path can reach the ending tile with fewer moves
+				if(destinationX == endX && destinationY == endY){
+					return new SolverResult(this.buildSolution(destination, moves, parents, directions, width), false);
+				}
+				
+				open.add(destination, this.priority(nextMoves, destinationX, destinationY));
+			}
+		}
+		
+		return new SolverResult(SolutionSet.EMPTY, false);
+	}
+	
+	/*
+	 * Marks every tile a player could slide to the ending tile from, along with its row and column.
+	 * A slide towards the ending tile stops on it if the tile is floor or the next tile is solid, and
+	 * it can start on any tile from which only ice lies in between.
+	 */
+	private void findTilesOneMoveAway(){
+		
+		int width = this.map.getWidth();
+		int height = this.map.getHeight();
+		
+		this.endX = this.map.getEndX();
+		this.endY = this.map.getEndY();
+		this.oneMoveAway = new boolean[width * height];
+		this.rowsOneMoveAway = new boolean[height];
+		this.columnsOneMoveAway = new boolean[width];
+		
+		boolean endIsFloor = this.map.getTileType(this.endX, this.endY) == IceMap.Tile.FLOOR;
+		
+		for(Direction d : DIRECTIONS){
+			
+			// Direction of the slide, the walk goes the opposite way
+			int dx = d == Direction.LEFT ? -1 : d == Direction.RIGHT ? 1 : 0;
+			int dy = d == Direction.UP ? -1 : d == Direction.DOWN ? 1 : 0;
+			
+			if(!endIsFloor && this.map.getTileType(this.endX + dx, this.endY + dy) != IceMap.Tile.SOLID) continue;
+			
+			int x = this.endX - dx;
+			int y = this.endY - dy;
+			IceMap.Tile tile = this.map.getTileType(x, y);
+			
+			while(tile != IceMap.Tile.SOLID){
+				
+				this.oneMoveAway[y * width + x] = true;
+				this.rowsOneMoveAway[y] = true;
+				this.columnsOneMoveAway[x] = true;
+				
+				if(tile == IceMap.Tile.FLOOR) break;	// Slides from further away stop here
+				
+				x -= dx;
+				y -= dy;
+				tile = this.map.getTileType(x, y);
+			}
+		}
+	}
+	
+	/*
+	 * Lower bound on the number of moves from a tile to the ending tile.
+	 */
+	private int estimate(int x, int y){
+		if(x == this.endX && y == this.endY) return 0;
+		if(this.oneMoveAway[y * this.columnsOneMoveAway.length + x]) return 1;
+		return this.rowsOneMoveAway[y] || this.columnsOneMoveAway[x] ? 2 : 3;
+	}
+	
+	/*
+	 * Orders tiles by estimated total moves, breaking ties in favour of the tile that took more moves to reach
+	 * since it is closer to the ending tile.
+	 */
+	private long priority(int moves, int x, int y){
+		long total = moves + this.estimate(x, y);
+		return (total << 32) | (Integer.MAX_VALUE - moves);
+	}
+	
+	private SolutionSet buildSolution(int end, int[] moves, int[] parents, byte[] directions, int width){
+		
+		NavigationNode[] solution = new NavigationNode[moves[end]];
+		
+		for(int tile = end, i = solution.length - 1; i >= 0; tile = parents[tile], i--){
+			NavigationNode node = new NavigationNode();
+			node.setDestinationCoordinates(tile % width, tile / width);
+			node.setDirection(DIRECTIONS[directions[tile]]);
+			solution[i] = node;
+		}
+		
+		if(solution.length > 0){
+			solution[solution.length - 1].markAsEnd(true);
+		}
+		
+		return new SolutionSet.Builder(1, solution.length).add(solution).build();
+	}
+	
+}
@@ -0,0 +1,417 @@
+package com.turtlesort.icegen;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.turtlesort.icegen.IceMapSolver.Direction;
+
+/**
+ * Finds an optimal solution for each of many small maps at once. Every map of at most 16x16 tiles is stored
+ * as a 256-bit board in four longs, one bit per tile and four rows of 16 bits per long. Tiles outside a
+ * map count as solid, so maps of different sizes can share a batch.
+ *
+ * The maps of a batch are searched breadth first in lockstep, one lane per map. The boards of all lanes
+ * are stored word by word in long arrays. Each step of the search, including every tile of a slide, is a
+ * loop of shifts and masks over those arrays that the JIT compiler can turn into SIMD instructions.
+ * A lane stops changing once its map is solved or found to be unsolvable, and the batch finishes when
+ * every lane has stopped.
+ *
+ * The frontier of every breadth first layer is kept, so the moves of a solution are recovered backwards
+ * from the ending tile afterwards. Maps larger than 16x16 are solved one at a time with
+ * {@link #solveScalar(IceMapView)}, which can also be used to verify the results of a batch.
+ */
+public class BitboardBatchSolver {
+
+	/**
+	 * Largest width and height of the maps solved in lanes.
+	 */
+	public static final int MAX_SIZE = 16;
+
+	private static final int WORDS = 4;
+	private static final int ROWS_PER_WORD = 4;
+	private static final long COLUMN_0 = 0x0001000100010001L;
+	private static final Direction[] DIRECTIONS = Direction.values();
+
+	private int batchSize;
+
+	/**
+	 * Creates a solver that searches 256 maps per batch.
+	 */
+	public BitboardBatchSolver(){
+		this(256);
+	}
+
+	/**
+	 * @param batchSize - Number of maps searched in lockstep. Memory use grows with the batch size and the
+	 * number of moves in the longest solution of the batch.
+	 */
+	public BitboardBatchSolver(int batchSize){
+		if(batchSize < 1){
+			throw new IllegalArgumentException("Batch size must be positive");
+		}
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * @param map - A map
+	 * @return True if the map is small enough to be solved in a lane, else false
+	 */
+	public static boolean fits(IceMapView map){
+		return map.getWidth() <= MAX_SIZE && map.getHeight() <= MAX_SIZE;
+	}
+
+	/**
+	 * Solves a single map without bitboards.
+	 * @param map - The map to solve
+	 * @return A result holding an optimal solution, or no solutions if the map cannot be solved
+	 */
+	public static SolverResult solveScalar(IceMapView map){
+		return new AStarSolver(map).solve(Integer.MAX_VALUE, null);
+	}
+
+	/**
+	 * Finds an optimal solution for every map.
+	 * @param maps - The maps to solve
+	 * @return One result per map, in the same order. Each holds an optimal solution, or no solutions if the
+	 * map cannot be solved. Like {@link IceMapSolver}, a starting tile that is also the ending tile does not
+	 * count as a solution.
+	 */
+	public SolverResult[] solve(List<? extends IceMapView> maps){
+
+		SolverResult[] results = new SolverResult[maps.size()];
+		List<IceMapView> batch = new ArrayList<IceMapView>(this.batchSize);
+		int[] indices = new int[this.batchSize];
+
+		for(int i = 0; i < maps.size(); i++){
+
+			IceMapView map = maps.get(i);
+
+			if(!fits(map)){
+				results[i] = solveScalar(map);
+				continue;
+			}
+
+			indices[batch.size()] = i;
+			batch.add(map);
+
+			if(batch.size() == this.batchSize){
+				this.solveBatch(batch, indices, results);
+				batch.clear();
+			}
+		}
+
+		if(!batch.isEmpty()){
+			this.solveBatch(batch, indices, results);
+		}
+
+		return results;
+	}
+
+	/*
+	 * Searches every map of the batch breadth first, one layer of moves at a time.
+	 */
+	private void solveBatch(List<IceMapView> batch, int[] indices, SolverResult[] results){
+
+		int lanes = batch.size();
+
+		long[][] open = new long[WORDS][lanes];		// Tiles that are not solid
+		long[][] floor = new long[WORDS][lanes];
+		long[][] visited = new long[WORDS][lanes];
+		long[][] frontier = new long[WORDS][lanes];
+		long[][] next = new long[WORDS][lanes];
+		long[][] ice = new long[WORDS][lanes];
+		long[][] reached = new long[WORDS][lanes];
+		long[][] passable = new long[WORDS][lanes];
+		long[][] shifted = new long[WORDS][lanes];
+		long[][][] blocked = new long[DIRECTIONS.length][][];	// Tiles that cannot be left in each direction
+
+		int[] moves = new int[lanes];
+		int active = 0;
+
+		for(int lane = 0; lane < lanes; lane++){
+
+			IceMapView map = batch.get(lane);
+
+			for(int w = 0; w * ROWS_PER_WORD < map.getHeight(); w++){
+
+				long floorBits = 0;
+				long iceBits = 0;
+
+				for(int y = w * ROWS_PER_WORD; y < Math.min(map.getHeight(), (w + 1) * ROWS_PER_WORD); y++){
+					for(int x = 0; x < map.getWidth(); x++){
+						IceMap.Tile tile = map.getTileType(x, y);
+						if(tile == IceMap.Tile.FLOOR) floorBits |= bit(x, y);
+						else if(tile == IceMap.Tile.ICE) iceBits |= bit(x, y);
+					}
+				}
+
+				open[w][lane] = floorBits | iceBits;
+				floor[w][lane] = floorBits;
+				ice[w][lane] = iceBits;
+			}
+
+			moves[lane] = -1;
+
+			if(!map.isEnd(map.getStartX(), map.getStartY())){
+				frontier[map.getStartY() / ROWS_PER_WORD][lane] = bit(map.getStartX(), map.getStartY());
+				visited[map.getStartY() / ROWS_PER_WORD][lane] = bit(map.getStartX(), map.getStartY());
+				active++;
+			}
+		}
+
+		for(Direction d : DIRECTIONS){
+			blocked[d.ordinal()] = new long[WORDS][lanes];
+			shift(open, blocked[d.ordinal()], opposite(d), 1, lanes);
+			for(int w = 0; w < WORDS; w++){
+				long[] row = blocked[d.ordinal()][w];
+				for(int lane = 0; lane < lanes; lane++){
+					row[lane] = ~row[lane];
+				}
+			}
+		}
+
+		List<long[][]> layers = new ArrayList<long[][]>();
+
+		for(int depth = 1; active > 0; depth++){
+
+			layers.add(copy(frontier, lanes));
+
+			for(int w = 0; w < WORDS; w++){
+				Arrays.fill(next[w], 0, lanes, 0L);
+			}
+
+			for(Direction d : DIRECTIONS){
+				this.slide(frontier, next, reached, passable, shifted, ice, floor, blocked[d.ordinal()], d, lanes);
+			}
+
+			for(int w = 0; w < WORDS; w++){
+				long[] n = next[w];
+				long[] v = visited[w];
+				for(int lane = 0; lane < lanes; lane++){
+					n[lane] &= ~v[lane];
+					v[lane] |= n[lane];
+				}
+			}
+
+			active = 0;
+
+			for(int lane = 0; lane < lanes; lane++){
+
+				IceMapView map = batch.get(lane);
+				int endWord = map.getEndY() / ROWS_PER_WORD;
+
+				if((next[endWord][lane] & bit(map.getEndX(), map.getEndY())) != 0){
+					moves[lane] = depth;
+					for(int w = 0; w < WORDS; w++){
+						next[w][lane] = 0;		// The lane is finished
+					}
+				}
+				else if((next[0][lane] | next[1][lane] | next[2][lane] | next[3][lane]) != 0){
+					active++;
+				}
+			}
+
+			long[][] swap = frontier;
+			frontier = next;
+			next = swap;
+		}
+
+		for(int lane = 0; lane < lanes; lane++){
+			results[indices[lane]] = new SolverResult(this.buildSolution(batch.get(lane), lane, moves[lane], layers), false);
+		}
+	}
+
+	/*
+	 * Adds the tiles every tile of the frontier stops on when moving in the given direction to the
+	 * destinations. The tiles a slide passes through are found with an occluded fill over the ice tiles,
+	 * which covers a whole row or column in four shifts instead of moving one tile at a time. A slide then
+	 * stops on a reached tile in front of a solid tile, or on a floor tile just past a reached tile.
+	 */
+	private void slide(long[][] frontier, long[][] destinations, long[][] reached, long[][] passable, long[][] shifted,
+			long[][] ice, long[][] floor, long[][] blocked, Direction d, int lanes){
+
+		for(int w = 0; w < WORDS; w++){
+			System.arraycopy(frontier[w], 0, reached[w], 0, lanes);
+			System.arraycopy(ice[w], 0, passable[w], 0, lanes);
+		}
+
+		for(int distance = 1; distance < MAX_SIZE; distance <<= 1){
+
+			shift(reached, shifted, d, distance, lanes);
+			and(shifted, passable, lanes);
+			or(reached, shifted, lanes);
+
+			if(distance < MAX_SIZE / 2){
+				shift(passable, shifted, d, distance, lanes);
+				and(passable, shifted, lanes);		// Tiles starting a run of ice twice as long
+			}
+		}
+
+		shift(reached, shifted, d, 1, lanes);
+
+		for(int w = 0; w < WORDS; w++){
+
+			long[] r = reached[w];
+			long[] s = shifted[w];
+			long[] f = floor[w];
+			long[] b = blocked[w];
+			long[] out = destinations[w];
+
+			for(int lane = 0; lane < lanes; lane++){
+				out[lane] |= (r[lane] & b[lane]) | (s[lane] & f[lane]);
+			}
+		}
+	}
+
+	private static void and(long[][] target, long[][] mask, int lanes){
+		for(int w = 0; w < WORDS; w++){
+			long[] t = target[w];
+			long[] m = mask[w];
+			for(int lane = 0; lane < lanes; lane++){
+				t[lane] &= m[lane];
+			}
+		}
+	}
+
+	private static void or(long[][] target, long[][] bits, int lanes){
+		for(int w = 0; w < WORDS; w++){
+			long[] t = target[w];
+			long[] b = bits[w];
+			for(int lane = 0; lane < lanes; lane++){
+				t[lane] |= b[lane];
+			}
+		}
+	}
+
+	/*
+	 * Moves every tile of the boards the given number of tiles in a direction. Tiles moved off a board, or
+	 * past the end of a row, are dropped.
+	 */
+	private static void shift(long[][] source, long[][] target, Direction d, int distance, int lanes){
+
+		int bits = distance * MAX_SIZE;		// Size of a vertical shift in bits
+		int words = bits / 64;
+		int remainder = bits % 64;
+
+		for(int w = 0; w < WORDS; w++){
+
+			long[] t = target[w];
+
+			switch(d){
+			case RIGHT: {
+				long[] s = source[w];
+				long mask = ((0xFFFFL << distance) & 0xFFFFL) * COLUMN_0;
+				for(int lane = 0; lane < lanes; lane++) t[lane] = (s[lane] << distance) & mask;
+				break;
+			}
+			case LEFT: {
+				long[] s = source[w];
+				long mask = (0xFFFFL >>> distance) * COLUMN_0;
+				for(int lane = 0; lane < lanes; lane++) t[lane] = (s[lane] >>> distance) & mask;
+				break;
+			}
+			case DOWN: {
+				long[] s = w - words >= 0 ? source[w - words] : null;
+				long[] carry = remainder > 0 && w - words - 1 >= 0 ? source[w - words - 1] : null;
+				for(int lane = 0; lane < lanes; lane++){
+					t[lane] = (s != null ? s[lane] << remainder : 0) | (carry != null ? carry[lane] >>> (64 - remainder) : 0);
+				}
+				break;
+			}
+			case UP: {
+				long[] s = w + words < WORDS ? source[w + words] : null;
+				long[] carry = remainder > 0 && w + words + 1 < WORDS ? source[w + words + 1] : null;
+				for(int lane = 0; lane < lanes; lane++){
+					t[lane] = (s != null ? s[lane] >>> remainder : 0) | (carry != null ? carry[lane] << (64 - remainder) : 0);
+				}
+				break;
+			}
+			}
+		}
+	}
+
+	/*
+	 * Recovers the moves of a lane's solution by finding, for each layer from the last to the first, a tile
+	 * of the layer that slides onto the tile reached by the following move. Only tiles of the layer in the
+	 * same row or column as that tile need to be tried.
+	 */
+	private SolutionSet buildSolution(IceMapView map, int lane, int moves, List<long[][]> layers){
+
+		if(moves < 0){
+			return SolutionSet.EMPTY;
+		}
+
+		NavigationNode[] solution = new NavigationNode[moves];
+		int currentX = map.getEndX();
+		int currentY = map.getEndY();
+
+		for(int depth = moves - 1; depth >= 0; depth--){
+
+			long[][] layer = layers.get(depth);
+			int previousX = -1;
+			int previousY = -1;
+			Direction direction = null;
+
+			for(int w = 0; w < WORDS && direction == null; w++){
+
+				long line = COLUMN_0 << currentX;
+				if(w == currentY / ROWS_PER_WORD){
+					line |= 0xFFFFL << ((currentY % ROWS_PER_WORD) * MAX_SIZE);
+				}
+
+				long bits = layer[w][lane] & line;
+
+				while(bits != 0 && direction == null){
+
+					int index = Long.numberOfTrailingZeros(bits);
+					bits &= bits - 1;
+
+					int x = index % MAX_SIZE;
+					int y = w * ROWS_PER_WORD + index / MAX_SIZE;
+					Direction d = x < currentX ? Direction.RIGHT : x > currentX ? Direction.LEFT : y < currentY ? Direction.DOWN : Direction.UP;
+
+					if(SlideTable.slide(map, x, y, d) == currentY * map.getWidth() + currentX){
+						previousX = x;
+						previousY = y;
+						direction = d;
+					}
+				}
+			}
+
+			NavigationNode node = new NavigationNode();
+			node.setDestinationCoordinates(currentX, currentY);
+			node.setDirection(direction);
+			solution[depth] = node;
+
+			currentX = previousX;
+			currentY = previousY;
+		}
+
+		solution[moves - 1].markAsEnd(true);
+
+		return new SolutionSet.Builder(1, moves).add(solution).build();
+	}
+
+	private static long bit(int x, int y){
+		return 1L << ((y % ROWS_PER_WORD) * MAX_SIZE + x);
+	}
+
+	private static Direction opposite(Direction d){
+		switch(d){
+		case UP: return Direction.DOWN;
+		case DOWN: return Direction.UP;
+		case LEFT: return Direction.RIGHT;
+		default: return Direction.LEFT;
+		}
+	}
+
+	private static long[][] copy(long[][] board, int lanes){
+		long[][] result = new long[WORDS][];
+		for(int w = 0; w < WORDS; w++){
+			result[w] = Arrays.copyOf(board[w], lanes);
+		}
+		return result;
+	}
+
+}
@@ -0,0 +1,50 @@
+package com.turtlesort.icegen;
+
+/**
+ * Tells a running {@link IceMapSolver} when to stop searching. A token is considered expired once
+ * it has been cancelled or once its deadline (if it has one) has passed. Tokens are safe to cancel
+ * from any thread.
+ */
+public class CancellationToken {
+
+	private volatile boolean cancelled;
+	private final long deadline;
+	
+	/**
+	 * Creates a token without a deadline. It only expires when {@link #cancel()} is called.
+	 */
+	public CancellationToken(){
+		this.deadline = Long.MAX_VALUE;
+	}
+	
+	/**
+	 * Creates a token that expires once the given amount of time has passed, or when
+	 * {@link #cancel()} is called, whichever happens first.
+	 * @param timeBudgetMillis - Time in milliseconds before the token expires
+	 */
+	public CancellationToken(long timeBudgetMillis){
+		this.deadline = System.nanoTime() + timeBudgetMillis * 1000000L;
+	}
+	
+	/**
+	 * Requests that any solver using this token stops as soon as possible.
+	 */
+	public void cancel(){
+		this.cancelled = true;
+	}
+	
+	/**
+	 * @return True if {@link #cancel()} has been called, else false
+	 */
+	public boolean isCancelled(){
+		return this.cancelled;
+	}
+	
+	/**
+	 * @return True if this token has been cancelled or its deadline has passed, else false
+	 */
+	public boolean isExpired(){
+		return this.cancelled || System.nanoTime() - this.deadline > 0;
+	}
+	
+}
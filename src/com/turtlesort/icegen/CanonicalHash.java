@@ -0,0 +1,65 @@
+package com.turtlesort.icegen;
+
+/**
+ * A 128-bit hash of a map that is the same for every rotation and mirror image of the map.
+ * See {@link MapSymmetry#canonicalHash(IceMapView)}.
+ */
+public final class CanonicalHash implements Comparable<CanonicalHash> {
+
+	private final long high;
+	private final long low;
+
+	/**
+	 * Constructor.
+	 * @param high - The upper 64 bits of the hash
+	 * @param low - The lower 64 bits of the hash
+	 */
+	public CanonicalHash(long high, long low){
+		this.high = high;
+		this.low = low;
+	}
+
+	/**
+	 * @return The upper 64 bits of the hash
+	 */
+	public long getHigh(){
+		return this.high;
+	}
+
+	/**
+	 * @return The lower 64 bits of the hash
+	 */
+	public long getLow(){
+		return this.low;
+	}
+
+	/**
+	 * Compares hashes as unsigned 128-bit numbers.
+	 */
+	@Override
+	public int compareTo(CanonicalHash other){
+		int result = Long.compareUnsigned(this.high, other.high);
+		return result != 0 ? result : Long.compareUnsigned(this.low, other.low);
+	}
+
+	@Override
+	public boolean equals(Object o){
+		if(!(o instanceof CanonicalHash)) return false;
+		CanonicalHash other = (CanonicalHash)o;
+		return this.high == other.high && this.low == other.low;
+	}
+
+	@Override
+	public int hashCode(){
+		return (int)(this.low ^ (this.low >>> 32));
+	}
+
+	/**
+	 * @return The hash as 32 hexadecimal digits
+	 */
+	@Override
+	public String toString(){
+		return String.format("%016x%016x", this.high, this.low);
+	}
+
+}
@@ -0,0 +1,447 @@
+package com.turtlesort.icegen;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A read-only map stored in a file of square chunks of tiles, for maps too large to hold in memory. The
+ * file is memory-mapped and chunks are copied out of it the first time one of their tiles is read. Only a
+ * fixed number of chunks stay resident, and the chunk used least recently is dropped to make room for the
+ * next one, so memory use is bounded however large the map is. Slides mostly read neighbouring tiles,
+ * which keeps solving a map within a few chunks at a time.
+ *
+ * Chunk files are written by {@link #write(IceMapView, File, int)} or converted from binary map files
+ * with {@link #convertBinaryFile(File, File, int)}. After the header, which holds {@link #CHUNK_FILE_MAGIC},
+ * the width, height, starting tile coordinates, ending tile coordinates and chunk size as 32-bit integers
+ * followed by the name in modified UTF-8, the file contains every chunk in row order. Each chunk holds one
+ * byte per tile in row order with the ordinal of its IceMap.Tile type. Chunks on the right and bottom edges
+ * are padded with solid tiles.
+ *
+ * A ChunkedIceMap is not safe for use by several threads at once.
+ */
+public class ChunkedIceMap implements IceMapView, Closeable {
+
+	/**
+	 * First four bytes of a chunk file.
+	 */
+	public static final int CHUNK_FILE_MAGIC = 0x49434543; // "ICEC"
+
+	/**
+	 * Chunk size used when none is specified.
+	 */
+	public static final int DEFAULT_CHUNK_SIZE = 64;
+
+	private static final IceMap.Tile[] TILES = IceMap.Tile.values();
+	private static final long MAX_SEGMENT_SIZE = 1L << 30;
+
+	private RandomAccessFile file;
+	private MappedByteBuffer[] segments;	// The file mapped in pieces, since one mapping cannot exceed 2GB
+	private long segmentSize;				// A whole number of chunks, so no chunk spans two segments
+	private long dataOffset;
+
+	private int width;
+	private int height;
+	private int startX;
+	private int startY;
+	private int endX;
+	private int endY;
+	private String name;
+	private int chunkSize;
+	private int chunksAcross;
+
+	private LinkedHashMap<Long, byte[]> residentChunks;
+	private int maxResidentChunks;
+	private long lastChunkIndex = -1;		// The chunk read most recently, checked before the LRU
+	private byte[] lastChunk;
+
+	private long hits;
+	private long misses;
+
+	/**
+	 * Opens a chunk file.
+	 * @param file - The chunk file
+	 * @param maxResidentChunks - Most chunks held in memory at once
+	 * @throws IOException If the file cannot be read or is not a valid chunk file
+	 */
+	public ChunkedIceMap(File file, int maxResidentChunks) throws IOException {
+
+		if(maxResidentChunks < 1){
+			throw new IllegalArgumentException("At least one chunk must be resident");
+		}
+
+		this.file = new RandomAccessFile(file, "r");
+
+		try {
+			this.readHeader();
+			this.mapSegments();
+		} catch (IOException e) {
+			this.file.close();
+			throw e;
+		}
+
+		this.maxResidentChunks = maxResidentChunks;
+		this.residentChunks = new LinkedHashMap<Long, byte[]>(16, 0.75f, true);
+	}
+
+	private void readHeader() throws IOException {
+
+		RandomAccessFile in = this.file;
+
+		if(in.readInt() != CHUNK_FILE_MAGIC){
+			throw new IOException("Not a chunk file");
+		}
+
+		this.width = in.readInt();
+		this.height = in.readInt();
+		this.startX = in.readInt();
+		this.startY = in.readInt();
+		this.endX = in.readInt();
+		this.endY = in.readInt();
+		this.chunkSize = in.readInt();
+		String name = in.readUTF();
+
+		if(this.width <= 0 || this.height <= 0 || this.chunkSize <= 0 || this.chunkSize > 4096){
+			throw new IOException("Invalid chunk file dimensions");
+		}
+
+		if(!this.isTile(this.startX, this.startY) || !this.isTile(this.endX, this.endY)){
+			throw new IOException("Starting or ending tile is outside the map");
+		}
+
+		this.name = name.isEmpty() ? null : name;
+		this.chunksAcross = (this.width + this.chunkSize - 1) / this.chunkSize;
+		this.dataOffset = in.getFilePointer();
+	}
+
+	private void mapSegments() throws IOException {
+
+		long chunkBytes = (long)this.chunkSize * this.chunkSize;
+		long chunks = (long)this.chunksAcross * ((this.height + this.chunkSize - 1) / this.chunkSize);
+		long dataSize = chunks * chunkBytes;
+
+		if(this.file.length() < this.dataOffset + dataSize){
+			throw new IOException("Chunk file is truncated");
+		}
+
+		this.segmentSize = Math.max(1, MAX_SEGMENT_SIZE / chunkBytes) * chunkBytes;
+		this.segments = new MappedByteBuffer[(int)((dataSize + this.segmentSize - 1) / this.segmentSize)];
+
+		FileChannel channel = this.file.getChannel();
+
+		for(int i = 0; i < this.segments.length; i++){
+			long offset = i * this.segmentSize;
+			this.segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, this.dataOffset + offset, Math.min(this.segmentSize, dataSize - offset));
+		}
+	}
+
+	@Override
+	public IceMap.Tile getTileType(int x, int y){
+
+		if(!this.isTile(x, y)){
+			return IceMap.Tile.SOLID;
+		}
+
+		// Small chunks on a very large map number more than an int can hold
+		long chunkIndex = (long)(y / this.chunkSize) * this.chunksAcross + x / this.chunkSize;
+
+		if(chunkIndex != this.lastChunkIndex){
+			this.lastChunk = this.getChunk(chunkIndex);
+			this.lastChunkIndex = chunkIndex;
+		}
+		else{
+			this.hits++;
+		}
+
+		byte[] chunk = this.lastChunk;
+
+		return TILES[chunk[(y % this.chunkSize) * this.chunkSize + x % this.chunkSize]];
+	}
+
+	/*
+	 * Finds a resident chunk, or copies it out of the file, dropping the chunk used least recently if too
+	 * many are resident.
+	 */
+	private byte[] getChunk(long chunkIndex){
+
+		if(this.segments == null){
+			throw new IllegalStateException("Map has been closed");
+		}
+
+		byte[] chunk = this.residentChunks.get(chunkIndex);
+
+		if(chunk != null){
+			this.hits++;
+			return chunk;
+		}
+
+		this.misses++;
+
+		if(this.residentChunks.size() >= this.maxResidentChunks){
+			Iterator<Map.Entry<Long, byte[]>> eldest = this.residentChunks.entrySet().iterator();
+			chunk = eldest.next().getValue();
+			eldest.remove();
+		}
+		else{
+			chunk = new byte[this.chunkSize * this.chunkSize];
+		}
+
+		long offset = chunkIndex * chunk.length;
+		MappedByteBuffer segment = this.segments[(int)(offset / this.segmentSize)];
+
+		segment.position((int)(offset % this.segmentSize));
+		segment.get(chunk);
+
+		for(int i = 0; i < chunk.length; i++){
+			if((chunk[i] & 0xFF) >= TILES.length){
+				throw new IllegalStateException("Invalid tile type " + (chunk[i] & 0xFF) + " in chunk " + chunkIndex);
+			}
+		}
+
+		this.residentChunks.put(chunkIndex, chunk);
+
+		return chunk;
+	}
+
+	/**
+	 * @return The number of tile reads that found their chunk resident
+	 */
+	public long getChunkHits(){
+		return this.hits;
+	}
+
+	/**
+	 * @return The number of tile reads that had to copy their chunk out of the file
+	 */
+	public long getChunkMisses(){
+		return this.misses;
+	}
+
+	/**
+	 * @return The number of chunks currently held in memory
+	 */
+	public int getResidentChunkCount(){
+		return this.residentChunks.size();
+	}
+
+	/**
+	 * @return The width and height of the chunks
+	 */
+	public int getChunkSize(){
+		return this.chunkSize;
+	}
+
+	/**
+	 * Drops every resident chunk, unmaps the file and closes it. Reading tiles afterwards throws an
+	 * IllegalStateException.
+	 */
+	@Override
+	public void close() throws IOException {
+		
+		if(this.segments != null){
+			for(MappedByteBuffer segment : this.segments){
+				IceMap.release(segment);
+			}
+		}
+		
+		this.segments = null;
+		this.residentChunks.clear();
+		this.lastChunkIndex = -1;
+		this.lastChunk = null;
+		this.file.close();
+	}
+
+	@Override
+	public String getName(){
+		return this.name;
+	}
+
+	@Override
+	public int getStartX(){
+		return this.startX;
+	}
+
+	@Override
+	public int getStartY(){
+		return this.startY;
+	}
+
+	@Override
+	public int getEndX(){
+		return this.endX;
+	}
+
+	@Override
+	public int getEndY(){
+		return this.endY;
+	}
+
+	@Override
+	public boolean isStart(int x, int y){
+		return x == this.startX && y == this.startY;
+	}
+
+	@Override
+	public boolean isEnd(int x, int y){
+		return x == this.endX && y == this.endY;
+	}
+
+	@Override
+	public boolean isTile(int x, int y){
+		return x >= 0 && x < this.width && y >= 0 && y < this.height;
+	}
+
+	@Override
+	public int getWidth(){
+		return this.width;
+	}
+
+	@Override
+	public int getHeight(){
+		return this.height;
+	}
+
+	/**
+	 * Writes a map as a chunk file. Tiles are read one chunk at a time, so the map may itself be a
+	 * ChunkedIceMap or a map stored off the heap.
+	 * @param map - The map to write
+	 * @param file - The chunk file to create
+	 * @param chunkSize - Width and height of the chunks
+	 * @throws IOException If the file cannot be written
+	 */
+	public static void write(IceMapView map, File file, int chunkSize) throws IOException {
+
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+
+		try {
+			writeHeader(out, map.getWidth(), map.getHeight(), map.getStartX(), map.getStartY(), map.getEndX(), map.getEndY(), chunkSize, map.getName());
+
+			byte[] chunk = new byte[chunkSize * chunkSize];
+
+			for(int chunkY = 0; chunkY < map.getHeight(); chunkY += chunkSize){
+				for(int chunkX = 0; chunkX < map.getWidth(); chunkX += chunkSize){
+					for(int y = 0; y < chunkSize; y++){
+						for(int x = 0; x < chunkSize; x++){
+							chunk[y * chunkSize + x] = (byte)map.getTileType(chunkX + x, chunkY + y).ordinal();
+						}
+					}
+					out.write(chunk);
+				}
+			}
+
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Converts a binary map file written by {@link IceMap#writeBinaryFile(File)} into a chunk file without
+	 * loading the whole map. Only one band of rows as tall as a chunk is held in memory at a time.
+	 * @param binaryFile - The binary map file to read
+	 * @param chunkFile - The chunk file to create
+	 * @param chunkSize - Width and height of the chunks
+	 * @throws IOException If a file cannot be read or written, or the binary map is invalid
+	 */
+	public static void convertBinaryFile(File binaryFile, File chunkFile, int chunkSize) throws IOException {
+
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(binaryFile)));
+		DataOutputStream out = null;
+
+		try {
+			if(in.readInt() != IceMap.BINARY_FILE_MAGIC){
+				throw new IOException("Not a binary map");
+			}
+
+			int width = in.readInt();
+			int height = in.readInt();
+			int startX = in.readInt();
+			int startY = in.readInt();
+			int endX = in.readInt();
+			int endY = in.readInt();
+			String name = in.readUTF();
+
+			if(width <= 0 || height <= 0){
+				throw new IOException("Invalid map dimensions " + width + "x" + height);
+			}
+
+			out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(chunkFile)));
+			writeHeader(out, width, height, startX, startY, endX, endY, chunkSize, name.isEmpty() ? null : name);
+
+			int chunksAcross = (width + chunkSize - 1) / chunkSize;
+			byte[] band = new byte[chunksAcross * chunkSize * chunkSize];
+
+			for(int bandY = 0; bandY < height; bandY += chunkSize){
+
+				// Tiles outside the map pad the band as solid
+				Arrays.fill(band, (byte)IceMap.Tile.SOLID.ordinal());
+
+				for(int y = 0; y < chunkSize && bandY + y < height; y++){
+					for(int x = 0; x < width; x++){
+
+						int tile = in.readUnsignedByte();
+
+						if(tile >= TILES.length){
+							throw new IOException("Invalid tile type " + tile + " at " + x + "," + (bandY + y));
+						}
+
+						band[(x / chunkSize) * chunkSize * chunkSize + y * chunkSize + x % chunkSize] = (byte)tile;
+					}
+				}
+
+				out.write(band);
+			}
+
+		} finally {
+			in.close();
+			if(out != null){
+				out.close();
+			}
+		}
+	}
+
+	private static void writeHeader(DataOutputStream out, int width, int height, int startX, int startY, int endX, int endY,
+			int chunkSize, String name) throws IOException {
+
+		if(chunkSize <= 0 || chunkSize > 4096){
+			throw new IllegalArgumentException("Invalid chunk size " + chunkSize);
+		}
+
+		out.writeInt(CHUNK_FILE_MAGIC);
+		out.writeInt(width);
+		out.writeInt(height);
+		out.writeInt(startX);
+		out.writeInt(startY);
+		out.writeInt(endX);
+		out.writeInt(endY);
+		out.writeInt(chunkSize);
+		out.writeUTF(name != null ? name : "");
+	}
+
+	/**
+	 * Converts a binary map file into a chunk file.
+	 * Usage: ChunkedIceMap input.icemap output.icechunks [chunkSize]
+	 */
+	public static void main(String[] args) throws IOException {
+
+		if(args.length < 2){
+			System.err.println("Usage: ChunkedIceMap input.icemap output.icechunks [chunkSize]");
+			System.exit(1);
+		}
+
+		convertBinaryFile(new File(args[0]), new File(args[1]), args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_CHUNK_SIZE);
+	}
+
+}
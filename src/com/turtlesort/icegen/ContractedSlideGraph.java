@@ -0,0 +1,380 @@
+package com.turtlesort.icegen;
+
+import java.util.Arrays;
+
+import com.turtlesort.icegen.IceMapSolver.Direction;
+
+/**
+ * A compressed form of the graph of slides between the tiles a player can stop on, for searching large
+ * maps made mostly of floor. On such maps most moves only cover a single tile, and long corridors of
+ * stop tiles make the plain slide graph much larger than the number of real choices a player has.
+ *
+ * Two kinds of stop tile are contracted away:
+ * <ul>
+ * <li>Forced tiles, which only have one move that leaves the tile. Any path through them continues to
+ * the same tile.</li>
+ * <li>Corridor tiles, which can only be reached from and only lead to the same two neighbouring tiles. A
+ * shortest path that enters from one neighbour always leaves to the other.</li>
+ * </ul>
+ * The remaining stop tiles are joined by macro-edges that remember the tiles they pass through and how
+ * many moves they take. Shortest paths through the contracted graph are expanded back into one
+ * NavigationNode per move, so the result has the same form as the solutions found by {@link IceMapSolver}.
+ * The starting and ending tiles are never contracted.
+ *
+ * The graph is built once from the tiles reachable from the starting tile. It describes the map as it was
+ * at the time, so a new graph must be built after the map is edited. Building it visits every reachable
+ * tile and costs more than one search with {@link IceMapSolver#findOptimalMoveCount()}, so the graph only
+ * pays off for callers that search the same map many times.
+ */
+public class ContractedSlideGraph {
+
+	private static final Direction[] DIRECTIONS = Direction.values();
+	private static final int NONE = -1;
+
+	private IceMapView map;
+	private int width;
+	private int start;
+	private int end;
+
+	private int stopTileCount;
+	private int[] nodeTiles;			// The tile of each node
+	private int[] nodeIndices;			// The node of each tile, or NONE if the tile was contracted or never reached
+
+	// Macro-edges in compressed sparse row form: the edges leaving node n are firstEdge[n] to firstEdge[n + 1] - 1
+	private int[] firstEdge;
+	private int[] edgeTargets;
+	private int[] edgeMoves;
+	private int[] edgePathStarts;		// Where each edge's tiles start in pathTiles. An edge covers edgeMoves tiles
+	private int[] pathTiles;			// The tile each move of an edge stops on, ending with the edge's target
+
+	private int[] neighbours = new int[2];
+
+	/**
+	 * Builds the contracted graph of a map.
+	 * @param map - The map to build the graph of
+	 */
+	public ContractedSlideGraph(IceMapView map){
+		this.map = map;
+		this.width = map.getWidth();
+		this.start = map.getStartY() * this.width + map.getStartX();
+		this.end = map.getEndY() * this.width + map.getEndX();
+		this.build();
+	}
+
+	/**
+	 * @return The number of tiles a player can stop on after moving from the starting tile, including the starting tile
+	 */
+	public int getStopTileCount(){
+		return this.stopTileCount;
+	}
+
+	/**
+	 * @return The number of tiles left in the graph after contraction
+	 */
+	public int getNodeCount(){
+		return this.nodeTiles.length;
+	}
+
+	/**
+	 * @return The number of macro-edges between the tiles left in the graph
+	 */
+	public int getEdgeCount(){
+		return this.edgeTargets.length;
+	}
+
+	/**
+	 * @return The least number of moves needed to get from the starting tile to the end tile, or -1 if the
+	 * end tile cannot be reached. Gives the same answer as {@link IceMapSolver#findOptimalMoveCount()}.
+	 */
+	public int findOptimalMoveCount(){
+		int[] parents = new int[this.nodeTiles.length];
+		int[] parentEdges = new int[this.nodeTiles.length];
+		return this.search(parents, parentEdges);
+	}
+
+	/**
+	 * Finds an optimal solution with Dijkstra's algorithm over the macro-edges.
+	 * @return An optimal solution in the same form as the solutions of {@link IceMapSolver#solve(int)}, or null
+	 * if the end tile cannot be reached
+	 */
+	public NavigationNode[] findOptimalSolution(){
+
+		int[] parents = new int[this.nodeTiles.length];
+		int[] parentEdges = new int[this.nodeTiles.length];
+		int moves = this.search(parents, parentEdges);
+
+		return moves == -1 ? null : this.buildSolution(this.nodeIndices[this.end], moves, parents, parentEdges);
+	}
+
+	/*
+	 * Runs Dijkstra's algorithm from the starting node until the end node is reached, recording the node
+	 * and edge each node was reached through. Returns the number of moves to the end node, or -1.
+	 */
+	private int search(int[] parents, int[] parentEdges){
+
+		int startNode = this.nodeIndices[this.start];
+		int endNode = this.nodeIndices[this.end];
+
+		// Like IceMapSolver, a starting tile that is also the ending tile does not count as a solution
+		if(this.start == this.end || endNode == NONE){
+			return -1;
+		}
+
+		int[] moves = new int[this.nodeTiles.length];
+		boolean[] closed = new boolean[this.nodeTiles.length];
+		IntPriorityQueue open = new IntPriorityQueue(64);
+
+		Arrays.fill(moves, Integer.MAX_VALUE);
+		moves[startNode] = 0;
+		parentEdges[startNode] = NONE;
+		open.add(startNode, 0);
+
+		while(!open.isEmpty()){
+
+			int current = open.poll();
+			if(closed[current]) continue;		// A stale entry for a node that was reached with fewer moves later
+			closed[current] = true;
+
+			if(current == endNode){
+				return moves[endNode];
+			}
+
+			for(int edge = this.firstEdge[current]; edge < this.firstEdge[current + 1]; edge++){
+
+				int target = this.edgeTargets[edge];
+				int targetMoves = moves[current] + this.edgeMoves[edge];
+
+				if(targetMoves < moves[target]){
+					moves[target] = targetMoves;
+					parents[target] = current;
+					parentEdges[target] = edge;
+					open.add(target, targetMoves);
+				}
+			}
+		}
+
+		return -1;
+	}
+
+	/*
+	 * Finds the stop tiles reachable from the starting tile, decides which of them are contracted, then walks
+	 * from every remaining tile along each of its moves until another remaining tile is found.
+	 */
+	private void build(){
+
+		int tiles = this.width * this.map.getHeight();
+		int[] destinations = new int[tiles * 4];	// Where each move of each reached tile stops
+		int[] reached = new int[tiles];
+		boolean[] visited = new boolean[tiles];
+		int count = 0;
+
+		visited[this.start] = true;
+		reached[count++] = this.start;
+
+		for(int head = 0; head < count; head++){
+
+			int current = reached[head];
+			int x = current % this.width;
+			int y = current / this.width;
+
+			for(Direction d : DIRECTIONS){
+
+				// The ending tile is never left, so its moves are treated as impossible
+				int destination = current == this.end ? current : SlideTable.slide(this.map, x, y, d);
+				destinations[current * 4 + d.ordinal()] = destination;
+
+				if(!visited[destination]){
+					visited[destination] = true;
+					reached[count++] = destination;
+				}
+			}
+		}
+
+		this.stopTileCount = count;
+
+		// Count how many different tiles lead to each tile
+		int[] sources = new int[tiles];
+		for(int i = 0; i < count; i++){
+			int tile = reached[i];
+			for(int d = 0; d < 4; d++){
+				int destination = destinations[tile * 4 + d];
+				if(destination != tile && this.isFirstMoveTo(destinations, tile, d, destination)){
+					sources[destination]++;
+				}
+			}
+		}
+
+		this.nodeIndices = new int[tiles];
+		Arrays.fill(this.nodeIndices, NONE);
+
+		int nodes = 0;
+		for(int i = 0; i < count; i++){
+			int tile = reached[i];
+			if(!this.isContracted(destinations, sources, tile)){
+				this.nodeIndices[tile] = nodes++;
+			}
+		}
+
+		this.nodeTiles = new int[nodes];
+		this.firstEdge = new int[nodes + 1];
+
+		int[] targets = new int[nodes * 4];
+		int[] edgeMoves = new int[nodes * 4];
+		int[] pathStarts = new int[nodes * 4];
+		int[] path = new int[Math.max(16, count)];
+		int edges = 0;
+		int pathLength = 0;
+
+		for(int i = 0; i < count; i++){
+
+			int tile = reached[i];
+			int node = this.nodeIndices[tile];
+			if(node == NONE) continue;
+
+			this.nodeTiles[node] = tile;
+			this.firstEdge[node] = edges;
+
+			for(int d = 0; d < 4; d++){
+
+				int next = destinations[tile * 4 + d];
+				if(next == tile || !this.isFirstMoveTo(destinations, tile, d, next)) continue;
+
+				int previous = tile;
+				int edgeStart = pathLength;
+				int length = 0;
+
+				// Follow the only sensible way through contracted tiles, giving up on loops that never return
+				while(length <= count){
+
+					if(pathLength == path.length){
+						path = Arrays.copyOf(path, path.length * 2);
+					}
+					path[pathLength++] = next;
+					length++;
+
+					if(this.nodeIndices[next] != NONE) break;
+
+					int following = this.continueThrough(destinations, next, previous);
+					previous = next;
+					next = following;
+				}
+
+				if(this.nodeIndices[next] == NONE || next == tile){
+					pathLength = edgeStart;		// A loop back to the same tile is never part of a shortest path
+					continue;
+				}
+
+				targets[edges] = this.nodeIndices[next];
+				edgeMoves[edges] = length;
+				pathStarts[edges] = edgeStart;
+				edges++;
+			}
+		}
+
+		this.firstEdge[nodes] = edges;
+		this.edgeTargets = Arrays.copyOf(targets, edges);
+		this.edgeMoves = Arrays.copyOf(edgeMoves, edges);
+		this.edgePathStarts = Arrays.copyOf(pathStarts, edges);
+		this.pathTiles = Arrays.copyOf(path, pathLength);
+	}
+
+	/*
+	 * True if the move in direction d is the first of the tile's moves to stop on the destination.
+	 */
+	private boolean isFirstMoveTo(int[] destinations, int tile, int d, int destination){
+		for(int i = 0; i < d; i++){
+			if(destinations[tile * 4 + i] == destination) return false;
+		}
+		return true;
+	}
+
+	/*
+	 * Finds the different tiles the tile's moves stop on, other than the tile itself. At most two are stored
+	 * in neighbours, the returned count is exact.
+	 */
+	private int findNeighbours(int[] destinations, int tile){
+
+		int found = 0;
+
+		for(int d = 0; d < 4; d++){
+			int destination = destinations[tile * 4 + d];
+			if(destination != tile && this.isFirstMoveTo(destinations, tile, d, destination)){
+				if(found < this.neighbours.length) this.neighbours[found] = destination;
+				found++;
+			}
+		}
+
+		return found;
+	}
+
+	/*
+	 * True if the tile is forced or is a corridor tile, see the class description.
+	 */
+	private boolean isContracted(int[] destinations, int[] sources, int tile){
+
+		if(tile == this.start || tile == this.end) return false;
+
+		int found = this.findNeighbours(destinations, tile);
+
+		if(found == 1) return true;
+
+		return found == 2 && sources[tile] == 2
+				&& this.leadsTo(destinations, this.neighbours[0], tile) && this.leadsTo(destinations, this.neighbours[1], tile);
+	}
+
+	private boolean leadsTo(int[] destinations, int tile, int destination){
+		for(int d = 0; d < 4; d++){
+			if(destinations[tile * 4 + d] == destination) return true;
+		}
+		return false;
+	}
+
+	/*
+	 * Finds the tile a path continues to after arriving at a contracted tile from the previous tile.
+	 */
+	private int continueThrough(int[] destinations, int tile, int previous){
+
+		int found = this.findNeighbours(destinations, tile);
+
+		if(found == 1) return this.neighbours[0];
+
+		return this.neighbours[0] == previous ? this.neighbours[1] : this.neighbours[0];
+	}
+
+	/*
+	 * Expands the macro-edges leading to the end node into one NavigationNode per move.
+	 */
+	private NavigationNode[] buildSolution(int endNode, int totalMoves, int[] parents, int[] parentEdges){
+
+		NavigationNode[] solution = new NavigationNode[totalMoves];
+		int i = totalMoves;
+
+		for(int node = endNode; parentEdges[node] != NONE; node = parents[node]){
+
+			int edge = parentEdges[node];
+			int pathStart = this.edgePathStarts[edge];
+
+			for(int move = this.edgeMoves[edge] - 1; move >= 0; move--){
+
+				int from = move > 0 ? this.pathTiles[pathStart + move - 1] : this.nodeTiles[parents[node]];
+				int to = this.pathTiles[pathStart + move];
+
+				NavigationNode navigationNode = new NavigationNode();
+				navigationNode.setDestinationCoordinates(to % this.width, to / this.width);
+				navigationNode.setDirection(this.directionOf(from, to));
+				solution[--i] = navigationNode;
+			}
+		}
+
+		solution[totalMoves - 1].markAsEnd(true);
+
+		return solution;
+	}
+
+	private Direction directionOf(int from, int to){
+		int dx = to % this.width - from % this.width;
+		int dy = to / this.width - from / this.width;
+		return dx < 0 ? Direction.LEFT : dx > 0 ? Direction.RIGHT : dy < 0 ? Direction.UP : Direction.DOWN;
+	}
+
+}
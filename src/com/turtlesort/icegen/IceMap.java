@@ -1,13 +1,25 @@
 package com.turtlesort.icegen;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
 import java.text.NumberFormat;
 import java.text.ParseException;
+import java.util.Base64;
 import java.util.zip.InflaterInputStream;
 
-import javax.xml.bind.DatatypeConverter;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
@@ -24,8 +36,12 @@ import org.xml.sax.SAXException;
  * floor, ice, and solid. Floor and ice tiles can be walked across, and solid tiles cannot.
  * Stepping on an ice tile keeps you in motion in the direction you stepped until you land on a floor tile
  * or collide with a solid tile. 
+ * 
+ * Tiles are normally stored on the heap. Very large maps can instead be stored off the heap, one byte per
+ * tile in a direct buffer, which keeps them out of the way of the garbage collector. Such maps should be
+ * closed when they are no longer needed to release their memory.
  */
-public class IceMap {
+public class IceMap implements IceMapView, Closeable {
 	
 	/**
 	 * Tile type.
@@ -34,13 +50,28 @@ public class IceMap {
 		ICE, FLOOR, SOLID
 	};
 	
-	private Tile[][] map;
+	/**
+	 * First four bytes of a binary map file.
+	 */
+	public static final int BINARY_FILE_MAGIC = 0x4943454D; // "ICEM"
+	
+	private static final Tile[] TILES = Tile.values();
+	
+	private Tile[][] map;					// Null if the tiles are stored off the heap
+	private ByteBuffer offHeapTiles;		// Tile ordinals in row order, null unless the tiles are stored off the heap
+	private boolean closed;
+	private int width;
+	private int height;
 	private int startX;
 	private int startY;
 	private int endX;
 	private int endY;
 	
 	private String mapName;
+	private int modificationCount;
+	
+	private IceMapSnapshot snapshot;
+	private boolean[] dirtyRows;
 	
 	/**
 	 * Creates a grid with the desired dimensions. By default, all tiles
@@ -49,12 +80,34 @@ public class IceMap {
 	 * @param height The desired height of the map
 	 */
 	public IceMap(int width, int height){
-		this.map = new Tile[width][height];
+		this(width, height, false);
+	}
+	
+	/**
+	 * Creates a grid with the desired dimensions. By default, all tiles are ice tiles.
+	 * @param width The desired width of the map
+	 * @param height The desired height of the map
+	 * @param offHeap True to store the tiles off the heap, one byte per tile. The map should be closed
+	 * once it is no longer needed.
+	 */
+	public IceMap(int width, int height, boolean offHeap){
+		this.width = width;
+		this.height = height;
 		this.startX = 0;
 		this.startY = 0;
 		this.endX = 0;
 		this.endY = 0;
 		
+		if(offHeap){
+			if((long)width * height > Integer.MAX_VALUE){
+				throw new IllegalArgumentException("Map too large to store off the heap: " + width + "x" + height);
+			}
+			this.offHeapTiles = ByteBuffer.allocateDirect(width * height); // Zeroed, which is Tile.ICE
+			return;
+		}
+		
+		this.map = new Tile[width][height];
+		
 		for(int i = 0; i < width; i++){
 			for(int j = 0; j < height; j++){
 				this.map[i][j] = Tile.ICE;
@@ -62,6 +115,36 @@ public class IceMap {
 		}
 	}
 		
+	/**
+	 * Creates a copy of another map. The copy has the same tiles, starting tile, ending tile, and name,
+	 * and can be modified without affecting the original. It is stored off the heap if the original is.
+	 * @param other The map to copy
+	 */
+	public IceMap(IceMap other){
+		this.width = other.width;
+		this.height = other.height;
+		this.startX = other.startX;
+		this.startY = other.startY;
+		this.endX = other.endX;
+		this.endY = other.endY;
+		this.mapName = other.mapName;
+		this.modificationCount = other.modificationCount;
+		
+		if(other.isOffHeap()){
+			ByteBuffer source = other.offHeapTiles().duplicate();
+			source.clear();
+			this.offHeapTiles = ByteBuffer.allocateDirect(source.capacity());
+			this.offHeapTiles.put(source);
+			return;
+		}
+		
+		this.map = new Tile[other.getWidth()][];
+		
+		for(int i = 0; i < other.getWidth(); i++){
+			this.map[i] = other.map[i].clone();
+		}
+	}
+		
 	/**
 	 * Sets the specified tile as the starting location of a player. Will also
 	 * set the tile type of this location to floor. 
@@ -92,7 +175,22 @@ public class IceMap {
 	 * @param y - y-coordinate of tile
 	 */
 	public void setTileType(int x, int y, Tile tile){
-		this.map[x][y] = tile;
+		
+		if(this.map != null){
+			this.map[x][y] = tile;
+		}
+		else{
+			if(!this.isTile(x, y)){
+				throw new ArrayIndexOutOfBoundsException("Tile " + x + "," + y + " is outside the map");
+			}
+			this.offHeapTiles().put(y * this.width + x, (byte)tile.ordinal());
+		}
+		
+		this.modificationCount++;
+		
+		if(this.dirtyRows != null){
+			this.dirtyRows[y] = true;
+		}
 	}
 
 	/**
@@ -109,7 +207,44 @@ public class IceMap {
 	 * @return The type of the tile at the specified coordinates. Out of bounds locations are returned as a solid tile.
 	 */
 	public Tile getTileType(int x, int y){
-		return isTile(x,y) ? this.map[x][y] : Tile.SOLID;
+		return isTile(x,y) ? this.tileAt(x, y) : Tile.SOLID;
+	}
+	
+	/*
+	 * Reads a tile that is known to be within the map.
+	 */
+	private Tile tileAt(int x, int y){
+		return this.map != null ? this.map[x][y] : TILES[this.offHeapTiles().get(y * this.width + x)];
+	}
+	
+	private ByteBuffer offHeapTiles(){
+		if(this.closed){
+			throw new IllegalStateException("Map has been closed");
+		}
+		return this.offHeapTiles;
+	}
+	
+	/**
+	 * @return True if the tiles are stored off the heap, else false
+	 */
+	public boolean isOffHeap(){
+		return this.map == null;
+	}
+	
+	/**
+	 * Releases the memory of a map stored off the heap. Reading or changing its tiles afterwards throws an
+	 * IllegalStateException. Closing a map stored on the heap, or closing a map twice, has no effect.
+	 */
+	@Override
+	public void close(){
+		
+		if(this.map != null || this.closed){
+			return;
+		}
+		
+		this.closed = true;
+		release(this.offHeapTiles);
+		this.offHeapTiles = null;
 	}
 
 	/**
@@ -119,6 +254,48 @@ public class IceMap {
 		return this.mapName;
 	}
 	
+	/**
+	 * @return A number that changes every time a tile, the starting tile, or the ending tile of this map
+	 * is modified. Useful for detecting whether anything derived from the map is out of date.
+	 */
+	public int getModificationCount(){
+		return this.modificationCount;
+	}
+	
+	/**
+	 * Returns an immutable snapshot of this map's current state. Calling this again without modifying the map
+	 * returns the same snapshot, and a new snapshot shares every row that was not modified with the previous one.
+	 * @return A snapshot of this map that can be solved on other threads while this map is modified
+	 */
+	public IceMapSnapshot snapshot(){
+		
+		if(this.snapshot != null && this.snapshot.modificationCount == this.modificationCount && this.snapshot.getName() == this.mapName){
+			return this.snapshot;
+		}
+		
+		int width = this.getWidth();
+		int height = this.getHeight();
+		Tile[][] rows = new Tile[height][];
+		
+		for(int y = 0; y < height; y++){
+			if(this.snapshot != null && !this.dirtyRows[y]){
+				rows[y] = this.snapshot.rows[y];
+			}
+			else{
+				Tile[] row = new Tile[width];
+				for(int x = 0; x < width; x++){
+					row[x] = this.tileAt(x, y);
+				}
+				rows[y] = row;
+			}
+		}
+		
+		this.dirtyRows = new boolean[height];
+		this.snapshot = new IceMapSnapshot(rows, this.startX, this.startY, this.endX, this.endY, this.mapName, this.modificationCount);
+		
+		return this.snapshot;
+	}
+	
 	/**
 	 * @return The x-coordinate of the starting tile
 	 */
@@ -178,14 +355,14 @@ public class IceMap {
 	 * @return The width of the map (number of columns)
 	 */
 	public int getWidth(){
-		return this.map.length;
+		return this.width;
 	}
 	
 	/**
 	 * @return The height of the map (number of rows)
 	 */
 	public int getHeight(){
-		return this.map[0].length;
+		return this.height;
 	}
 	
 	/**
@@ -195,6 +372,17 @@ public class IceMap {
 	 * @return An IceMap representing the map described in the TMX file.
 	 */
 	public static IceMap parseTMXFile(File file){
+		return parseTMXFile(file, false);
+	}
+	
+	/**
+	 * Parses a Tiled TMX file (needs to be saved in Base64 zlib compressed format) and returns an IceMap
+	 * representing it.
+	 * @param file - The file to parse
+	 * @param offHeap - True to store the map's tiles off the heap
+	 * @return An IceMap representing the map described in the TMX file.
+	 */
+	public static IceMap parseTMXFile(File file, boolean offHeap){
 		
 		IceMap map = null;
 		
@@ -218,7 +406,7 @@ public class IceMap {
 				int mapWidth = numberFormat.parse(attributes.getNamedItem("width").getNodeValue()).intValue();
 				int mapHeight = numberFormat.parse(attributes.getNamedItem("height").getNodeValue()).intValue();
 
-				map = new IceMap(mapWidth, mapHeight);
+				map = new IceMap(mapWidth, mapHeight, offHeap);
 				map.setName(file.getName());
 
 			}
@@ -231,7 +419,7 @@ public class IceMap {
 
 				if(dataNode != null){
 
-					byte[] compressedData = DatatypeConverter.parseBase64Binary(dataNode.getTextContent().trim());
+					byte[] compressedData = Base64.getMimeDecoder().decode(dataNode.getTextContent().trim());
 
 					ByteArrayInputStream iStream = new ByteArrayInputStream(compressedData);
 					InflaterInputStream gStream = new InflaterInputStream(iStream);
@@ -290,4 +478,229 @@ public class IceMap {
 		return map;
 	}
 
+	/**
+	 * Writes this map to a compact binary file that can be read back with {@link #parseBinaryFile(File)}.
+	 * See {@link #writeBinary(OutputStream)} for the format.
+	 * @param file - The file to write
+	 * @throws IOException If the file cannot be written
+	 */
+	public void writeBinaryFile(File file) throws IOException {
+		
+		OutputStream out = new BufferedOutputStream(new FileOutputStream(file));
+		
+		try {
+			this.writeBinary(out);
+		} finally {
+			out.close();
+		}
+	}
+	
+	/**
+	 * Writes this map in a compact binary format that can be read back with {@link #readBinary(InputStream)}.
+	 * The data contains {@link #BINARY_FILE_MAGIC}, the width, height, starting tile coordinates and ending
+	 * tile coordinates as 32-bit integers, the name (or an empty string) in modified UTF-8, then one byte
+	 * per tile in row order holding the ordinal of its IceMap.Tile type.
+	 * @param stream - Where to write the map. It is flushed but not closed.
+	 * @throws IOException If the map cannot be written
+	 */
+	public void writeBinary(OutputStream stream) throws IOException {
+		
+		DataOutputStream out = new DataOutputStream(stream);
+		
+		out.writeInt(BINARY_FILE_MAGIC);
+		out.writeInt(this.getWidth());
+		out.writeInt(this.getHeight());
+		out.writeInt(this.startX);
+		out.writeInt(this.startY);
+		out.writeInt(this.endX);
+		out.writeInt(this.endY);
+		out.writeUTF(this.mapName != null ? this.mapName : "");
+		
+		if(this.isOffHeap()){
+			
+			// The tiles are already stored in the file's layout, so whole rows are copied at once
+			ByteBuffer tiles = this.offHeapTiles().duplicate();
+			byte[] row = new byte[this.width];
+			tiles.clear();
+			
+			for(int y = 0; y < this.height; y++){
+				tiles.get(row);
+				out.write(row);
+			}
+		}
+		else{
+			for(int y = 0; y < this.getHeight(); y++){
+				for(int x = 0; x < this.getWidth(); x++){
+					out.writeByte(this.map[x][y].ordinal());
+				}
+			}
+		}
+		
+		out.flush();
+	}
+	
+	/**
+	 * Parses a binary map file written by {@link #writeBinaryFile(File)}.
+	 * @param file - The file to parse
+	 * @return An IceMap representing the map described in the file, or null if the file could not be read.
+	 */
+	public static IceMap parseBinaryFile(File file){
+		return parseBinaryFile(file, false);
+	}
+	
+	/**
+	 * Parses a binary map file written by {@link #writeBinaryFile(File)}.
+	 * @param file - The file to parse
+	 * @param offHeap - True to store the map's tiles off the heap
+	 * @return An IceMap representing the map described in the file, or null if the file could not be read.
+	 */
+	public static IceMap parseBinaryFile(File file, boolean offHeap){
+		
+		IceMap map = null;
+		InputStream in = null;
+		
+		try {
+			
+			in = new BufferedInputStream(new FileInputStream(file));
+			map = readBinary(in, offHeap);
+			
+			if(map.getName() == null){
+				map.setName(file.getName());
+			}
+			
+		} catch (IOException e) {
+			e.printStackTrace();
+			
+		} finally {
+			if(in != null){
+				try {
+					in.close();
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+			}
+		}
+		
+		return map;
+	}
+	
+	/**
+	 * Reads a map written by {@link #writeBinary(OutputStream)}.
+	 * @param stream - The stream to read from. It is not closed.
+	 * @return The map. Its name is null if none was written.
+	 * @throws IOException If the stream cannot be read or does not contain a valid map
+	 */
+	public static IceMap readBinary(InputStream stream) throws IOException {
+		return readBinary(stream, false);
+	}
+	
+	/**
+	 * Reads a map written by {@link #writeBinary(OutputStream)}.
+	 * @param stream - The stream to read from. It is not closed.
+	 * @param offHeap - True to store the map's tiles off the heap. Rows are then copied straight into the
+	 * map's memory.
+	 * @return The map. Its name is null if none was written.
+	 * @throws IOException If the stream cannot be read or does not contain a valid map
+	 */
+	public static IceMap readBinary(InputStream stream, boolean offHeap) throws IOException {
+		
+		DataInputStream in = new DataInputStream(stream);
+		
+		if(in.readInt() != BINARY_FILE_MAGIC){
+			throw new IOException("Not a binary map");
+		}
+		
+		int width = in.readInt();
+		int height = in.readInt();
+		int startX = in.readInt();
+		int startY = in.readInt();
+		int endX = in.readInt();
+		int endY = in.readInt();
+		String name = in.readUTF();
+		
+		if(width <= 0 || height <= 0){
+			throw new IOException("Invalid map dimensions " + width + "x" + height);
+		}
+		
+		IceMap map = new IceMap(width, height, offHeap);
+		
+		if(offHeap){
+			
+			ByteBuffer tiles = map.offHeapTiles();
+			byte[] row = new byte[width];
+			
+			for(int y = 0; y < height; y++){
+				in.readFully(row);
+				
+				for(int x = 0; x < width; x++){
+					if((row[x] & 0xFF) >= TILES.length){
+						map.close();
+						throw new IOException("Invalid tile type " + (row[x] & 0xFF) + " at " + x + "," + y);
+					}
+				}
+				
+				tiles.put(row);
+			}
+			
+			map.modificationCount++;
+		}
+		else{
+			for(int y = 0; y < height; y++){
+				for(int x = 0; x < width; x++){
+					int tile = in.readUnsignedByte();
+					
+					if(tile >= TILES.length){
+						throw new IOException("Invalid tile type " + tile + " at " + x + "," + y);
+					}
+					
+					map.setTileType(x, y, TILES[tile]);
+				}
+			}
+		}
+		
+		if(!map.isTile(startX, startY) || !map.isTile(endX, endY)){
+			map.close();
+			throw new IOException("Starting or ending tile is outside the map");
+		}
+		
+		map.startX = startX;
+		map.startY = startY;
+		map.endX = endX;
+		map.endY = endY;
+		map.setName(name.isEmpty() ? null : name);
+		
+		return map;
+	}
+
+	/*
+	 * Frees the memory of a direct buffer, or unmaps a memory-mapped one, straight away instead of waiting for
+	 * the garbage collector. There is no public API for this before Java 9's Unsafe.invokeCleaner, so both it
+	 * and the older buffer cleaner are looked up by reflection. If neither is available the memory is freed
+	 * once the buffer is collected. The buffer must not be used afterwards.
+	 */
+	static void release(ByteBuffer buffer){
+		
+		try {
+			Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+			Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+			Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+			theUnsafe.setAccessible(true);
+			invokeCleaner.invoke(theUnsafe.get(null), buffer);
+			return;
+		} catch (Exception e) {
+			// Not Java 9 or later
+		}
+		
+		try {
+			Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+			cleanerMethod.setAccessible(true);
+			Object cleaner = cleanerMethod.invoke(buffer);
+			if(cleaner != null){
+				cleaner.getClass().getMethod("clean").invoke(cleaner);
+			}
+		} catch (Exception e) {
+			// Left to the garbage collector
+		}
+	}
+
 }
@@ -0,0 +1,123 @@
+package com.turtlesort.icegen;
+
+import com.turtlesort.icegen.IceMap.Tile;
+
+/**
+ * An immutable copy of an {@link IceMap} at one point in time, created with {@link IceMap#snapshot()}.
+ * Any number of threads can read a snapshot, or solve it, while the original map goes on being edited.
+ * 
+ * Snapshots store their tiles row by row. Rows that were not edited between two snapshots of the same map
+ * are shared by both, so taking a snapshot after a few edits costs little more than copying the edited rows.
+ */
+public final class IceMapSnapshot implements IceMapView {
+
+	final Tile[][] rows;
+	final int modificationCount;
+	
+	private final int width;
+	private final int height;
+	private final int startX;
+	private final int startY;
+	private final int endX;
+	private final int endY;
+	private final String mapName;
+	
+	/**
+	 * @param rows - The tiles of each row. Neither the array nor the rows may be modified afterwards.
+	 */
+	IceMapSnapshot(Tile[][] rows, int startX, int startY, int endX, int endY, String mapName, int modificationCount){
+		this.rows = rows;
+		this.width = rows[0].length;
+		this.height = rows.length;
+		this.startX = startX;
+		this.startY = startY;
+		this.endX = endX;
+		this.endY = endY;
+		this.mapName = mapName;
+		this.modificationCount = modificationCount;
+	}
+	
+	@Override
+	public Tile getTileType(int x, int y) {
+		return isTile(x, y) ? this.rows[y][x] : Tile.SOLID;
+	}
+
+	@Override
+	public String getName() {
+		return this.mapName;
+	}
+	
+	/**
+	 * @return The modification count of the original map when this snapshot was taken
+	 * @see IceMap#getModificationCount()
+	 */
+	public int getModificationCount(){
+		return this.modificationCount;
+	}
+
+	@Override
+	public int getStartX() {
+		return this.startX;
+	}
+
+	@Override
+	public int getStartY() {
+		return this.startY;
+	}
+
+	@Override
+	public int getEndX() {
+		return this.endX;
+	}
+
+	@Override
+	public int getEndY() {
+		return this.endY;
+	}
+
+	@Override
+	public boolean isStart(int x, int y) {
+		return x == this.startX && y == this.startY;
+	}
+
+	@Override
+	public boolean isEnd(int x, int y) {
+		return x == this.endX && y == this.endY;
+	}
+
+	@Override
+	public boolean isTile(int x, int y) {
+		return x >= 0 && x < this.width && y >= 0 && y < this.height;
+	}
+
+	@Override
+	public int getWidth() {
+		return this.width;
+	}
+
+	@Override
+	public int getHeight() {
+		return this.height;
+	}
+	
+	/**
+	 * @return A new, modifiable map with the same tiles, starting tile, ending tile, and name as this snapshot
+	 */
+	public IceMap toIceMap(){
+		
+		IceMap map = new IceMap(this.width, this.height);
+		
+		for(int y = 0; y < this.height; y++){
+			for(int x = 0; x < this.width; x++){
+				map.setTileType(x, y, this.rows[y][x]);
+			}
+		}
+		
+		map.setStartTile(this.startX, this.startY);
+		map.setEndTile(this.endX, this.endY);
+		map.setName(this.mapName);
+		
+		return map;
+	}
+	
+}
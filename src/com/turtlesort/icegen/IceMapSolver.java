@@ -1,9 +1,7 @@
 package com.turtlesort.icegen;
 
-import java.util.Collections;
-import java.util.Comparator;
+import java.util.Arrays;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.LinkedList;
 
 import com.turtlesort.icegen.IceMap.Tile;
@@ -21,18 +19,65 @@ public class IceMapSolver {
 		UP, DOWN, LEFT, RIGHT
 	}
 	
-	private IceMap map;
+	// How many nodes are expanded between checks of the cancellation token (must be a power of two)
+	private static final int CANCELLATION_CHECK_INTERVAL = 256;
+	
+	private IceMapView map;
 	private HashSet<String> visitedTiles;
+	private boolean pruneOpposites;
+	
+	private CancellationToken token;
+	private int expandedNodes;
+	private boolean truncated;
+	
+	private SolutionListener listener;
+	
+	private NavigationArena arena;			// Reused by every solve, created by the first
+	
+	private SlideTable slideTable;
+	
+	private boolean collectStatistics;
+	private SolverStatistics statistics;				// Null unless statistics are being collected
 	
 	/**
-	 * Constructor.
+	 * Constructor. The solver reads the map every time it solves, so solving an {@link IceMap} reflects
+	 * edits made since the solver was created. Pass an {@link IceMapSnapshot} to solve on another thread
+	 * while the map is being edited.
 	 * @param map The ice map to solve.
 	 */
-	public IceMapSolver(IceMap map){
+	public IceMapSolver(IceMapView map){
 		this.map = map;
 		
 	}
 	
+	/**
+	 * Sets a listener that will be told about each solution as soon as the search discovers it.
+	 * @param listener - The listener to notify, or null to stop notifying
+	 */
+	public void setSolutionListener(SolutionListener listener){
+		this.listener = listener;
+	}
+	
+	/**
+	 * Makes the solver look up slides in a table instead of computing every slide as it is encountered.
+	 * Reusing the same table across solves of a map that is edited between solves only recomputes the
+	 * slides affected by the edits, as long as the table is told about each edited tile.
+	 * @param slideTable - A table describing the map being solved, or null to compute slides directly
+	 */
+	public void setSlideTable(SlideTable slideTable){
+		this.slideTable = slideTable;
+	}
+	
+	/**
+	 * Turns collection of {@link SolverStatistics} on or off. When on, the results returned by
+	 * {@link #solve(int, boolean, CancellationToken)} include counters and timings for the solve.
+	 * Statistics are off by default and cost nothing beyond a null check while off.
+	 * @param collectStatistics - True to collect statistics
+	 */
+	public void setCollectStatistics(boolean collectStatistics){
+		this.collectStatistics = collectStatistics;
+	}
+	
 	/**
 	 * Finds a set of solutions that will solve this IceMap. Each solution is a
 	 * sequence of moves (up, down, left, right) that will lead from the starting
@@ -56,90 +101,206 @@ public class IceMapSolver {
 	 * solutions whose ending sequence is identical to the ending sequence (last half) of the optimal solution. 
 	 * If true, this will also remove solutions that have any consecutive left-right, right-left,
 	 * up-down, or down-up move pairs. (Any of those pairs of moves can be reduced to one move.)
-	 * This is false by default.
+	 * Such move pairs are never expanded during the search, so pruning makes solving cheaper rather
+	 * than more expensive. This is false by default.
 	 * @return A linked list of solutions.  Each solution is an array of moves represented
 	 * as directions to take. The list is sorted in ascending order according to the number of moves per solution. The
 	 * first solution (at index 0) always has the least moves. If there are no solutions then
 	 * the linked list will be empty.
 	 */
 	public LinkedList<NavigationNode[]> solve(int moveLimit, boolean pruneSolutionSet){
+		return this.solve(moveLimit, pruneSolutionSet, null).getSolutions();
+	}
+	
+	/**
+	 * Finds a set of solutions that will solve this IceMap, stopping early if the given token
+	 * expires. The token is only checked periodically so the search may run slightly past its deadline.
+	 * @param moveLimit The maximum number of moves a solution should have.
+	 * @param pruneSolutionSet See {@link #solve(int, boolean)}
+	 * @param token A token that can stop the search, or null to always search to completion
+	 * @return A SolverResult containing the solutions found. If the search was stopped early, the result
+	 * is marked as truncated and holds whatever solutions were discovered before stopping.
+	 */
+	public SolverResult solve(int moveLimit, boolean pruneSolutionSet, CancellationToken token){
 		
 		this.visitedTiles = new HashSet<String>();
+		this.pruneOpposites = pruneSolutionSet;
+		this.token = token;
+		this.expandedNodes = 0;
+		this.truncated = false;
+		this.statistics = this.collectStatistics ? new SolverStatistics() : null;
 		
-		NavigationTree tree = new NavigationTree(this.map.getStartX(), this.map.getStartY());
+		long phaseStart = this.statistics != null ? System.nanoTime() : 0;
 		
-		this.findSolution(tree.getRoot(), 0,  moveLimit);
+		if(this.arena == null){
+			this.arena = new NavigationArena();
+		}
 		
-		LinkedList<NavigationNode[]> solutions = tree.getSolutions();
-		Collections.sort(solutions, new Comparator<NavigationNode[]>(){
-			@Override
-			public int compare(NavigationNode[] arg0, NavigationNode[] arg1) {
-				return arg0.length - arg1.length;
-			}
-		});
+		NavigationTree tree = new NavigationTree(this.arena, this.map.getStartX(), this.map.getStartY());
+		
+		this.findSolution(tree.getRootIndex(), 0,  moveLimit);
+		
+		if(this.statistics != null){
+			long now = System.nanoTime();
+			this.statistics.nodesAllocated++; // The root
+			this.statistics.searchTime = now - phaseStart;
+			phaseStart = now;
+		}
+		
+		SolutionSet solutions = tree.getSolutionSet();
+		
+		if(this.statistics != null){
+			long now = System.nanoTime();
+			this.statistics.solutionsFound = solutions.size();
+			this.statistics.extractionTime = now - phaseStart;
+			phaseStart = now;
+		}
+		
+		solutions = solutions.sortByLength();
+		
+		if(this.statistics != null){
+			long now = System.nanoTime();
+			this.statistics.sortTime = now - phaseStart;
+			phaseStart = now;
+		}
 		
 		if(pruneSolutionSet && solutions.size() > 1){
+			solutions = this.removeMatchingEndings(solutions);
+		}
+		
+		SolverStatistics statistics = this.statistics;
+		if(statistics != null){
+			statistics.solutionsPruned = statistics.solutionsFound - solutions.size();
+			statistics.pruneTime = System.nanoTime() - phaseStart;
+		}
+		
+		this.token = null;
+		this.statistics = null;
+		
+		return new SolverResult(solutions, this.truncated, statistics);
+	}
+	
+	/**
+	 * Finds the number of moves in an optimal solution with a breadth first search over the tiles a player
+	 * can stop on. Unlike {@link #solve(int)} this does not need a move limit, only visits each tile once
+	 * and does not build a NavigationTree, which makes it practical on very large maps.
+	 * @return The least number of moves needed to get from the starting tile to the end tile, or -1 if 
+	 * the end tile cannot be reached.
+	 */
+	public int findOptimalMoveCount(){
+		
+		int width = this.map.getWidth();
+		int[] moves = new int[width * this.map.getHeight()];
+		int[] queue = new int[moves.length];
+		int head = 0;
+		int tail = 0;
+		
+		Arrays.fill(moves, -1);
+		
+		int start = this.map.getStartY() * width + this.map.getStartX();
+		moves[start] = 0;
+		queue[tail++] = start;
+		
+		while(head < tail){
 			
-			NavigationNode[] optimal = solutions.get(0);
+			int current = queue[head++];
+			int x = current % width;
+			int y = current / width;
 			
-			// Solutions that appear later in the linked list are guaranteed 
-			// to have equal or more moves than the optimal solution
+			if(this.map.isEnd(x, y)) continue;
 			
-			// Remove solutions whose ending sequence is identical to the optimal solution's
-			// ending sequence.
-			for(int i = solutions.size() - 1; i > 0; i--){
+			for(Direction d : Direction.values()){
 				
-				boolean match = true;
+				int destination = this.slideTable != null ? this.slideTable.getDestination(x, y, d) : SlideTable.slide(this.map, x, y, d);
 				
-				NavigationNode[] target = solutions.get(i);
-				for(int j = 1; j <= optimal.length/2; j++){
-					if(!target[target.length - j].equals(optimal[optimal.length - j])){
-						match = false;
-						break;
-					}
-				}
-				
-				if(match){
-					solutions.remove(i);
-				}
-			}/**/
-
-			
-			// Remove solutions that have any left-right, right-left, up-down, or down-up move pairs
-			// in their sequence.
-			for(int i = solutions.size() - 1; i >= 0; i--){
-				NavigationNode[] target = solutions.get(i);
-				
-				for(int j = 0; j < target.length - 1; j++){
-					if(this.isOpposite(target[j].getDirection(), target[j+1].getDirection())){
-						solutions.remove(i);
-						break;
+				if(moves[destination] == -1){
+					moves[destination] = moves[current] + 1;
+					
+					if(this.map.isEnd(destination % width, destination / width)){
+						return moves[destination];
 					}
+					
+					queue[tail++] = destination;
 				}
 			}
 		}
 		
-		return solutions;
+		return -1;
+	}
+	
+	/*
+	 * Removes solutions whose ending sequence is identical to the optimal solution's
+	 * ending sequence. Solutions that appear later in the set are guaranteed 
+	 * to have equal or more moves than the optimal solution, so the optimal solution
+	 * is always the first one. Ending sequences are compared by hash first and only
+	 * compared move by move when the hashes match.
+	 */
+	private SolutionSet removeMatchingEndings(SolutionSet solutions){
+		
+		int endingLength = solutions.getLength(0)/2;
+		int optimalHash = this.hashEnding(solutions, 0, endingLength);
+		
+		SolutionSet.Builder result = new SolutionSet.Builder();
+		result.add(solutions, 0);
+		
+		for(int i = 1; i < solutions.size(); i++){
+			if(this.hashEnding(solutions, i, endingLength) != optimalHash 
+					|| !this.isMatchingEnding(solutions, i, 0, endingLength)){
+				result.add(solutions, i);
+			}
+		}
+		
+		return result.build();
+	}
+	
+	/*
+	 * Combines the hash codes the last moves of a solution would have as NavigationNodes.
+	 */
+	private int hashEnding(SolutionSet solutions, int solution, int length){
+		int hash = 1;
+		int solutionLength = solutions.getLength(solution);
+		for(int j = solutionLength - length; j < solutionLength; j++){
+			int nodeHash = 31 * solutions.getX(solution, j) + solutions.getY(solution, j);
+			hash = 31 * hash + (31 * nodeHash + solutions.getDirection(solution, j).ordinal() + 1);
+		}
+		return hash;
+	}
+	
+	private boolean isMatchingEnding(SolutionSet solutions, int target, int optimal, int length){
+		int targetLength = solutions.getLength(target);
+		int optimalLength = solutions.getLength(optimal);
+		for(int j = 1; j <= length; j++){
+			if(solutions.getX(target, targetLength - j) != solutions.getX(optimal, optimalLength - j)
+					|| solutions.getY(target, targetLength - j) != solutions.getY(optimal, optimalLength - j)
+					|| solutions.getDirection(target, targetLength - j) != solutions.getDirection(optimal, optimalLength - j)){
+				return false;
+			}
+		}
+		return true;
 	}
 	
 	/**
 	 * Depth first search.
 	 */
-	private void findSolution(NavigationNode node, int depth, int limit){
+	private void findSolution(int node, int depth, int limit){
 		
-		if(++depth > limit) return;
+		if(++depth > limit || this.isStopping()) return;
 		
-		for(NavigationNode child : this.findChildren(node.getDestinationX(), node.getDestinationY())){
-			node.addChild(child);
+		if(this.statistics != null){
+			this.statistics.nodesExpanded++;
+			this.statistics.maxDepth = Math.max(this.statistics.maxDepth, depth - 1);
 		}
 		
-		String nodeString = node.getDestinationX() + "," + node.getDestinationY();
-		this.visitedTiles.add(nodeString);
+		int x = this.arena.getX(node);
+		int y = this.arena.getY(node);
+		
+		this.findChildren(node, x, y, this.arena.getDirection(node));
 		
-		Iterator<NavigationNode> i = node.getChildren();
+		String nodeString = x + "," + y;
+		this.visitedTiles.add(nodeString);
 		
-		while(i.hasNext()){
-			this.findSolution(i.next(), depth, limit);
+		for(int child = this.arena.getFirstChild(node); child != NavigationArena.NONE; child = this.arena.getNextSibling(child)){
+			this.findSolution(child, depth, limit);
 		}
 		
 		this.visitedTiles.remove(nodeString);
@@ -147,46 +308,54 @@ public class IceMapSolver {
 	
 	/**
 	 * Given a starting position, checks whether it is possible to move either up, down, left, or right
-	 * to a new tile.
+	 * to a new tile, and adds a child to the parent node for each possible move.
+	 * @param parent - Index of the parent node in the arena
 	 * @param x - The x-coordinate of the tile serving as the parent node
 	 * @param y - The y-coordinate of the tile serving as the parent node
+	 * @param previous - The direction of the move that led to the parent node (null for the root)
 	 */
-	private LinkedList<NavigationNode> findChildren(int x, int y){
+	private void findChildren(int parent, int x, int y, Direction previous){
 		
-		NavigationNode[] possibleNodes = new NavigationNode[Direction.values().length];
-		
-		int i = 0;
 		for(Direction d : Direction.values()){
-			possibleNodes[i++] = findChild(x, y, d);
-		}
-		
-		LinkedList<NavigationNode> result = new LinkedList<NavigationNode>();
-		for(int j = 0; j < possibleNodes.length; j++){
-			if(possibleNodes[j] != null){
-				result.add(possibleNodes[j]);
+			if(this.pruneOpposites && previous != null && this.isOpposite(previous, d)){
+				continue;
+			}
+			
+			int child = this.findChild(parent, x, y, d);
+			
+			if(this.listener != null && child != NavigationArena.NONE && this.arena.isEnd(child)){
+				this.listener.solutionFound(this.arena.getPath(child));
 			}
 		}
-		
-		return result;
-		
 	}
 	
 	/**
 	 * Given a position on the map, checks whether it is possible to move in Direction <code>d</code> to
 	 * a new tile. If the specified position is the the end tile or if a possible move results in
-	 * a tile that has been traveled to before, null is returned.
+	 * a tile that has been traveled to before, no child is added and NavigationArena.NONE is returned.
+	 * @param parent - Index of the parent node in the arena
 	 * @param x - The x-coordinate of the tile serving as the parent node
 	 * @param y - The y-coordinate of the tile serving as the parent node
 	 * @param d - The direction to move in
+	 * @return Index of the new child node
 	 */
-	private NavigationNode findChild(int x, int y, Direction d){
+	private int findChild(int parent, int x, int y, Direction d){
 		
-		if(this.map.isEnd(x, y)) return null;
+		if(this.map.isEnd(x, y)) return NavigationArena.NONE;
+		
+		if(this.statistics != null){
+			this.statistics.slidesComputed++;
+		}
 		
 		int newX = x;
 		int newY = y;
 		
-		if(d == Direction.UP){
+		if(this.slideTable != null){
+			int destination = this.slideTable.getDestination(x, y, d);
+			newX = destination % this.map.getWidth();
+			newY = destination / this.map.getWidth();
+		}
+		else if(d == Direction.UP){
 			
 			IceMap.Tile tile = this.map.getTileType(newX, newY - 1);
 			
@@ -197,7 +366,7 @@ public class IceMapSolver {
 			}
 		}
 		
-		if(d == Direction.DOWN){
+		else if(d == Direction.DOWN){
 			Tile tile = this.map.getTileType(newX, newY + 1);
 			
 			while(tile != IceMap.Tile.SOLID){ 
@@ -207,7 +376,7 @@ public class IceMapSolver {
 			}
 		}
 		
-		if(d == Direction.LEFT){
+		else if(d == Direction.LEFT){
 			Tile tile = this.map.getTileType(newX - 1, newY);
 			
 			while(tile != IceMap.Tile.SOLID){
@@ -217,7 +386,7 @@ public class IceMapSolver {
 			}
 		}
 
-		if(d == Direction.RIGHT){
+		else if(d == Direction.RIGHT){
 			Tile tile = this.map.getTileType(newX + 1, newY);
 			
 			while(tile != IceMap.Tile.SOLID){
@@ -229,20 +398,30 @@ public class IceMapSolver {
 
 		if((newX != x || newY != y) && !this.visitedTiles.contains(newX + "," + newY)){
 		
-			NavigationNode node = new NavigationNode();
-			node.setDestinationCoordinates(newX, newY);
-			node.setDirection(d);
-			
-			
-			if(this.map.isEnd(newX, newY)){
-				node.markAsEnd(true);
+			if(this.statistics != null){
+				this.statistics.nodesAllocated++;
 			}
 			
-			return node;
+			return this.arena.addChild(parent, newX, newY, d, this.map.isEnd(newX, newY));
 		}
 		
-		return null;
+		return NavigationArena.NONE;
+		
+	}
+	
+	/*
+	 * Checks the cancellation token every few expanded nodes. Once the token has expired, the
+	 * search is marked as truncated and every remaining branch returns immediately.
+	 */
+	private boolean isStopping(){
+		
+		if(this.truncated) return true;
+		
+		if(this.token != null && (++this.expandedNodes & (CANCELLATION_CHECK_INTERVAL - 1)) == 0 && this.token.isExpired()){
+			this.truncated = true;
+		}
 		
+		return this.truncated;
 	}
 	
 	private boolean isOpposite(Direction a, Direction b){
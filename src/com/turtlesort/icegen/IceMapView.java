@@ -0,0 +1,66 @@
+package com.turtlesort.icegen;
+
+/**
+ * Read access to a map: its tiles, starting tile, ending tile, and name. This is everything a solver needs,
+ * so solvers accept either a live {@link IceMap} or an immutable {@link IceMapSnapshot}.
+ */
+public interface IceMapView {
+
+	/**
+	 * @param x - x-coordinate of tile
+	 * @param y - y-coordinate of tile
+	 * @return The type of the tile at the specified coordinates. Out of bounds locations are returned as a solid tile.
+	 */
+	public IceMap.Tile getTileType(int x, int y);
+	
+	/**
+	 * @return The name of the map
+	 */
+	public String getName();
+	
+	/**
+	 * @return The x-coordinate of the starting tile
+	 */
+	public int getStartX();
+	
+	/**
+	 * @return The y-coordinate of the starting tile
+	 */
+	public int getStartY();
+	
+	/**
+	 * @return The x-coordinate of the tile the player must make their way to
+	 */
+	public int getEndX();
+	
+	/**
+	 * @return The y-coordinate of the tile the player must make their way to
+	 */
+	public int getEndY();
+	
+	/**
+	 * @return True if the specified tile is the starting tile, else false
+	 */
+	public boolean isStart(int x, int y);
+	
+	/**
+	 * @return True if the specified tile is the ending tile, else false
+	 */
+	public boolean isEnd(int x, int y);
+	
+	/**
+	 * @return True if the specified tile is within the bounds of the map. False if the tile is out of bounds.
+	 */
+	public boolean isTile(int x, int y);
+	
+	/**
+	 * @return The width of the map (number of columns)
+	 */
+	public int getWidth();
+	
+	/**
+	 * @return The height of the map (number of rows)
+	 */
+	public int getHeight();
+	
+}
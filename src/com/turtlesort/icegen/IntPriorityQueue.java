@@ -0,0 +1,109 @@
+package com.turtlesort.icegen;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * A binary min-heap of int values ordered by long priorities, stored in two primitive arrays so that
+ * adding and removing values does not allocate (apart from growing the arrays). Values with equal
+ * priorities are removed in no particular order.
+ */
+public class IntPriorityQueue {
+
+	private long[] priorities;
+	private int[] values;
+	private int size;
+	
+	/**
+	 * Constructor.
+	 * @param capacity - The number of values to make room for up front. The queue grows as needed.
+	 */
+	public IntPriorityQueue(int capacity){
+		capacity = Math.max(capacity, 1);
+		this.priorities = new long[capacity];
+		this.values = new int[capacity];
+	}
+	
+	public int size(){
+		return this.size;
+	}
+	
+	public boolean isEmpty(){
+		return this.size == 0;
+	}
+	
+	/**
+	 * Removes every value.
+	 */
+	public void clear(){
+		this.size = 0;
+	}
+	
+	/**
+	 * Adds a value.
+	 * @param value - The value to add
+	 * @param priority - Values with lower priorities are removed first
+	 */
+	public void add(int value, long priority){
+		
+		if(this.size == this.values.length){
+			this.priorities = Arrays.copyOf(this.priorities, this.size * 2);
+			this.values = Arrays.copyOf(this.values, this.size * 2);
+		}
+		
+		// Sift up
+		int i = this.size++;
+		while(i > 0){
+			int parent = (i - 1) >>> 1;
+			if(this.priorities[parent] <= priority) break;
+			this.priorities[i] = this.priorities[parent];
+			this.values[i] = this.values[parent];
+			i = parent;
+		}
+		
+		this.priorities[i] = priority;
+		this.values[i] = value;
+	}
+	
+	/**
+	 * @return The priority of the value {@link #poll()} would remove next
+	 */
+	public long peekPriority(){
+		if(this.size == 0) throw new NoSuchElementException();
+		return this.priorities[0];
+	}
+	
+	/**
+	 * Removes the value with the lowest priority.
+	 * @return The removed value
+	 */
+	public int poll(){
+		
+		if(this.size == 0) throw new NoSuchElementException();
+		
+		int result = this.values[0];
+		
+		long priority = this.priorities[--this.size];
+		int value = this.values[this.size];
+		
+		// Sift the last value down from the root
+		int i = 0;
+		int half = this.size >>> 1;
+		while(i < half){
+			int child = 2 * i + 1;
+			if(child + 1 < this.size && this.priorities[child + 1] < this.priorities[child]){
+				child++;
+			}
+			if(priority <= this.priorities[child]) break;
+			this.priorities[i] = this.priorities[child];
+			this.values[i] = this.values[child];
+			i = child;
+		}
+		
+		this.priorities[i] = priority;
+		this.values[i] = value;
+		
+		return result;
+	}
+	
+}
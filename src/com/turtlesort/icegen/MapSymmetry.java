@@ -0,0 +1,191 @@
+package com.turtlesort.icegen;
+
+/**
+ * Rotations and mirror images of maps. A map has eight such transforms (the dihedral group of the
+ * rectangle, where rotations by a quarter turn swap the width and height), numbered 0 to 7. Transform 0
+ * leaves the map unchanged. Bit 0 mirrors the x-axis, bit 1 mirrors the y-axis and bit 2 swaps the axes.
+ * A transform moves the starting and ending tiles with the rest of the map, so each transformed map has
+ * the same solutions as the original with the moves' directions transformed the same way.
+ *
+ * The canonical form of a map is the transform with the smallest 128-bit hash. Two maps that are rotations
+ * or mirror images of each other have the same canonical hash, which is what {@link #canonicalHash(IceMapView)}
+ * computes without building the transformed maps.
+ */
+public final class MapSymmetry {
+
+	/**
+	 * Number of distinct transforms.
+	 */
+	public static final int TRANSFORMS = 8;
+
+	private static final long SEED_HIGH = 0x9E3779B97F4A7C15L;
+	private static final long SEED_LOW = 0xC2B2AE3D27D4EB4FL;
+
+	private MapSymmetry(){
+	}
+
+	/**
+	 * @param map - The map to transform
+	 * @param transform - A transform from 0 to 7
+	 * @return A new map holding the transformed tiles, starting tile and ending tile. The name is copied.
+	 */
+	public static IceMap transform(IceMapView map, int transform){
+
+		int width = transformedWidth(map, transform);
+		int height = transformedHeight(map, transform);
+		IceMap result = new IceMap(width, height);
+
+		result.setStartTile(transformX(map, transform, map.getStartX(), map.getStartY()), transformY(map, transform, map.getStartX(), map.getStartY()));
+		result.setEndTile(transformX(map, transform, map.getEndX(), map.getEndY()), transformY(map, transform, map.getEndX(), map.getEndY()));
+
+		for(int v = 0; v < height; v++){
+			for(int u = 0; u < width; u++){
+				result.setTileType(u, v, map.getTileType(originalX(map, transform, u, v), originalY(map, transform, u, v)));
+			}
+		}
+
+		result.setName(map.getName());
+
+		return result;
+	}
+
+	/**
+	 * @param map - A map
+	 * @return The transform of the map with the smallest hash. Maps that are rotations or mirror images of
+	 * each other have the same canonical form.
+	 */
+	public static IceMap canonicalForm(IceMapView map){
+		return transform(map, canonicalTransform(map));
+	}
+
+	/**
+	 * @param map - A map
+	 * @return The hash of the map's canonical form
+	 */
+	public static CanonicalHash canonicalHash(IceMapView map){
+
+		CanonicalHash best = null;
+
+		for(int t = 0; t < TRANSFORMS; t++){
+			CanonicalHash hash = hash(map, t);
+			if(best == null || hash.compareTo(best) < 0){
+				best = hash;
+			}
+		}
+
+		return best;
+	}
+
+	/**
+	 * @param map - A map
+	 * @return The number of the transform giving the map's canonical form
+	 */
+	public static int canonicalTransform(IceMapView map){
+
+		CanonicalHash best = null;
+		int bestTransform = 0;
+
+		for(int t = 0; t < TRANSFORMS; t++){
+			CanonicalHash hash = hash(map, t);
+			if(best == null || hash.compareTo(best) < 0){
+				best = hash;
+				bestTransform = t;
+			}
+		}
+
+		return bestTransform;
+	}
+
+	/**
+	 * Hashes a transformed map without building it. Tiles are read row by row in the transformed order and
+	 * packed two bits each into 64-bit words, which are mixed into two independent 64-bit states.
+	 * @param map - A map
+	 * @param transform - A transform from 0 to 7
+	 * @return The hash of the transformed map, covering its dimensions, tiles, starting tile and ending tile
+	 */
+	public static CanonicalHash hash(IceMapView map, int transform){
+
+		int width = transformedWidth(map, transform);
+		int height = transformedHeight(map, transform);
+
+		long high = SEED_HIGH ^ width;
+		long low = SEED_LOW ^ ((long)height << 32);
+		long word = 0;
+		int packed = 0;
+
+		for(int v = 0; v < height; v++){
+			for(int u = 0; u < width; u++){
+
+				word = (word << 2) | map.getTileType(originalX(map, transform, u, v), originalY(map, transform, u, v)).ordinal();
+
+				if(++packed == 32){
+					high = Long.rotateLeft(high ^ mix(word ^ SEED_HIGH), 27) * 0x9FB21C651E98DF25L;
+					low = Long.rotateLeft(low ^ mix(word ^ SEED_LOW), 31) * 0xD6E8FEB86659FD93L;
+					word = 0;
+					packed = 0;
+				}
+			}
+		}
+
+		long start = transformY(map, transform, map.getStartX(), map.getStartY()) * (long)width + transformX(map, transform, map.getStartX(), map.getStartY());
+		long end = transformY(map, transform, map.getEndX(), map.getEndY()) * (long)width + transformX(map, transform, map.getEndX(), map.getEndY());
+		long positions = (start << 32) | end;
+
+		high = mix(high ^ mix(word ^ SEED_HIGH) ^ Long.rotateLeft(positions, 17));
+		low = mix(low ^ mix(word ^ SEED_LOW) ^ positions);
+
+		return new CanonicalHash(high, low);
+	}
+
+	/**
+	 * @return The width of the map after the transform
+	 */
+	public static int transformedWidth(IceMapView map, int transform){
+		return (transform & 4) != 0 ? map.getHeight() : map.getWidth();
+	}
+
+	/**
+	 * @return The height of the map after the transform
+	 */
+	public static int transformedHeight(IceMapView map, int transform){
+		return (transform & 4) != 0 ? map.getWidth() : map.getHeight();
+	}
+
+	/**
+	 * @return The x-coordinate a tile of the original map moves to
+	 */
+	public static int transformX(IceMapView map, int transform, int x, int y){
+		int a = (transform & 1) != 0 ? map.getWidth() - 1 - x : x;
+		int b = (transform & 2) != 0 ? map.getHeight() - 1 - y : y;
+		return (transform & 4) != 0 ? b : a;
+	}
+
+	/**
+	 * @return The y-coordinate a tile of the original map moves to
+	 */
+	public static int transformY(IceMapView map, int transform, int x, int y){
+		int a = (transform & 1) != 0 ? map.getWidth() - 1 - x : x;
+		int b = (transform & 2) != 0 ? map.getHeight() - 1 - y : y;
+		return (transform & 4) != 0 ? a : b;
+	}
+
+	private static int originalX(IceMapView map, int transform, int u, int v){
+		int a = (transform & 4) != 0 ? v : u;
+		return (transform & 1) != 0 ? map.getWidth() - 1 - a : a;
+	}
+
+	private static int originalY(IceMapView map, int transform, int u, int v){
+		int b = (transform & 4) != 0 ? u : v;
+		return (transform & 2) != 0 ? map.getHeight() - 1 - b : b;
+	}
+
+	/*
+	 * SplitMix64 finalizer.
+	 */
+	private static long mix(long z){
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+}
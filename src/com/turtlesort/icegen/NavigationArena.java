@@ -0,0 +1,257 @@
+package com.turtlesort.icegen;
+
+import java.util.Arrays;
+import java.util.LinkedList;
+
+import com.turtlesort.icegen.IceMapSolver.Direction;
+
+/**
+ * Stores the nodes of a {@link NavigationTree} in parallel primitive arrays instead of as NavigationNode
+ * objects. A node is identified by its index in the arrays. Each node records its destination coordinates,
+ * its direction, whether it reaches the ending tile, its parent, its first child and its next sibling, so
+ * children keep the order they were added in.
+ * 
+ * An arena is meant to be reused: {@link #reset()} forgets every node in constant time while keeping the
+ * arrays, so a solver that is run many times stops allocating once its arena is big enough.
+ * Solutions can be collected into a {@link SolutionSet} without creating any NavigationNode objects.
+ */
+public class NavigationArena {
+
+	/**
+	 * Index used for a missing parent, child, or sibling.
+	 */
+	public static final int NONE = -1;
+	
+	private static final int INITIAL_CAPACITY = 64;
+	private static final Direction[] DIRECTIONS = Direction.values();
+	
+	private int[] x;
+	private int[] y;
+	private byte[] direction;				// Ordinal of the direction, or -1 for a root
+	private boolean[] end;
+	private int[] parent;
+	private int[] firstChild;
+	private int[] lastChild;
+	private int[] nextSibling;
+	private int size;
+	
+	/**
+	 * Constructor.
+	 */
+	public NavigationArena(){
+		this(INITIAL_CAPACITY);
+	}
+	
+	/**
+	 * @param capacity - The number of nodes to make room for up front. The arena grows as needed.
+	 */
+	public NavigationArena(int capacity){
+		capacity = Math.max(capacity, 1);
+		this.x = new int[capacity];
+		this.y = new int[capacity];
+		this.direction = new byte[capacity];
+		this.end = new boolean[capacity];
+		this.parent = new int[capacity];
+		this.firstChild = new int[capacity];
+		this.lastChild = new int[capacity];
+		this.nextSibling = new int[capacity];
+	}
+	
+	/**
+	 * Forgets every node. Every field of a node is written when it is added, so nothing needs to be cleared.
+	 */
+	public void reset(){
+		this.size = 0;
+	}
+	
+	/**
+	 * @return The number of nodes in the arena
+	 */
+	public int size(){
+		return this.size;
+	}
+	
+	/**
+	 * @return The number of nodes the arena can hold before it has to grow
+	 */
+	public int capacity(){
+		return this.x.length;
+	}
+	
+	/**
+	 * Adds a node without a parent or direction.
+	 * @param x - x-coordinate of the root node (should be x-coordinate of starting tile)
+	 * @param y - y-coordinate of the root node (should be y-coordinate of starting tile)
+	 * @return The index of the new node
+	 */
+	public int addRoot(int x, int y){
+		return this.add(NONE, x, y, -1, false);
+	}
+	
+	/**
+	 * Adds a node after the existing children of a parent node.
+	 * @param parent - Index of the parent node
+	 * @param x - x-coordinate of the tile the player arrives at
+	 * @param y - y-coordinate of the tile the player arrives at
+	 * @param d - Direction of the move
+	 * @param isEnd - True if the move arrives at the ending tile
+	 * @return The index of the new node
+	 */
+	public int addChild(int parent, int x, int y, Direction d, boolean isEnd){
+		
+		int node = this.add(parent, x, y, d.ordinal(), isEnd);
+		
+		if(this.firstChild[parent] == NONE){
+			this.firstChild[parent] = node;
+		}
+		else{
+			this.nextSibling[this.lastChild[parent]] = node;
+		}
+		this.lastChild[parent] = node;
+		
+		return node;
+	}
+	
+	public int getX(int node){
+		return this.x[node];
+	}
+	
+	public int getY(int node){
+		return this.y[node];
+	}
+	
+	/**
+	 * @return The direction of the node's move, or null for a root
+	 */
+	public Direction getDirection(int node){
+		return this.direction[node] < 0 ? null : DIRECTIONS[this.direction[node]];
+	}
+	
+	public boolean isEnd(int node){
+		return this.end[node];
+	}
+	
+	public int getParent(int node){
+		return this.parent[node];
+	}
+	
+	public int getFirstChild(int node){
+		return this.firstChild[node];
+	}
+	
+	public int getNextSibling(int node){
+		return this.nextSibling[node];
+	}
+	
+	/**
+	 * @return A NavigationNode with the same coordinates, direction and end flag as the given node, without children
+	 */
+	public NavigationNode toNode(int node){
+		
+		NavigationNode result = new NavigationNode();
+		result.setDestinationCoordinates(this.x[node], this.y[node]);
+		result.setDirection(this.getDirection(node));
+		result.markAsEnd(this.end[node]);
+		
+		return result;
+	}
+	
+	/**
+	 * @return The moves leading from the root to the given node. The root itself is not included.
+	 */
+	public NavigationNode[] getPath(int node){
+		
+		int length = 0;
+		for(int i = node; this.parent[i] != NONE; i = this.parent[i]){
+			length++;
+		}
+		
+		NavigationNode[] path = new NavigationNode[length];
+		for(int i = node; this.parent[i] != NONE; i = this.parent[i]){
+			path[--length] = this.toNode(i);
+		}
+		
+		return path;
+	}
+	
+	/**
+	 * @return The paths to every leaf below the given root that reaches the ending tile, in the same
+	 * order as {@link NavigationTree#getSolutions()}
+	 */
+	public LinkedList<NavigationNode[]> getSolutions(int root){
+		return new LinkedList<NavigationNode[]>(this.addSolutions(root, new SolutionSet.Builder()).build().asList());
+	}
+	
+	/**
+	 * Adds the path to every leaf below the given root that reaches the ending tile to a SolutionSet builder,
+	 * in the same order as {@link NavigationTree#getSolutions()}.
+	 * @return The builder
+	 */
+	public SolutionSet.Builder addSolutions(int root, SolutionSet.Builder builder){
+		
+		// Depth first traversal with an explicit stack, visiting children in the order they were added
+		int[] stack = new int[16];
+		int top = 0;
+		stack[top++] = root;
+		
+		while(top > 0){
+			
+			int node = stack[--top];
+			
+			if(this.firstChild[node] == NONE){
+				if(this.end[node]){
+					builder.add(this, node);
+				}
+				continue;
+			}
+			
+			// Push the children in reverse so that the first child is visited first
+			int first = top;
+			for(int child = this.firstChild[node]; child != NONE; child = this.nextSibling[child]){
+				if(top == stack.length){
+					stack = Arrays.copyOf(stack, stack.length * 2);
+				}
+				stack[top++] = child;
+			}
+			for(int i = first, j = top - 1; i < j; i++, j--){
+				int swap = stack[i];
+				stack[i] = stack[j];
+				stack[j] = swap;
+			}
+		}
+		
+		return builder;
+	}
+	
+	private int add(int parent, int x, int y, int direction, boolean isEnd){
+		
+		if(this.size == this.x.length){
+			this.grow();
+		}
+		
+		int node = this.size++;
+		this.x[node] = x;
+		this.y[node] = y;
+		this.direction[node] = (byte)direction;
+		this.end[node] = isEnd;
+		this.parent[node] = parent;
+		this.firstChild[node] = NONE;
+		this.lastChild[node] = NONE;
+		this.nextSibling[node] = NONE;
+		
+		return node;
+	}
+	
+	private void grow(){
+		int capacity = this.x.length * 2;
+		this.x = Arrays.copyOf(this.x, capacity);
+		this.y = Arrays.copyOf(this.y, capacity);
+		this.direction = Arrays.copyOf(this.direction, capacity);
+		this.end = Arrays.copyOf(this.end, capacity);
+		this.parent = Arrays.copyOf(this.parent, capacity);
+		this.firstChild = Arrays.copyOf(this.firstChild, capacity);
+		this.lastChild = Arrays.copyOf(this.lastChild, capacity);
+		this.nextSibling = Arrays.copyOf(this.nextSibling, capacity);
+	}
+	
+}
@@ -110,4 +110,9 @@ public class NavigationNode {
 		return false;
 	}
 	
+	public int hashCode(){
+		int hash = 31 * x + y;
+		return 31 * hash + (direction == null ? 0 : direction.ordinal() + 1);
+	}
+	
 }
@@ -23,11 +23,18 @@ import java.util.LinkedList;
 	 * </li>
  * </ul>
  *</p>
+ * <p>
+ * A tree can either be made of NavigationNode objects or be stored in a {@link NavigationArena}. 
+ * IceMapSolver uses an arena, which it reuses from one solve to the next.
+ * </p>
  */
 public class NavigationTree {
 
 	private NavigationNode root;
 	
+	private NavigationArena arena;
+	private int rootIndex;
+	
 	/**
 	 * Constructor.
 	 * @param x - x-coordinate of the root node (should be x-coordinate of starting tile)
@@ -40,12 +47,38 @@ public class NavigationTree {
 	}
 	
 	/**
-	 * @return The root node of this NavigationTree
+	 * Creates a tree stored in an arena. The arena is reset, so any tree previously stored in it is lost.
+	 * @param arena - The arena to store the nodes of this tree in
+	 * @param x - x-coordinate of the root node (should be x-coordinate of starting tile)
+	 * @param y - y-coordinate of the root node (should be y-coordinate of starting tile)
+	 */
+	public NavigationTree(NavigationArena arena, int x, int y){
+		this.arena = arena;
+		this.arena.reset();
+		this.rootIndex = arena.addRoot(x, y);
+	}
+	
+	/**
+	 * @return The root node of this NavigationTree, or null if the tree is stored in an arena
 	 */
 	public NavigationNode getRoot(){
 		return this.root;
 	}
 	
+	/**
+	 * @return The arena this tree is stored in, or null if it is made of NavigationNode objects
+	 */
+	public NavigationArena getArena(){
+		return this.arena;
+	}
+	
+	/**
+	 * @return Index of the root node in the arena this tree is stored in
+	 */
+	public int getRootIndex(){
+		return this.rootIndex;
+	}
+	
 	/**
 	 * @return A LinkedList of NavigationNode arrays. Each array is ordered and is a path from
 	 * the root to a leaf in the tree whose destination is the ending tile of the map.
@@ -55,6 +88,11 @@ public class NavigationTree {
 	 * is skipped.
 	 */
 	public LinkedList<NavigationNode[]> getSolutions(){
+		
+		if(this.arena != null){
+			return this.arena.getSolutions(this.rootIndex);
+		}
+		
 		LinkedList<NavigationNode[]> solutions = new LinkedList<NavigationNode[]>();
 		
 		this.getSolutionRecursive(solutions, new LinkedList<NavigationNode>(), root);
@@ -62,6 +100,18 @@ public class NavigationTree {
 		return solutions;
 	}
 	
+	/**
+	 * @return The same solutions as {@link #getSolutions()}, in the same order, packed into a SolutionSet
+	 */
+	public SolutionSet getSolutionSet(){
+		
+		if(this.arena != null){
+			return this.arena.addSolutions(this.rootIndex, new SolutionSet.Builder()).build();
+		}
+		
+		return SolutionSet.of(this.getSolutions());
+	}
+	
 	private void getSolutionRecursive(LinkedList<NavigationNode[]> solutions, LinkedList<NavigationNode> stack, NavigationNode node){
 		
 		if(node.getDirection() != null){
@@ -0,0 +1,240 @@
+package com.turtlesort.icegen;
+
+import java.util.Arrays;
+
+import com.turtlesort.icegen.IceMapSolver.Direction;
+
+/**
+ * Answers whether the ending tile of a map can be reached from the starting tile at all, without a move
+ * limit and without searching for solutions. The analysis walks the slide graph backwards from the ending
+ * tile: a slide in some direction stops on a tile if that tile is floor or the next tile is solid, and it
+ * can start from any tile behind it with only ice in between. Each tile is walked over at most once per
+ * direction, so the analysis takes time linear in the number of tiles.
+ *
+ * Along with the set of tiles that can reach the end, one path from the starting tile to the end is kept.
+ * Edits reported with {@link #tileChanged(int, int)} that do not touch any slide of that path cannot make
+ * the map unsolvable, so the answer is confirmed by checking the path instead of repeating the analysis.
+ * This makes it cheap for generators to reject a tile placement before solving the map.
+ */
+public class ReachabilityAnalyzer {
+
+	private static final Direction[] DIRECTIONS = Direction.values();
+	private static final int NONE = -1;
+
+	// Pending edits beyond this many cause a full analysis instead of checking the path against each edit
+	private static final int MAXIMUM_PENDING_EDITS = 32;
+
+	private IceMapView map;
+	private int width;
+
+	private boolean[] reachesEnd;
+	private int[] next;				// The tile each tile that reaches the end slides to next on the way there
+	private int[] queue;
+
+	private boolean analysed;
+	private boolean solvable;
+	private int startNext;			// The first tile of the path from the starting tile
+
+	private int[] pendingEdits = new int[MAXIMUM_PENDING_EDITS];
+	private int pendingEditCount;
+	private int analyses;
+
+	/**
+	 * Constructor.
+	 * @param map - The map to analyse. Edits to the map must be reported with {@link #tileChanged(int, int)}.
+	 */
+	public ReachabilityAnalyzer(IceMapView map){
+		this.map = map;
+		this.width = map.getWidth();
+		this.reachesEnd = new boolean[this.width * map.getHeight()];
+		this.next = new int[this.reachesEnd.length];
+		this.queue = new int[this.reachesEnd.length];
+	}
+
+	/**
+	 * Records that the type of a tile has changed since the last call to {@link #isSolvable()}.
+	 * @param x - x-coordinate of the edited tile
+	 * @param y - y-coordinate of the edited tile
+	 */
+	public void tileChanged(int x, int y){
+
+		if(!this.analysed || !this.map.isTile(x, y)) return;
+
+		if(this.pendingEditCount == MAXIMUM_PENDING_EDITS){
+			this.invalidate();
+		}
+		else{
+			this.pendingEdits[this.pendingEditCount++] = y * this.width + x;
+		}
+	}
+
+	/**
+	 * Forgets the previous analysis, for example after the starting or ending tile has moved.
+	 */
+	public void invalidate(){
+		this.analysed = false;
+		this.pendingEditCount = 0;
+	}
+
+	/**
+	 * @return True if the ending tile can be reached from the starting tile in any number of moves, else false.
+	 * Like {@link IceMapSolver}, a starting tile that is also the ending tile does not count as solvable.
+	 */
+	public boolean isSolvable(){
+
+		if(this.analysed && this.pendingEditCount > 0){
+			if(this.solvable && this.isPathUnaffected()){
+				return true;
+			}
+			this.analysed = false;
+		}
+
+		if(!this.analysed){
+			this.analyse();
+		}
+
+		return this.solvable;
+	}
+
+	/**
+	 * @param x - x-coordinate of a tile
+	 * @param y - y-coordinate of a tile
+	 * @return True if a player stopped on the tile could still reach the ending tile, else false
+	 */
+	public boolean canReachEnd(int x, int y){
+
+		if(!this.analysed || this.pendingEditCount > 0){
+			this.analyse();
+		}
+
+		return this.map.isTile(x, y) && this.reachesEnd[y * this.width + x];
+	}
+
+	/**
+	 * @return The number of full analyses made, which does not include answers confirmed by checking the
+	 * path to the ending tile
+	 */
+	public int getAnalysisCount(){
+		return this.analyses;
+	}
+
+	/*
+	 * Finds every tile that can reach the ending tile with a breadth first search over reversed slides,
+	 * then finds the first slide of a path from the starting tile.
+	 */
+	private void analyse(){
+
+		Arrays.fill(this.reachesEnd, false);
+		Arrays.fill(this.next, NONE);
+
+		int end = this.map.getEndY() * this.width + this.map.getEndX();
+		int head = 0;
+		int tail = 0;
+
+		this.reachesEnd[end] = true;
+		this.queue[tail++] = end;
+
+		while(head < tail){
+
+			int current = this.queue[head++];
+			int x = current % this.width;
+			int y = current / this.width;
+			boolean floor = this.map.getTileType(x, y) == IceMap.Tile.FLOOR;
+
+			for(Direction d : DIRECTIONS){
+
+				int dx = d == Direction.LEFT ? -1 : d == Direction.RIGHT ? 1 : 0;
+				int dy = d == Direction.UP ? -1 : d == Direction.DOWN ? 1 : 0;
+
+				// Slides in this direction only stop here on floor or in front of a solid tile
+				if(!floor && this.map.getTileType(x + dx, y + dy) != IceMap.Tile.SOLID) continue;
+
+				int i = x - dx;
+				int j = y - dy;
+				IceMap.Tile tile = this.map.getTileType(i, j);
+
+				while(tile != IceMap.Tile.SOLID){
+
+					int index = j * this.width + i;
+					if(!this.reachesEnd[index]){
+						this.reachesEnd[index] = true;
+						this.next[index] = current;
+						this.queue[tail++] = index;
+					}
+
+					if(tile == IceMap.Tile.FLOOR) break;	// Slides from further away stop here
+
+					i -= dx;
+					j -= dy;
+					tile = this.map.getTileType(i, j);
+				}
+			}
+		}
+
+		this.startNext = NONE;
+
+		int startX = this.map.getStartX();
+		int startY = this.map.getStartY();
+
+		// The starting tile may be solid, which the reversed slides never walk onto, so its slides are tried directly
+		if(!this.map.isEnd(startX, startY)){
+			for(Direction d : DIRECTIONS){
+				int destination = SlideTable.slide(this.map, startX, startY, d);
+				if(this.reachesEnd[destination] && destination != startY * this.width + startX){
+					this.startNext = destination;
+					break;
+				}
+			}
+		}
+
+		this.solvable = this.startNext != NONE;
+		this.analysed = true;
+		this.pendingEditCount = 0;
+		this.analyses++;
+	}
+
+	/*
+	 * Checks whether any pending edit lies on one of the slides of the path from the starting tile, including
+	 * the tile that stops each slide. If none do, every slide of the path still ends where it did.
+	 */
+	private boolean isPathUnaffected(){
+
+		int end = this.map.getEndY() * this.width + this.map.getEndX();
+		int from = this.map.getStartY() * this.width + this.map.getStartX();
+		int to = this.startNext;
+
+		while(true){
+
+			for(int i = 0; i < this.pendingEditCount; i++){
+				if(this.isOnSlide(this.pendingEdits[i], from, to)) return false;
+			}
+
+			if(to == end) return true;
+
+			from = to;
+			to = this.next[to];
+		}
+	}
+
+	/*
+	 * True if the tile lies on the slide between two tiles of the same row or column, or on the tile just past its end.
+	 */
+	private boolean isOnSlide(int tile, int from, int to){
+
+		int x = tile % this.width;
+		int y = tile / this.width;
+		int fromX = from % this.width;
+		int fromY = from / this.width;
+		int toX = to % this.width;
+		int toY = to / this.width;
+
+		if(fromY == toY){
+			int step = toX > fromX ? 1 : -1;
+			return y == fromY && (x - fromX) * step >= 0 && (x - toX) * step <= 1;
+		}
+
+		int step = toY > fromY ? 1 : -1;
+		return x == fromX && (y - fromY) * step >= 0 && (y - toY) * step <= 1;
+	}
+
+}
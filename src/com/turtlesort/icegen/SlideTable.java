@@ -0,0 +1,134 @@
+package com.turtlesort.icegen;
+
+import java.util.Arrays;
+
+import com.turtlesort.icegen.IceMapSolver.Direction;
+
+/**
+ * Remembers where a player ends up when moving in each direction from each tile of an IceMap, so that
+ * repeated solves of the same map don't need to recompute the same slides. Slides are computed
+ * lazily the first time they are needed.
+ * 
+ * When a tile of the map is edited, only the slides that could cross that tile become invalid: horizontal
+ * slides starting in the tile's row and vertical slides starting in the tile's column. Calling 
+ * {@link #invalidate(int, int)} for every edited tile keeps the rest of the table valid, which is what
+ * makes re-solving a map after a small edit cheap.
+ */
+public class SlideTable {
+
+	private static final int UNKNOWN = -1;
+	
+	private IceMapView map;
+	private int width;
+	private int height;
+	private int[] destinations;
+	
+	/**
+	 * Constructor.
+	 * @param map - The map whose slides will be stored
+	 */
+	public SlideTable(IceMapView map){
+		this.map = map;
+		this.width = map.getWidth();
+		this.height = map.getHeight();
+		this.destinations = new int[this.width * this.height * Direction.values().length];
+		this.clear();
+	}
+	
+	/**
+	 * Makes the table read tiles from a different map with the same dimensions, for example an updated
+	 * copy or snapshot of the original map. The new map must only differ from the previous one at tiles that
+	 * have been (or will be) passed to {@link #invalidate(int, int)}.
+	 * @param map - The map to read tiles from
+	 */
+	public void setMap(IceMapView map){
+		if(map.getWidth() != this.width || map.getHeight() != this.height){
+			throw new IllegalArgumentException("Map dimensions do not match the slide table");
+		}
+		this.map = map;
+	}
+	
+	/**
+	 * @return The map this table reads tiles from
+	 */
+	public IceMapView getMap(){
+		return this.map;
+	}
+	
+	/**
+	 * Forgets every slide that could have crossed the specified tile.
+	 * @param x - x-coordinate of the edited tile
+	 * @param y - y-coordinate of the edited tile
+	 */
+	public void invalidate(int x, int y){
+		
+		if(!this.map.isTile(x, y)) return;
+		
+		for(int i = 0; i < this.width; i++){
+			this.destinations[this.indexOf(i, y, Direction.LEFT)] = UNKNOWN;
+			this.destinations[this.indexOf(i, y, Direction.RIGHT)] = UNKNOWN;
+		}
+		
+		for(int j = 0; j < this.height; j++){
+			this.destinations[this.indexOf(x, j, Direction.UP)] = UNKNOWN;
+			this.destinations[this.indexOf(x, j, Direction.DOWN)] = UNKNOWN;
+		}
+	}
+	
+	/**
+	 * Forgets every slide.
+	 */
+	public void clear(){
+		Arrays.fill(this.destinations, UNKNOWN);
+	}
+	
+	/**
+	 * @param x - x-coordinate of the tile to move from
+	 * @param y - y-coordinate of the tile to move from
+	 * @param d - The direction to move in
+	 * @return The tile the player stops on, as an index equal to (y * map width + x). If no move is possible
+	 * the index of the starting tile is returned.
+	 */
+	public int getDestination(int x, int y, Direction d){
+		
+		int index = this.indexOf(x, y, d);
+		int destination = this.destinations[index];
+		
+		if(destination == UNKNOWN){
+			destination = slide(this.map, x, y, d);
+			this.destinations[index] = destination;
+		}
+		
+		return destination;
+	}
+	
+	/**
+	 * Moves from a tile in the given direction until landing on a floor tile or colliding with a solid tile.
+	 * @param map - The map to move on
+	 * @param x - x-coordinate of the tile to move from
+	 * @param y - y-coordinate of the tile to move from
+	 * @param d - The direction to move in
+	 * @return The tile the player stops on, as an index equal to (y * map width + x)
+	 */
+	public static int slide(IceMapView map, int x, int y, Direction d){
+		
+		int dx = d == Direction.LEFT ? -1 : d == Direction.RIGHT ? 1 : 0;
+		int dy = d == Direction.UP ? -1 : d == Direction.DOWN ? 1 : 0;
+		
+		IceMap.Tile tile = map.getTileType(x + dx, y + dy);
+		
+		while(tile != IceMap.Tile.SOLID){ // Floor or ice?
+			x += dx;
+			y += dy;
+			if(tile == IceMap.Tile.FLOOR) break;
+			tile = map.getTileType(x + dx, y + dy);
+		}
+		
+		return y * map.getWidth() + x;
+	}
+	
+	private int indexOf(int x, int y, Direction d){
+		return (y * this.width + x) * 4 + d.ordinal();
+	}
+	
+}
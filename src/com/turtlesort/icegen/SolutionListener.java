@@ -0,0 +1,16 @@
+package com.turtlesort.icegen;
+
+/**
+ * Receives solutions from an {@link IceMapSolver} as soon as they are discovered, before the
+ * search has finished. Solutions are reported in the order the search finds them, which is not
+ * necessarily ordered by number of moves, and before any pruning of the solution set takes place.
+ * Listeners are called on the thread running the solver.
+ */
+public interface SolutionListener {
+
+	/**
+	 * @param solution - A sequence of moves leading from the starting tile to the end tile
+	 */
+	public void solutionFound(NavigationNode[] solution);
+	
+}
@@ -0,0 +1,332 @@
+package com.turtlesort.icegen;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.RandomAccess;
+
+import com.turtlesort.icegen.IceMapSolver.Direction;
+
+/**
+ * A compact, immutable set of solutions. The moves of every solution are stored one after another in
+ * shared primitive arrays (destination coordinates and direction of each move), with an offset table
+ * marking where each solution starts, so any solution or move can be looked up by index in constant time.
+ * 
+ * Solutions can be read move by move with {@link #getX(int, int)}, {@link #getY(int, int)} and
+ * {@link #getDirection(int, int)}, or as NavigationNode arrays with {@link #get(int)} and {@link #asList()},
+ * which create the nodes when they are asked for.
+ */
+public class SolutionSet implements Iterable<NavigationNode[]> {
+
+	/**
+	 * A set without any solutions.
+	 */
+	public static final SolutionSet EMPTY = new SolutionSet(new int[1], new int[0], new byte[0], 0);
+	
+	private static final Direction[] DIRECTIONS = Direction.values();
+	
+	private final int[] offsets;			// Solution i is made of moves offsets[i] to offsets[i + 1] - 1
+	private final int[] coordinates;		// x and y of each move's destination, interleaved
+	private final byte[] directions;		// Ordinal of each move's direction
+	private final int size;
+	
+	private SolutionSet(int[] offsets, int[] coordinates, byte[] directions, int size){
+		this.offsets = offsets;
+		this.coordinates = coordinates;
+		this.directions = directions;
+		this.size = size;
+	}
+	
+	/**
+	 * @param solutions - The solutions to store, in the order they should be stored
+	 * @return A set holding the given solutions
+	 */
+	public static SolutionSet of(Collection<NavigationNode[]> solutions){
+		
+		Builder builder = new Builder();
+		
+		for(NavigationNode[] solution : solutions){
+			builder.add(solution);
+		}
+		
+		return builder.build();
+	}
+	
+	/**
+	 * @return The number of solutions in the set
+	 */
+	public int size(){
+		return this.size;
+	}
+	
+	public boolean isEmpty(){
+		return this.size == 0;
+	}
+	
+	/**
+	 * @return The number of moves in a solution
+	 */
+	public int getLength(int solution){
+		this.checkIndex(solution);
+		return this.offsets[solution + 1] - this.offsets[solution];
+	}
+	
+	/**
+	 * @return x-coordinate of the tile the player arrives at after a move of a solution
+	 */
+	public int getX(int solution, int move){
+		return this.coordinates[2 * this.moveIndex(solution, move)];
+	}
+	
+	/**
+	 * @return y-coordinate of the tile the player arrives at after a move of a solution
+	 */
+	public int getY(int solution, int move){
+		return this.coordinates[2 * this.moveIndex(solution, move) + 1];
+	}
+	
+	/**
+	 * @return The direction of a move of a solution
+	 */
+	public Direction getDirection(int solution, int move){
+		return DIRECTIONS[this.directions[this.moveIndex(solution, move)]];
+	}
+	
+	/**
+	 * @return A solution as an array of newly created NavigationNodes, the same form IceMapSolver.solve returns.
+	 * The last node is marked as the end.
+	 */
+	public NavigationNode[] get(int solution){
+		
+		int length = this.getLength(solution);
+		int start = this.offsets[solution];
+		NavigationNode[] nodes = new NavigationNode[length];
+		
+		for(int i = 0; i < length; i++){
+			NavigationNode node = new NavigationNode();
+			node.setDestinationCoordinates(this.coordinates[2 * (start + i)], this.coordinates[2 * (start + i) + 1]);
+			node.setDirection(DIRECTIONS[this.directions[start + i]]);
+			nodes[i] = node;
+		}
+		
+		if(length > 0){
+			nodes[length - 1].markAsEnd(true);
+		}
+		
+		return nodes;
+	}
+	
+	/**
+	 * @return A read only list view of this set. Getting an element by index takes constant time and creates
+	 * its NavigationNodes, so callers that look at a solution repeatedly may want to keep the array.
+	 */
+	public List<NavigationNode[]> asList(){
+		return new ListView();
+	}
+	
+	@Override
+	public Iterator<NavigationNode[]> iterator() {
+		return this.asList().iterator();
+	}
+	
+	/**
+	 * @return A set with the same solutions sorted in ascending order according to their number of moves.
+	 * Solutions with the same number of moves keep their order. Returns this set if it is already sorted.
+	 */
+	public SolutionSet sortByLength(){
+		
+		int maxLength = 0;
+		boolean sorted = true;
+		
+		for(int i = 0; i < this.size; i++){
+			int length = this.offsets[i + 1] - this.offsets[i];
+			sorted &= length >= maxLength;
+			maxLength = Math.max(maxLength, length);
+		}
+		
+		if(sorted){
+			return this;
+		}
+		
+		// Counting sort by length, which is stable and linear since solutions are short
+		int[] firstOfLength = new int[maxLength + 2];
+		for(int i = 0; i < this.size; i++){
+			firstOfLength[this.offsets[i + 1] - this.offsets[i] + 1]++;
+		}
+		for(int length = 1; length < firstOfLength.length; length++){
+			firstOfLength[length] += firstOfLength[length - 1];
+		}
+		
+		int[] order = new int[this.size];
+		for(int i = 0; i < this.size; i++){
+			order[firstOfLength[this.offsets[i + 1] - this.offsets[i]]++] = i;
+		}
+		
+		Builder builder = new Builder(this.size, this.directions.length);
+		for(int i : order){
+			builder.add(this, i);
+		}
+		
+		return builder.build();
+	}
+	
+	private int moveIndex(int solution, int move){
+		
+		this.checkIndex(solution);
+		
+		int index = this.offsets[solution] + move;
+		if(move < 0 || index >= this.offsets[solution + 1]){
+			throw new IndexOutOfBoundsException("Move " + move + " of solution " + solution);
+		}
+		
+		return index;
+	}
+	
+	private void checkIndex(int solution){
+		if(solution < 0 || solution >= this.size){
+			throw new IndexOutOfBoundsException("Solution " + solution + " of " + this.size);
+		}
+	}
+	
+	private class ListView extends AbstractList<NavigationNode[]> implements RandomAccess {
+		
+		@Override
+		public NavigationNode[] get(int index) {
+			return SolutionSet.this.get(index);
+		}
+
+		@Override
+		public int size() {
+			return SolutionSet.this.size;
+		}
+	}
+	
+	/**
+	 * Collects solutions one at a time and packs them into a SolutionSet.
+	 */
+	public static class Builder {
+		
+		private int[] offsets;
+		private int[] coordinates;
+		private byte[] directions;
+		private int size;
+		private int moves;
+		
+		/**
+		 * Constructor.
+		 */
+		public Builder(){
+			this(16, 128);
+		}
+		
+		/**
+		 * @param solutions - The number of solutions to make room for up front
+		 * @param moves - The total number of moves to make room for up front
+		 */
+		public Builder(int solutions, int moves){
+			this.offsets = new int[Math.max(solutions, 1) + 1];
+			this.coordinates = new int[2 * Math.max(moves, 1)];
+			this.directions = new byte[Math.max(moves, 1)];
+		}
+		
+		/**
+		 * Adds a solution made of NavigationNodes.
+		 */
+		public Builder add(NavigationNode[] solution){
+			
+			int start = this.startSolution(solution.length);
+			
+			for(int i = 0; i < solution.length; i++){
+				this.setMove(start + i, solution[i].getDestinationX(), solution[i].getDestinationY(), solution[i].getDirection().ordinal());
+			}
+			
+			return this;
+		}
+		
+		/**
+		 * Adds a copy of one solution of another set.
+		 */
+		public Builder add(SolutionSet set, int solution){
+			
+			int length = set.getLength(solution);
+			int from = set.offsets[solution];
+			int start = this.startSolution(length);
+			
+			System.arraycopy(set.coordinates, 2 * from, this.coordinates, 2 * start, 2 * length);
+			System.arraycopy(set.directions, from, this.directions, start, length);
+			
+			return this;
+		}
+		
+		/**
+		 * Adds the moves leading from the root of an arena's tree to one of its nodes, without creating any
+		 * NavigationNodes.
+		 */
+		public Builder add(NavigationArena arena, int node){
+			
+			int length = 0;
+			for(int i = node; arena.getParent(i) != NavigationArena.NONE; i = arena.getParent(i)){
+				length++;
+			}
+			
+			int start = this.startSolution(length);
+			
+			for(int i = node; arena.getParent(i) != NavigationArena.NONE; i = arena.getParent(i)){
+				this.setMove(start + --length, arena.getX(i), arena.getY(i), arena.getDirection(i).ordinal());
+			}
+			
+			return this;
+		}
+		
+		/**
+		 * @return The number of solutions added so far
+		 */
+		public int size(){
+			return this.size;
+		}
+		
+		/**
+		 * @return A set holding every solution added so far, in the order they were added
+		 */
+		public SolutionSet build(){
+			
+			if(this.size == 0){
+				return EMPTY;
+			}
+			
+			return new SolutionSet(Arrays.copyOf(this.offsets, this.size + 1), Arrays.copyOf(this.coordinates, 2 * this.moves),
+					Arrays.copyOf(this.directions, this.moves), this.size);
+		}
+		
+		/*
+		 * Makes room for a solution of the given length and returns the index of its first move.
+		 */
+		private int startSolution(int length){
+			
+			if(this.size + 2 > this.offsets.length){
+				this.offsets = Arrays.copyOf(this.offsets, this.offsets.length * 2);
+			}
+			
+			if(this.moves + length > this.directions.length){
+				int capacity = Math.max(this.directions.length * 2, this.moves + length);
+				this.coordinates = Arrays.copyOf(this.coordinates, 2 * capacity);
+				this.directions = Arrays.copyOf(this.directions, capacity);
+			}
+			
+			int start = this.moves;
+			this.moves += length;
+			this.offsets[++this.size] = this.moves;
+			
+			return start;
+		}
+		
+		private void setMove(int index, int x, int y, int direction){
+			this.coordinates[2 * index] = x;
+			this.coordinates[2 * index + 1] = y;
+			this.directions[index] = (byte)direction;
+		}
+	}
+	
+}
@@ -0,0 +1,197 @@
+package com.turtlesort.icegen;
+
+/**
+ * Solves an IceMap and summarizes the outcome: the optimal number of moves, the solutions found
+ * within a move limit, and how long solving took. Reports can be written as a single line of JSON,
+ * which is how the headless tools hand results to other programs.
+ */
+public class SolveReport {
+
+	private String name;
+	private int width;
+	private int height;
+	private int optimalMoveCount;
+	private SolutionSet solutions;
+	private boolean truncated;
+	private long solveTime;
+	private boolean reused;
+	
+	private SolveReport(){}
+	
+	/**
+	 * Solves a map. The optimal number of moves is found with {@link IceMapSolver#findOptimalMoveCount()}
+	 * so it is known even when it exceeds the move limit.
+	 * @param map - The map to solve
+	 * @param moveLimit - The maximum number of moves a listed solution should have
+	 * @param pruneSolutionSet - See {@link IceMapSolver#solve(int, boolean)}
+	 * @param token - A token that can stop the search for solutions, or null
+	 */
+	public static SolveReport solve(IceMapView map, int moveLimit, boolean pruneSolutionSet, CancellationToken token){
+		
+		SolveReport report = new SolveReport();
+		long start = System.nanoTime();
+		
+		IceMapSolver solver = new IceMapSolver(map);
+		SolverResult result = solver.solve(moveLimit, pruneSolutionSet, token);
+		
+		report.name = map.getName();
+		report.width = map.getWidth();
+		report.height = map.getHeight();
+		report.optimalMoveCount = solver.findOptimalMoveCount();
+		report.solutions = result.getSolutionSet();
+		report.truncated = result.isTruncated();
+		report.solveTime = System.nanoTime() - start;
+		
+		return report;
+	}
+	
+	/**
+	 * Reports are cached by the content of the solved map, which leaves out its name. This gives a report
+	 * for another map with the same content without solving it again.
+	 * @param map - A map with the same tiles, starting tile and ending tile as the solved map
+	 * @return A copy of this report carrying the given map's name, marked as reused. Its solve time is
+	 * that of the original solve.
+	 */
+	public SolveReport reuseFor(IceMapView map){
+		
+		SolveReport report = new SolveReport();
+		report.name = map.getName();
+		report.width = this.width;
+		report.height = this.height;
+		report.optimalMoveCount = this.optimalMoveCount;
+		report.solutions = this.solutions;
+		report.truncated = this.truncated;
+		report.solveTime = this.solveTime;
+		report.reused = true;
+		
+		return report;
+	}
+	
+	public String getName(){
+		return this.name;
+	}
+	
+	/**
+	 * @return The least number of moves needed to solve the map, or -1 if it cannot be solved
+	 */
+	public int getOptimalMoveCount(){
+		return this.optimalMoveCount;
+	}
+	
+	/**
+	 * @return The solutions found within the move limit, sorted by number of moves
+	 */
+	public SolutionSet getSolutions(){
+		return this.solutions;
+	}
+	
+	/**
+	 * @return True if the search for solutions was stopped before it finished
+	 */
+	public boolean isTruncated(){
+		return this.truncated;
+	}
+	
+	/**
+	 * @return Time taken to solve the map, in nanoseconds
+	 */
+	public long getSolveTime(){
+		return this.solveTime;
+	}
+	
+	/**
+	 * @return True if this report was made by {@link #reuseFor(IceMapView)} instead of solving the map
+	 */
+	public boolean isReused(){
+		return this.reused;
+	}
+	
+	/**
+	 * @param source - Where the map came from (e.g. a file path), or null to leave it out
+	 * @param maxSolutions - The most solutions to list. The total number of solutions is always included.
+	 * @return The report as a single line of JSON
+	 */
+	public String toJson(String source, int maxSolutions){
+		
+		StringBuilder s = new StringBuilder();
+		
+		s.append('{');
+		if(source != null){
+			s.append("\"source\":").append(quote(source)).append(',');
+		}
+		s.append("\"name\":").append(this.name != null ? quote(this.name) : "null");
+		s.append(",\"width\":").append(this.width);
+		s.append(",\"height\":").append(this.height);
+		s.append(",\"optimalMoveCount\":").append(this.optimalMoveCount);
+		s.append(",\"solutionCount\":").append(this.solutions.size());
+		s.append(",\"truncated\":").append(this.truncated);
+		s.append(",\"solveMillis\":").append(this.solveTime / 1000000.0);
+		s.append(",\"cached\":").append(this.reused);
+		s.append(",\"solutions\":[");
+		
+		for(int i = 0; i < maxSolutions && i < this.solutions.size(); i++){
+			if(i > 0){
+				s.append(',');
+			}
+			s.append(quote(renderSolution(this.solutions.get(i))));
+		}
+		
+		s.append("]}");
+		
+		return s.toString();
+	}
+	
+	/**
+	 * @param solution - A sequence of moves
+	 * @return The first letter of each move's direction, separated by arrows (e.g. "U -> L -> D")
+	 */
+	public static String renderSolution(NavigationNode[] solution){
+		
+		StringBuilder s = new StringBuilder();
+		
+		for(NavigationNode move : solution){
+			if(s.length() > 0){
+				s.append(" -> ");
+			}
+			s.append(move.getDirection().toString().charAt(0));
+		}
+		
+		return s.toString();
+	}
+	
+	/**
+	 * @return The given text as a JSON string literal
+	 */
+	public static String quote(String text){
+		
+		StringBuilder s = new StringBuilder(text.length() + 2);
+		s.append('"');
+		
+		for(int i = 0; i < text.length(); i++){
+			char c = text.charAt(i);
+			
+			if(c == '"' || c == '\\'){
+				s.append('\\').append(c);
+			}
+			else if(c == '\n'){
+				s.append("\\n");
+			}
+			else if(c == '\r'){
+				s.append("\\r");
+			}
+			else if(c == '\t'){
+				s.append("\\t");
+			}
+			else if(c < 0x20){
+				s.append(String.format("\\u%04x", (int)c));
+			}
+			else{
+				s.append(c);
+			}
+		}
+		
+		s.append('"');
+		return s.toString();
+	}
+	
+}
@@ -0,0 +1,67 @@
+package com.turtlesort.icegen;
+
+import java.util.LinkedList;
+
+/**
+ * The outcome of a call to {@link IceMapSolver#solve(int, boolean, CancellationToken)}. Holds the solutions
+ * that were found and whether the search was cut short before the whole move limit was explored.
+ */
+public class SolverResult {
+
+	private SolutionSet solutions;
+	private boolean truncated;
+	private SolverStatistics statistics;
+	
+	/**
+	 * Constructor.
+	 * @param solutions - The solutions found, sorted by number of moves
+	 * @param truncated - True if the search was stopped before it finished
+	 */
+	public SolverResult(SolutionSet solutions, boolean truncated){
+		this(solutions, truncated, null);
+	}
+	
+	/**
+	 * Constructor.
+	 * @param solutions - The solutions found, sorted by number of moves
+	 * @param truncated - True if the search was stopped before it finished
+	 * @param statistics - Statistics collected during the solve, or null if none were collected
+	 */
+	public SolverResult(SolutionSet solutions, boolean truncated, SolverStatistics statistics){
+		this.solutions = solutions;
+		this.truncated = truncated;
+		this.statistics = statistics;
+	}
+	
+	/**
+	 * @return The solutions sorted in ascending order according to the number of moves per solution.
+	 * If the result is truncated, the first solution is the best one found so far but is not guaranteed to be optimal.
+	 */
+	public SolutionSet getSolutionSet(){
+		return this.solutions;
+	}
+	
+	/**
+	 * @return A new linked list holding the solutions of {@link #getSolutionSet()} as NavigationNode arrays.
+	 * Prefer the SolutionSet when solutions are accessed by index.
+	 */
+	public LinkedList<NavigationNode[]> getSolutions(){
+		return new LinkedList<NavigationNode[]>(this.solutions.asList());
+	}
+	
+	/**
+	 * @return True if the search was cancelled or ran out of time before exploring every sequence of moves
+	 * within the move limit, else false
+	 */
+	public boolean isTruncated(){
+		return this.truncated;
+	}
+	
+	/**
+	 * @return Statistics describing the solve, or null if the solver was not collecting statistics
+	 */
+	public SolverStatistics getStatistics(){
+		return this.statistics;
+	}
+	
+}
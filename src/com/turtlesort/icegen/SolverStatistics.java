@@ -0,0 +1,113 @@
+package com.turtlesort.icegen;
+
+/**
+ * Counters and timings describing a single call to {@link IceMapSolver#solve(int, boolean, CancellationToken)}.
+ * Only collected when enabled with {@link IceMapSolver#setCollectStatistics(boolean)}, in which case they
+ * are available from {@link SolverResult#getStatistics()}.
+ */
+public class SolverStatistics {
+
+	int nodesExpanded;
+	int nodesAllocated;
+	int slidesComputed;
+	int maxDepth;
+	int solutionsFound;
+	int solutionsPruned;
+	
+	long searchTime;
+	long extractionTime;
+	long sortTime;
+	long pruneTime;
+	
+	/**
+	 * @return Number of NavigationNodes whose children were searched for
+	 */
+	public int getNodesExpanded() {
+		return nodesExpanded;
+	}
+
+	/**
+	 * @return Number of NavigationNodes created, including the root. Since the whole NavigationTree is
+	 * kept until the search finishes, this is also the peak size of the tree.
+	 */
+	public int getNodesAllocated() {
+		return nodesAllocated;
+	}
+
+	/**
+	 * @return Number of slides (moves from a tile in one direction) that were computed or looked up
+	 */
+	public int getSlidesComputed() {
+		return slidesComputed;
+	}
+
+	/**
+	 * @return The largest number of moves from the starting tile of any expanded node
+	 */
+	public int getMaxDepth() {
+		return maxDepth;
+	}
+
+	/**
+	 * @return Number of solutions extracted from the NavigationTree, before pruning
+	 */
+	public int getSolutionsFound() {
+		return solutionsFound;
+	}
+
+	/**
+	 * @return Number of solutions removed because their ending matched the optimal solution's ending
+	 */
+	public int getSolutionsPruned() {
+		return solutionsPruned;
+	}
+
+	/**
+	 * @return Time spent building the NavigationTree, in nanoseconds
+	 */
+	public long getSearchTime() {
+		return searchTime;
+	}
+
+	/**
+	 * @return Time spent extracting solutions from the NavigationTree, in nanoseconds
+	 */
+	public long getExtractionTime() {
+		return extractionTime;
+	}
+
+	/**
+	 * @return Time spent sorting solutions by number of moves, in nanoseconds
+	 */
+	public long getSortTime() {
+		return sortTime;
+	}
+
+	/**
+	 * @return Time spent removing solutions with matching endings, in nanoseconds
+	 */
+	public long getPruneTime() {
+		return pruneTime;
+	}
+	
+	/**
+	 * @return Total time spent in all phases of the solve, in nanoseconds
+	 */
+	public long getTotalTime() {
+		return searchTime + extractionTime + sortTime + pruneTime;
+	}
+	
+	public String toString(){
+		return "nodesExpanded=" + nodesExpanded
+				+ " nodesAllocated=" + nodesAllocated
+				+ " slidesComputed=" + slidesComputed
+				+ " maxDepth=" + maxDepth
+				+ " solutionsFound=" + solutionsFound
+				+ " solutionsPruned=" + solutionsPruned
+				+ " searchMs=" + searchTime / 1000000.0
+				+ " extractionMs=" + extractionTime / 1000000.0
+				+ " sortMs=" + sortTime / 1000000.0
+				+ " pruneMs=" + pruneTime / 1000000.0;
+	}
+	
+}
@@ -9,6 +9,7 @@ import com.turtlesort.icegen.generators.InterferenceMapGenerator;
 import com.turtlesort.icegen.visualizer.InteractiveVisualizer;
 import com.turtlesort.icegen.visualizer.SolutionVisualizer;
 import com.turtlesort.icegen.visualizer.TextVisualizer;
+import com.turtlesort.icegen.visualizer.TilesetRenderer;
 
 public class Start {
 
@@ -70,6 +71,7 @@ public class Start {
 		File source = new File("maps/map3.tmx");
 		SolutionVisualizer visualizer = new SolutionVisualizer(source);
 		//InteractiveVisualizer visualizer = new InteractiveVisualizer(IceMap.parseTMXFile(source));
+		visualizer.setTileset(TilesetRenderer.loadTileset(new File("maps/icemaptileset.png")));
 		visualizer.setVisible(true);
 	}
 
@@ -0,0 +1,342 @@
+package com.turtlesort.icegen.cli;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.turtlesort.icegen.CancellationToken;
+import com.turtlesort.icegen.CanonicalHash;
+import com.turtlesort.icegen.IceMap;
+import com.turtlesort.icegen.MapSymmetry;
+import com.turtlesort.icegen.SolveReport;
+import com.turtlesort.icegen.generators.DuplicateMapFilter;
+
+/**
+ * Solves TMX (.tmx) and binary (.icemap) map files without a GUI, using every available core. Each map's
+ * {@link SolveReport} is written as one line of JSON, in the order the maps finish. A summary of the whole
+ * batch, including its throughput, is printed to standard error.
+ * 
+ * Usage: BatchSolver [options] file-or-directory...
+ * <ul>
+ * <li>-limit N: Move limit for listed solutions (default 20)</li>
+ * <li>-prune: Prune the solution set</li>
+ * <li>-solutions N: Most solutions to list per map (default 5)</li>
+ * <li>-timeout MS: Stop searching for solutions of a map after this many milliseconds</li>
+ * <li>-threads N: Number of solver threads (default: number of cores)</li>
+ * <li>-out FILE: Write results to a file instead of standard output</li>
+ * <li>-dedup: Skip maps that are rotations or mirror images of another map in the batch. Only the first
+ * of them is solved, the others are listed with the source they duplicate</li>
+ * <li>-offheap: Store the tiles of each map off the heap while it is solved</li>
+ * </ul>
+ * Directories are searched recursively for map files.
+ */
+public class BatchSolver {
+
+	private int moveLimit = 20;
+	private boolean pruneSolutionSet = false;
+	private int maxSolutions = 5;
+	private long timeout = 0;
+	private int threads = Runtime.getRuntime().availableProcessors();
+	private DuplicateMapFilter duplicateFilter;	// Null unless duplicates are being skipped
+	private boolean offHeap = false;
+	
+	/**
+	 * @param file - A .tmx or .icemap file
+	 * @return The parsed map, or null if the file could not be read
+	 */
+	public static IceMap loadMap(File file){
+		return loadMap(file, false);
+	}
+	
+	/**
+	 * @param file - A .tmx or .icemap file
+	 * @param offHeap - True to store the map's tiles off the heap
+	 * @return The parsed map, or null if the file could not be read
+	 */
+	public static IceMap loadMap(File file, boolean offHeap){
+		
+		IceMap map = file.getName().endsWith(".tmx") ? IceMap.parseTMXFile(file, offHeap) : IceMap.parseBinaryFile(file, offHeap);
+		
+		if(map != null && map.getName() == null){
+			map.setName(file.getName());
+		}
+		
+		return map;
+	}
+	
+	/**
+	 * Adds every map file found at the given path to the list. Directories are searched recursively
+	 * and their files are added in name order.
+	 */
+	public static void findMapFiles(File path, List<File> files){
+		
+		if(path.isDirectory()){
+			File[] children = path.listFiles();
+			if(children == null) return;
+			
+			Arrays.sort(children);
+			for(File child : children){
+				findMapFiles(child, files);
+			}
+		}
+		else if(path.getName().endsWith(".tmx") || path.getName().endsWith(".icemap")){
+			files.add(path);
+		}
+	}
+	
+	/**
+	 * Solves every file and writes one JSON line per file to the writer.
+	 * @return The number of files that could not be read
+	 */
+	public int run(List<File> files, Writer out) throws IOException, InterruptedException {
+		
+		ExecutorService executor = Executors.newFixedThreadPool(this.threads);
+		CompletionService<String> completion = new ExecutorCompletionService<String>(executor);
+		
+		long start = System.nanoTime();
+		
+		int failed = 0;
+		int duplicates = 0;
+		int submitted = 0;
+		int written = 0;
+		
+		try {
+			if(this.duplicateFilter != null){
+				
+				// Maps are loaded and hashed in parallel, up to a window ahead of the one being recorded, but
+				// recorded in input order so the first file of a set of duplicates is the one that is solved
+				int window = this.threads * 2;
+				List<Future<LoadedMap>> loads = new ArrayList<Future<LoadedMap>>(files.size());
+				
+				for(int i = 0; i < files.size() && i < window; i++){
+					loads.add(executor.submit(this.createLoadTask(files.get(i))));
+				}
+				
+				for(int i = 0; i < files.size(); i++){
+					
+					if(i + window < files.size()){
+						loads.add(executor.submit(this.createLoadTask(files.get(i + window))));
+					}
+					
+					File file = files.get(i);
+					LoadedMap loaded;
+					
+					try {
+						loaded = loads.get(i).get();
+					} catch (ExecutionException e) {
+						e.getCause().printStackTrace();
+						loaded = null;
+					}
+					loads.set(i, null);
+					
+					if(loaded == null){
+						failed++;
+						continue;
+					}
+					
+					String original = this.duplicateFilter.add(loaded.hash, file.getPath());
+					
+					if(original != null){
+						loaded.map.close();
+						out.write("{\"source\":" + SolveReport.quote(file.getPath()) + ",\"duplicateOf\":" + SolveReport.quote(original) + "}");
+						out.write('\n');
+						duplicates++;
+						continue;
+					}
+					
+					completion.submit(this.createSolveTask(file, loaded.map));
+					submitted++;
+					
+					// Results are written while hashing goes on, so only a window of loaded maps waits to be solved
+					if(submitted - written >= window){
+						if(!this.writeResult(completion, out)){
+							failed++;
+						}
+						written++;
+					}
+				}
+			}
+			else{
+				for(File file : files){
+					completion.submit(this.createSolveTask(file, null));
+					submitted++;
+				}
+			}
+			
+			for(; written < submitted; written++){
+				if(!this.writeResult(completion, out)){
+					failed++;
+				}
+			}
+			out.flush();
+			
+		} finally {
+			executor.shutdownNow();
+		}
+		
+		int solved = files.size() - failed - duplicates;
+		double seconds = (System.nanoTime() - start) / 1000000000.0;
+		System.err.println(String.format("Solved %d of %d maps in %.3f s (%.1f maps/s) using %d threads",
+				solved, files.size(), seconds, solved / seconds, this.threads));
+		
+		if(this.duplicateFilter != null){
+			System.err.println(String.format("Skipped %d duplicate maps", duplicates));
+		}
+		
+		return failed;
+	}
+	
+	/*
+	 * Waits for the next solve to finish and writes its JSON line. Returns false if the map could not be read.
+	 */
+	private boolean writeResult(CompletionService<String> completion, Writer out) throws IOException, InterruptedException {
+		
+		String line;
+		
+		try {
+			line = completion.take().get();
+		} catch (ExecutionException e) {
+			e.getCause().printStackTrace();
+			line = null;
+		}
+		
+		if(line == null){
+			return false;
+		}
+		
+		out.write(line);
+		out.write('\n');
+		return true;
+	}
+	
+	/*
+	 * Solves a map, loading it first if it has not been loaded yet, and closes it. The task returns the map's
+	 * JSON line, or null if the file could not be read.
+	 */
+	private Callable<String> createSolveTask(final File file, final IceMap loadedMap){
+		return new Callable<String>(){
+			@Override
+			public String call() {
+				
+				IceMap map = loadedMap != null ? loadedMap : loadMap(file, offHeap);
+				
+				if(map == null){
+					return null;
+				}
+				
+				try {
+					CancellationToken token = timeout > 0 ? new CancellationToken(timeout) : null;
+					return SolveReport.solve(map, moveLimit, pruneSolutionSet, token).toJson(file.getPath(), maxSolutions);
+					
+				} finally {
+					map.close();
+				}
+			}
+		};
+	}
+	
+	/*
+	 * Loads a map and computes its canonical hash. The map is kept open for solving. The task returns null
+	 * if the file could not be read.
+	 */
+	private Callable<LoadedMap> createLoadTask(final File file){
+		return new Callable<LoadedMap>(){
+			@Override
+			public LoadedMap call() {
+				
+				IceMap map = loadMap(file, offHeap);
+				
+				if(map == null){
+					return null;
+				}
+				
+				try {
+					return new LoadedMap(map, MapSymmetry.canonicalHash(map));
+				} catch (RuntimeException e) {
+					map.close();
+					throw e;
+				}
+			}
+		};
+	}
+	
+	public static void main(String[] args) throws IOException, InterruptedException {
+		
+		BatchSolver solver = new BatchSolver();
+		List<File> files = new ArrayList<File>();
+		File outFile = null;
+		
+		for(int i = 0; i < args.length; i++){
+			
+			if(args[i].equals("-limit") && i + 1 < args.length){
+				solver.moveLimit = Integer.parseInt(args[++i]);
+			}
+			else if(args[i].equals("-prune")){
+				solver.pruneSolutionSet = true;
+			}
+			else if(args[i].equals("-solutions") && i + 1 < args.length){
+				solver.maxSolutions = Integer.parseInt(args[++i]);
+			}
+			else if(args[i].equals("-timeout") && i + 1 < args.length){
+				solver.timeout = Long.parseLong(args[++i]);
+			}
+			else if(args[i].equals("-threads") && i + 1 < args.length){
+				solver.threads = Math.max(1, Integer.parseInt(args[++i]));
+			}
+			else if(args[i].equals("-out") && i + 1 < args.length){
+				outFile = new File(args[++i]);
+			}
+			else if(args[i].equals("-dedup")){
+				solver.duplicateFilter = new DuplicateMapFilter();
+			}
+			else if(args[i].equals("-offheap")){
+				solver.offHeap = true;
+			}
+			else{
+				findMapFiles(new File(args[i]), files);
+			}
+		}
+		
+		if(files.isEmpty()){
+			System.err.println("Usage: BatchSolver [-limit N] [-prune] [-solutions N] [-timeout MS] [-threads N] [-out FILE] [-dedup] [-offheap] file-or-directory...");
+			System.exit(1);
+		}
+		
+		Writer out = outFile != null ? new BufferedWriter(new FileWriter(outFile)) : new BufferedWriter(new OutputStreamWriter(System.out));
+		
+		int failed;
+		try {
+			failed = solver.run(files, out);
+		} finally {
+			out.close();
+		}
+		
+		System.exit(failed == 0 ? 0 : 2);
+	}
+	
+	private static class LoadedMap {
+		
+		private final IceMap map;
+		private final CanonicalHash hash;
+		
+		public LoadedMap(IceMap map, CanonicalHash hash){
+			this.map = map;
+			this.hash = hash;
+		}
+		
+	}
+	
+}
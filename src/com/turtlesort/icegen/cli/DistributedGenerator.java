@@ -0,0 +1,573 @@
+package com.turtlesort.icegen.cli;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+
+import com.turtlesort.icegen.IceMap;
+import com.turtlesort.icegen.IceMapSolver;
+import com.turtlesort.icegen.generators.DuplicateMapFilter;
+import com.turtlesort.icegen.generators.EvolutionaryMapGenerator;
+import com.turtlesort.icegen.generators.IceMapGenerator;
+import com.turtlesort.icegen.generators.SyntheticMapGenerator;
+
+/**
+ * Generates a large pool of maps with several processes, possibly on several hosts, that share a work
+ * directory. The seeds of a job are split into ranges. Workers lease a range at a time, generate one map per
+ * seed with a seeded generator, keep the maps whose optimal solution has an accepted number of moves, and
+ * write them to an output segment of their own. The coordinator merges the segments, dropping maps that are
+ * rotations or mirror images of an earlier one.
+ *
+ * Workers only coordinate through the file system. A range is leased by creating its lease file, which
+ * fails if another worker got there first. A worker touches its lease while it works. A lease that has not
+ * been touched for the job's lease timeout is taken over by creating the lease's next generation, so ranges
+ * of workers that died are generated again and only one worker can take over any given lease. A segment is renamed into place before its range is marked
+ * done, so a finished range never has a partial segment. If a worker that was too slow to touch its lease
+ * finishes anyway, its range is generated twice and the copies are dropped when merging, since the same
+ * seed always gives the same map.
+ *
+ * Work directory layout:
+ * <ul>
+ * <li>job.properties: The generator, its parameters, the accepted move counts and the seeds to use</li>
+ * <li>leases/FIRSTSEED.GENERATION.lease and leases/FIRSTSEED.done: Leased and finished ranges</li>
+ * <li>segments/WORKER/FIRSTSEED.seg: The accepted maps of a range one after another, each written as its
+ * optimal move count, a 32-bit integer, followed by the map in the format written by
+ * {@link IceMap#writeBinary(OutputStream)}</li>
+ * </ul>
+ *
+ * Usage:
+ * <ul>
+ * <li>DistributedGenerator init directory [-generator synthetic|evolutionary] [-width N] [-height N] [-ice D]
+ * [-boulder D] [-target N] [-min N] [-max N] [-seeds FIRST COUNT] [-lease N] [-timeout SECONDS]</li>
+ * <li>DistributedGenerator work directory [-id NAME]</li>
+ * <li>DistributedGenerator merge directory output [-wait]: Writes the merged maps to the output directory as
+ * binary map files with a maps.csv index</li>
+ * </ul>
+ */
+public class DistributedGenerator {
+
+	public static final String JOB_FILE_NAME = "job.properties";
+	public static final String INDEX_FILE_NAME = "maps.csv";
+
+	private static final String LEASE_DIRECTORY = "leases";
+	private static final String SEGMENT_DIRECTORY = "segments";
+	private static final String LEASE_SUFFIX = ".lease";
+	private static final String DONE_SUFFIX = ".done";
+	private static final String SEGMENT_SUFFIX = ".seg";
+	private static final String PARTIAL_SUFFIX = ".part";
+
+	private static final long HEARTBEAT_MILLIS = 1000;
+	private static final long WAIT_MILLIS = 1000;
+
+	private File directory;
+	private Properties job;
+
+	private String generator;
+	private int width;
+	private int height;
+	private double iceDensity;
+	private double boulderDensity;
+	private int targetMoveCount;
+	private int minMoves;
+	private int maxMoves;
+	private long firstSeed;
+	private long seedCount;
+	private int leaseSize;
+	private long leaseTimeout;
+
+	/**
+	 * Opens a job created with {@link #createJob(File, Properties)}.
+	 * @param directory - The work directory
+	 * @throws IOException If the job file cannot be read or is not valid
+	 */
+	public DistributedGenerator(File directory) throws IOException {
+
+		this.directory = directory;
+		this.job = new Properties();
+
+		Reader in = new FileReader(new File(directory, JOB_FILE_NAME));
+		try {
+			this.job.load(in);
+		} finally {
+			in.close();
+		}
+
+		try {
+			this.generator = this.job.getProperty("generator", "synthetic");
+			this.width = Integer.parseInt(this.job.getProperty("width", "15"));
+			this.height = Integer.parseInt(this.job.getProperty("height", "15"));
+			this.iceDensity = Double.parseDouble(this.job.getProperty("ice", "0.65"));
+			this.boulderDensity = Double.parseDouble(this.job.getProperty("boulder", "0.1"));
+			this.targetMoveCount = Integer.parseInt(this.job.getProperty("target", "12"));
+			this.minMoves = Integer.parseInt(this.job.getProperty("minMoves", "1"));
+			this.maxMoves = Integer.parseInt(this.job.getProperty("maxMoves", Integer.toString(Integer.MAX_VALUE)));
+			this.firstSeed = Long.parseLong(this.job.getProperty("firstSeed", "0"));
+			this.seedCount = Long.parseLong(this.job.getProperty("seedCount", "100000"));
+			this.leaseSize = Integer.parseInt(this.job.getProperty("leaseSize", "1000"));
+			this.leaseTimeout = Long.parseLong(this.job.getProperty("leaseTimeout", "300")) * 1000;
+		} catch (NumberFormatException e) {
+			throw new IOException("Invalid job file: " + e.getMessage());
+		}
+
+		if(this.seedCount < 0 || this.leaseSize < 1 || this.leaseTimeout <= HEARTBEAT_MILLIS){
+			throw new IOException("Invalid job file: seedCount, leaseSize or leaseTimeout is out of range");
+		}
+
+		// Fails early if the generator's parameters are not valid
+		this.createGenerator(this.firstSeed);
+	}
+
+	/**
+	 * Creates a work directory for a job. The job file is written under a temporary name and then renamed,
+	 * so workers never read a partial job.
+	 * @param directory - The work directory. It is created if it doesn't exist, and must not hold a job yet.
+	 * @param job - The job's settings, see the keys read by {@link #DistributedGenerator(File)}
+	 * @return The opened job
+	 * @throws IOException If the directory cannot be written, already holds a job, or the job is not valid
+	 */
+	public static DistributedGenerator createJob(File directory, Properties job) throws IOException {
+
+		new File(directory, LEASE_DIRECTORY).mkdirs();
+		new File(directory, SEGMENT_DIRECTORY).mkdirs();
+
+		if(!new File(directory, LEASE_DIRECTORY).isDirectory() || !new File(directory, SEGMENT_DIRECTORY).isDirectory()){
+			throw new IOException("Cannot create directory " + directory);
+		}
+
+		File jobFile = new File(directory, JOB_FILE_NAME);
+		File temporary = new File(directory, JOB_FILE_NAME + PARTIAL_SUFFIX);
+
+		if(jobFile.exists()){
+			throw new IOException(directory + " already holds a job");
+		}
+
+		Writer out = new FileWriter(temporary);
+		try {
+			job.store(out, "IceGen distributed generation job");
+		} finally {
+			out.close();
+		}
+
+		rename(temporary.toPath(), jobFile.toPath());
+
+		return new DistributedGenerator(directory);
+	}
+
+	/**
+	 * @param seed - A seed of the job
+	 * @return The generator that generates the seed's map as its first map
+	 */
+	public IceMapGenerator createGenerator(long seed){
+
+		if(this.generator.equals("synthetic")){
+			return new SyntheticMapGenerator(this.width, this.height, this.iceDensity, this.boulderDensity, seed);
+		}
+
+		if(this.generator.equals("evolutionary")){
+			return new EvolutionaryMapGenerator(this.width, this.height, this.iceDensity, this.boulderDensity, this.targetMoveCount, seed);
+		}
+
+		throw new IllegalArgumentException("Unknown or unseeded generator " + this.generator);
+	}
+
+	/**
+	 * @return The number of seed ranges in the job
+	 */
+	public long getRangeCount(){
+		return (this.seedCount + this.leaseSize - 1) / this.leaseSize;
+	}
+
+	/**
+	 * @return The number of ranges marked done
+	 */
+	public long getDoneRangeCount(){
+
+		long done = 0;
+
+		for(long range = 0; range < this.getRangeCount(); range++){
+			if(this.leaseFile(range, DONE_SUFFIX).exists()){
+				done++;
+			}
+		}
+
+		return done;
+	}
+
+	/**
+	 * Leases and generates ranges until every range is done. While the remaining ranges are leased by other
+	 * workers, this waits and takes over the leases of workers that stop touching them.
+	 * @param workerId - A name for this worker that no other worker uses. It names the worker's segment directory.
+	 * @return The number of maps this worker accepted
+	 * @throws IOException If the work directory cannot be written
+	 */
+	public long work(String workerId) throws IOException {
+
+		File segments = new File(new File(this.directory, SEGMENT_DIRECTORY), workerId);
+		if(!segments.isDirectory() && !segments.mkdirs()){
+			throw new IOException("Cannot create directory " + segments);
+		}
+
+		long accepted = 0;
+
+		while(this.getDoneRangeCount() < this.getRangeCount()){
+
+			boolean leased = false;
+
+			for(long range = 0; range < this.getRangeCount(); range++){
+				int generation = this.lease(range, workerId);
+				if(generation >= 0){
+					accepted += this.generateRange(range, generation, workerId, segments);
+					leased = true;
+				}
+			}
+
+			if(!leased){
+				try {
+					Thread.sleep(WAIT_MILLIS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					break;
+				}
+			}
+		}
+
+		return accepted;
+	}
+
+	/*
+	 * Leases a range by creating the first generation of its lease file. A lease whose newest generation has
+	 * not been touched within the lease timeout is taken over by creating the next generation, which only one
+	 * of several workers finding it at once can do.
+	 * Returns the generation leased, or -1 if the range is done or leased by another worker.
+	 */
+	private int lease(long range, String workerId) throws IOException {
+
+		if(this.leaseFile(range, DONE_SUFFIX).exists()){
+			return -1;
+		}
+
+		int generation = this.getLeaseGeneration(range);
+
+		if(generation >= 0){
+
+			long lastTouched = this.leaseFile(range, generation).lastModified();
+
+			// A lease that vanished since it was found was just finished
+			if(lastTouched == 0 || System.currentTimeMillis() - lastTouched <= this.leaseTimeout){
+				return -1;
+			}
+		}
+
+		if(!this.tryCreate(this.leaseFile(range, generation + 1).toPath(), workerId)){
+			return -1;
+		}
+
+		if(generation >= 0){
+			System.err.println("Taking over expired lease of range " + range);
+		}
+
+		return generation + 1;
+	}
+
+	/*
+	 * Returns the newest generation of a range's lease, or -1 if it has never been leased.
+	 */
+	private int getLeaseGeneration(long range){
+
+		int generation = -1;
+
+		while(this.leaseFile(range, generation + 1).exists()){
+			generation++;
+		}
+
+		return generation;
+	}
+
+	private boolean tryCreate(Path file, String content) throws IOException {
+
+		try {
+			Files.createFile(file);
+		} catch (FileAlreadyExistsException e) {
+			return false;
+		}
+
+		Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+
+		return true;
+	}
+
+	/*
+	 * Generates the maps of a leased range into a partial segment, renames the segment into place and marks the
+	 * range done. Gives up on the range if another worker has taken over the lease or finished it.
+	 */
+	private long generateRange(long range, int generation, String workerId, File segments) throws IOException {
+
+		long first = this.firstSeed + range * this.leaseSize;
+		long last = Math.min(this.firstSeed + this.seedCount, first + this.leaseSize);
+		File lease = this.leaseFile(range, generation);
+		File partial = new File(segments, first + PARTIAL_SUFFIX);
+		long accepted = 0;
+		long heartbeat = System.currentTimeMillis();
+
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(partial)));
+
+		try {
+			for(long seed = first; seed < last; seed++){
+
+				IceMap map = this.createGenerator(seed).generate();
+				int moves = new IceMapSolver(map).findOptimalMoveCount();
+
+				if(moves >= this.minMoves && moves <= this.maxMoves){
+					map.setName(this.generator + "-" + seed);
+					out.writeInt(moves);
+					map.writeBinary(out);
+					accepted++;
+				}
+
+				if(System.currentTimeMillis() - heartbeat >= HEARTBEAT_MILLIS){
+
+					if(!this.ownsLease(range, generation)){
+						System.err.println("Lost the lease of range " + range);
+						out.close();
+						partial.delete();
+						this.removeLeases(range, generation);
+						return 0;
+					}
+
+					lease.setLastModified(System.currentTimeMillis());
+					heartbeat = System.currentTimeMillis();
+				}
+			}
+		} finally {
+			out.close();
+		}
+
+		rename(partial.toPath(), new File(segments, first + SEGMENT_SUFFIX).toPath());
+
+		this.tryCreate(this.leaseFile(range, DONE_SUFFIX).toPath(), workerId);
+		this.removeLeases(range, generation);
+
+		return accepted;
+	}
+
+	/*
+	 * True while the range is not done and no other worker has taken over the given generation of its lease.
+	 */
+	private boolean ownsLease(long range, int generation){
+		return !this.leaseFile(range, DONE_SUFFIX).exists() && !this.leaseFile(range, generation + 1).exists();
+	}
+
+	/*
+	 * Deletes the lease files of a range once it is done. Until then, every generation is kept so that
+	 * counting generations always finds the newest one.
+	 */
+	private void removeLeases(long range, int generation){
+
+		if(!this.leaseFile(range, DONE_SUFFIX).exists()){
+			return;
+		}
+
+		// Newest first, so that a worker counting generations never finds a gap below an existing lease
+		for(int g = Math.max(generation, this.getLeaseGeneration(range)); g >= 0; g--){
+			this.leaseFile(range, g).delete();
+		}
+	}
+
+	/**
+	 * Merges the segments of every finished range, in order of seed, into an output directory. Maps that are
+	 * rotations or mirror images of an earlier map are left out.
+	 * @param output - The directory to write the maps and their index to. It is created if it doesn't exist.
+	 * @return The number of maps written
+	 * @throws IOException If a segment cannot be read or the output cannot be written
+	 */
+	public long merge(File output) throws IOException {
+
+		if(!output.isDirectory() && !output.mkdirs()){
+			throw new IOException("Cannot create directory " + output);
+		}
+
+		File[] workers = new File(this.directory, SEGMENT_DIRECTORY).listFiles();
+		if(workers == null){
+			throw new IOException("Cannot list the segments of " + this.directory);
+		}
+
+		DuplicateMapFilter duplicates = new DuplicateMapFilter();
+		PrintWriter index = new PrintWriter(new FileWriter(new File(output, INDEX_FILE_NAME)));
+		long written = 0;
+		long missing = 0;
+
+		try {
+			index.println("file,optimalMoveCount");
+
+			for(long range = 0; range < this.getRangeCount(); range++){
+
+				if(!this.leaseFile(range, DONE_SUFFIX).exists()){
+					missing++;
+					continue;
+				}
+
+				long first = this.firstSeed + range * this.leaseSize;
+
+				for(File worker : workers){
+
+					File segment = new File(worker, first + SEGMENT_SUFFIX);
+					if(!segment.isFile()) continue;
+
+					DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(segment)));
+
+					try {
+						while(true){
+
+							in.mark(1);
+							if(in.read() == -1) break;
+							in.reset();
+
+							// The move count was found when the map was accepted, so it is not solved again
+							int moves = in.readInt();
+							IceMap map = IceMap.readBinary(in);
+
+							if(duplicates.add(map, map.getName()) == null){
+								String fileName = map.getName() + ".icemap";
+								map.writeBinaryFile(new File(output, fileName));
+								index.println(fileName + "," + moves);
+								written++;
+							}
+						}
+					} finally {
+						in.close();
+					}
+				}
+			}
+		} finally {
+			index.close();
+		}
+
+		System.err.println(String.format("Merged %d maps, skipped %d duplicates", written, duplicates.getDuplicateCount()));
+
+		if(missing > 0){
+			System.err.println(String.format("%d of %d ranges are not done yet", missing, this.getRangeCount()));
+		}
+
+		return written;
+	}
+
+	private File leaseFile(long range, String suffix){
+		return new File(new File(this.directory, LEASE_DIRECTORY), (this.firstSeed + range * this.leaseSize) + suffix);
+	}
+
+	private File leaseFile(long range, int generation){
+		return this.leaseFile(range, "." + generation + LEASE_SUFFIX);
+	}
+
+	/*
+	 * Renames a file over any existing file, atomically where the file system supports it.
+	 */
+	private static void rename(Path source, Path target) throws IOException {
+		try {
+			Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	/*
+	 * The process id and host name, with characters that are not safe in file names replaced.
+	 */
+	private static String defaultWorkerId(){
+		return ManagementFactory.getRuntimeMXBean().getName().replaceAll("[^A-Za-z0-9._-]", "_");
+	}
+
+	private static void usage(){
+		System.err.println("Usage: DistributedGenerator init directory [-generator synthetic|evolutionary] [-width N] [-height N] [-ice D] "
+				+ "[-boulder D] [-target N] [-min N] [-max N] [-seeds FIRST COUNT] [-lease N] [-timeout SECONDS]");
+		System.err.println("       DistributedGenerator work directory [-id NAME]");
+		System.err.println("       DistributedGenerator merge directory output [-wait]");
+		System.exit(1);
+	}
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+
+		if(args.length < 2){
+			usage();
+		}
+
+		String command = args[0];
+		File directory = new File(args[1]);
+
+		if(command.equals("init")){
+
+			Properties job = new Properties();
+			String[][] options = {{"-generator", "generator"}, {"-width", "width"}, {"-height", "height"}, {"-ice", "ice"},
+					{"-boulder", "boulder"}, {"-target", "target"}, {"-min", "minMoves"}, {"-max", "maxMoves"},
+					{"-lease", "leaseSize"}, {"-timeout", "leaseTimeout"}};
+
+			for(int i = 2; i < args.length; i++){
+
+				boolean known = false;
+
+				for(String[] option : options){
+					if(args[i].equals(option[0]) && i + 1 < args.length){
+						job.setProperty(option[1], args[++i]);
+						known = true;
+						break;
+					}
+				}
+
+				if(!known && args[i].equals("-seeds") && i + 2 < args.length){
+					job.setProperty("firstSeed", args[++i]);
+					job.setProperty("seedCount", args[++i]);
+				}
+				else if(!known){
+					usage();
+				}
+			}
+
+			DistributedGenerator generator = createJob(directory, job);
+			System.err.println("Created a job of " + generator.getRangeCount() + " ranges in " + directory);
+		}
+		else if(command.equals("work")){
+
+			String workerId = args.length > 3 && args[2].equals("-id") ? args[3] : defaultWorkerId();
+			long start = System.nanoTime();
+
+			long accepted = new DistributedGenerator(directory).work(workerId);
+
+			System.err.println(String.format("Worker %s accepted %d maps in %.3f s", workerId, accepted, (System.nanoTime() - start) / 1000000000.0));
+		}
+		else if(command.equals("merge") && args.length > 2){
+
+			DistributedGenerator generator = new DistributedGenerator(directory);
+
+			if(args.length > 3 && args[3].equals("-wait")){
+				while(generator.getDoneRangeCount() < generator.getRangeCount()){
+					Thread.sleep(WAIT_MILLIS);
+				}
+			}
+
+			generator.merge(new File(args[2]));
+		}
+		else{
+			usage();
+		}
+	}
+
+}
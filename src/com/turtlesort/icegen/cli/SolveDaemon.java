@@ -0,0 +1,335 @@
+package com.turtlesort.icegen.cli;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.turtlesort.icegen.CancellationToken;
+import com.turtlesort.icegen.IceMap;
+import com.turtlesort.icegen.SolveReport;
+import com.turtlesort.icegen.generators.IceMapGenerator;
+import com.turtlesort.icegen.generators.SyntheticMapGenerator;
+import com.turtlesort.icegen.server.SolutionCache;
+import com.turtlesort.icegen.telemetry.LatencyHistogram;
+
+/**
+ * A long-running solver that answers requests one line at a time, so scripts that solve many small maps
+ * pay for starting the JVM and compiling the solver once instead of once per map. Before it reads the
+ * first request it generates and solves a number of synthetic maps to warm up the solver and generator code.
+ *
+ * Requests are read from standard input and answers written to standard output, or, with -port, from
+ * connections to a port on the loopback address. Each request is one line and gets one line of JSON back:
+ * <ul>
+ * <li>solve [-limit N] [-prune] [-solutions N] [-timeout MS] path: Solves a .tmx or .icemap file with the
+ * same options as {@link BatchSolver} and answers with {@link SolveReport#toJson(String, int)}. The path is
+ * the rest of the line, so it may contain spaces.</li>
+ * <li>ping: Answers {"pong":true}</li>
+ * <li>stats: Answers with the number of requests, solution cache counters and request latencies</li>
+ * <li>quit: Closes the connection, or stops the daemon when reading standard input</li>
+ * </ul>
+ * Requests that cannot be answered, including ones that fail while loading or solving the map, get
+ * {"error":"..."} back and the daemon carries on with the next request.
+ *
+ * Usage: SolveDaemon [-warmup N] [-cache N] [-port N]
+ */
+public class SolveDaemon {
+
+	public static final int DEFAULT_WARMUP_MAPS = 2000;
+	public static final int DEFAULT_CACHE_CAPACITY = 4096;
+
+	private static final int WARMUP_MAP_SIZE = 15;
+	private static final int WARMUP_MOVE_LIMIT = 10;
+	private static final long WARMUP_TIMEOUT_MILLIS = 20;
+	private static final double NANOSECONDS_PER_MICROSECOND = 1000.0;
+
+	private SolutionCache cache;
+	private AtomicLong requests;
+	private AtomicLong failedRequests;
+	private LatencyHistogram latency;
+
+	/**
+	 * @param cacheCapacity - The most solve reports to remember, or 0 to solve every request
+	 */
+	public SolveDaemon(int cacheCapacity){
+		this.cache = cacheCapacity > 0 ? new SolutionCache(cacheCapacity) : null;
+		this.requests = new AtomicLong();
+		this.failedRequests = new AtomicLong();
+		this.latency = new LatencyHistogram();
+	}
+
+	/**
+	 * Generates and solves synthetic maps the size of a typical puzzle so the JIT compiler has optimized
+	 * the solver before the first request arrives. The reports are not cached, and each map is searched for
+	 * a limited time so a map with very many solutions cannot hold up the warmup.
+	 * @param maps - Number of maps to solve
+	 * @return Time taken, in nanoseconds
+	 */
+	public long warmUp(int maps){
+
+		long start = System.nanoTime();
+		IceMapGenerator generator = new SyntheticMapGenerator(WARMUP_MAP_SIZE, WARMUP_MAP_SIZE, 0.65, 0.1, 1);
+
+		for(int i = 0; i < maps; i++){
+			IceMap map = generator.generate();
+			SolveReport.solve(map, WARMUP_MOVE_LIMIT, (i & 1) != 0, new CancellationToken(WARMUP_TIMEOUT_MILLIS)).toJson(null, 5);
+		}
+
+		return System.nanoTime() - start;
+	}
+
+	/**
+	 * Answers requests until the reader is exhausted or a quit request is read.
+	 * @param in - Where requests are read from
+	 * @param out - Where answers are written. It is flushed after every answer.
+	 */
+	public void serve(BufferedReader in, Writer out) throws IOException {
+
+		String line;
+
+		while((line = in.readLine()) != null){
+
+			line = line.trim();
+			if(line.isEmpty()){
+				continue;
+			}
+
+			String answer = this.handle(line);
+			if(answer == null){
+				return;
+			}
+
+			out.write(answer);
+			out.write('\n');
+			out.flush();
+		}
+	}
+
+	/**
+	 * @param request - A single request line
+	 * @return The answer as a line of JSON, or null if the request was to quit
+	 */
+	public String handle(String request){
+
+		if(request.equals("quit")){
+			return null;
+		}
+
+		long start = System.nanoTime();
+		this.requests.incrementAndGet();
+
+		try {
+			if(request.equals("ping")){
+				return "{\"pong\":true}";
+			}
+
+			if(request.equals("stats")){
+				return this.stats();
+			}
+
+			if(request.equals("solve") || request.startsWith("solve ")){
+				return this.solve(request.substring(5).trim());
+			}
+
+			return this.error("Unknown request " + request);
+
+		} catch (NumberFormatException e) {
+			return this.error("Invalid number: " + e.getMessage());
+
+		} catch (RuntimeException e) {
+			// One bad request must not stop the daemon
+			e.printStackTrace();
+			return this.error("The request failed: " + e);
+
+		} catch (LinkageError e) {
+			e.printStackTrace();
+			return this.error("The request failed: " + e);
+
+		} finally {
+			this.latency.record(System.nanoTime() - start);
+		}
+	}
+
+	private String solve(String arguments){
+
+		int moveLimit = 20;
+		boolean prune = false;
+		int maxSolutions = 5;
+		long timeout = 0;
+
+		String[] words = arguments.split(" ");
+		int i = 0;
+
+		for(; i < words.length; i++){
+
+			if(words[i].equals("-limit") && i + 1 < words.length){
+				moveLimit = Integer.parseInt(words[++i]);
+			}
+			else if(words[i].equals("-prune")){
+				prune = true;
+			}
+			else if(words[i].equals("-solutions") && i + 1 < words.length){
+				maxSolutions = Integer.parseInt(words[++i]);
+			}
+			else if(words[i].equals("-timeout") && i + 1 < words.length){
+				timeout = Long.parseLong(words[++i]);
+			}
+			else if(!words[i].isEmpty()){
+				break;
+			}
+		}
+
+		StringBuilder path = new StringBuilder();
+		for(; i < words.length; i++){
+			if(path.length() > 0) path.append(' ');
+			path.append(words[i]);
+		}
+
+		if(path.length() == 0){
+			return this.error("Usage: solve [-limit N] [-prune] [-solutions N] [-timeout MS] path");
+		}
+
+		if(moveLimit < 1){
+			return this.error("limit must be at least 1");
+		}
+
+		String source = path.toString();
+		IceMap map = BatchSolver.loadMap(new File(source));
+
+		if(map == null){
+			return this.error("Could not read map " + source);
+		}
+
+		try {
+			String key = this.cache != null ? SolutionCache.key(map, moveLimit, prune) : null;
+			SolveReport report = key != null ? this.cache.get(key) : null;
+
+			if(report != null){
+				report = report.reuseFor(map);
+			}
+			else{
+				CancellationToken token = timeout > 0 ? new CancellationToken(timeout) : null;
+				report = SolveReport.solve(map, moveLimit, prune, token);
+
+				// A report cut short by the timeout may be missing solutions
+				if(key != null && !report.isTruncated()){
+					this.cache.put(key, report);
+				}
+			}
+
+			return report.toJson(source, maxSolutions);
+
+		} finally {
+			map.close();
+		}
+	}
+
+	private String stats(){
+
+		StringBuilder json = new StringBuilder();
+		json.append("{\"requests\":").append(this.requests.get());
+		json.append(",\"failedRequests\":").append(this.failedRequests.get());
+
+		if(this.cache != null){
+			json.append(",\"cacheHits\":").append(this.cache.getHits());
+			json.append(",\"cacheMisses\":").append(this.cache.getMisses());
+			json.append(",\"cacheEntries\":").append(this.cache.size());
+		}
+
+		json.append(",\"latencyMicros\":{");
+		json.append("\"p50\":").append(this.latency.getValueAtPercentile(50) / NANOSECONDS_PER_MICROSECOND);
+		json.append(",\"p99\":").append(this.latency.getValueAtPercentile(99) / NANOSECONDS_PER_MICROSECOND);
+		json.append(",\"max\":").append(this.latency.getMax() / NANOSECONDS_PER_MICROSECOND);
+		json.append("}}");
+
+		return json.toString();
+	}
+
+	private String error(String message){
+		this.failedRequests.incrementAndGet();
+		return "{\"error\":" + SolveReport.quote(message) + "}";
+	}
+
+	/**
+	 * Accepts connections on the loopback address until the daemon is killed. Each connection is served
+	 * by its own thread.
+	 */
+	public void listen(int port) throws IOException {
+
+		ServerSocket server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+		System.err.println("Listening on " + server.getInetAddress().getHostAddress() + ":" + server.getLocalPort());
+
+		while(true){
+
+			final Socket socket = server.accept();
+
+			Thread thread = new Thread(new Runnable(){
+				@Override
+				public void run() {
+					try {
+						socket.setTcpNoDelay(true);
+						serve(new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8)),
+								new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8)));
+					} catch (IOException e) {
+						e.printStackTrace();
+					} finally {
+						try {
+							socket.close();
+						} catch (IOException e) {
+							e.printStackTrace();
+						}
+					}
+				}
+			}, "SolveDaemon " + socket.getRemoteSocketAddress());
+
+			thread.setDaemon(true);
+			thread.start();
+		}
+	}
+
+	public static void main(String[] args) throws IOException {
+
+		int warmupMaps = DEFAULT_WARMUP_MAPS;
+		int cacheCapacity = DEFAULT_CACHE_CAPACITY;
+		int port = -1;
+
+		for(int i = 0; i < args.length; i++){
+
+			if(args[i].equals("-warmup") && i + 1 < args.length){
+				warmupMaps = Integer.parseInt(args[++i]);
+			}
+			else if(args[i].equals("-cache") && i + 1 < args.length){
+				cacheCapacity = Integer.parseInt(args[++i]);
+			}
+			else if(args[i].equals("-port") && i + 1 < args.length){
+				port = Integer.parseInt(args[++i]);
+			}
+			else{
+				System.err.println("Usage: SolveDaemon [-warmup N] [-cache N] [-port N]");
+				System.exit(1);
+			}
+		}
+
+		SolveDaemon daemon = new SolveDaemon(cacheCapacity);
+
+		long warmup = daemon.warmUp(warmupMaps);
+		System.err.println(String.format("Warmed up with %d maps in %.0f ms", warmupMaps, warmup / 1000000.0));
+
+		if(port >= 0){
+			daemon.listen(port);
+		}
+		else{
+			daemon.serve(new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8)),
+					new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8)));
+		}
+	}
+
+}
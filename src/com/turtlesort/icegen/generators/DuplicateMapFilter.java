@@ -0,0 +1,69 @@
+package com.turtlesort.icegen.generators;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.turtlesort.icegen.CanonicalHash;
+import com.turtlesort.icegen.IceMapView;
+import com.turtlesort.icegen.MapSymmetry;
+
+/**
+ * Remembers the canonical hash of every map it has seen so that maps which are rotations or mirror images
+ * of an earlier map can be skipped before they are solved or stored. Safe to use from several threads.
+ */
+public class DuplicateMapFilter {
+
+	private ConcurrentMap<CanonicalHash, String> seen = new ConcurrentHashMap<CanonicalHash, String>();
+	private AtomicLong duplicates = new AtomicLong();
+
+	/**
+	 * Records a map unless an equivalent map was recorded before.
+	 * @param map - The map to record
+	 * @param source - A description of where the map came from, such as its file name
+	 * @return Null if the map is new, else the source of the equivalent map recorded first
+	 */
+	public String add(IceMapView map, String source){
+		return this.add(MapSymmetry.canonicalHash(map), source);
+	}
+
+	/**
+	 * Records a canonical hash computed with {@link MapSymmetry#canonicalHash(IceMapView)}.
+	 * @param hash - The canonical hash of a map
+	 * @param source - A description of where the map came from, such as its file name
+	 * @return Null if the hash is new, else the source recorded with it first
+	 */
+	public String add(CanonicalHash hash, String source){
+
+		String previous = this.seen.putIfAbsent(hash, source);
+
+		if(previous != null){
+			this.duplicates.incrementAndGet();
+		}
+
+		return previous;
+	}
+
+	/**
+	 * @param map - A map
+	 * @return True if the map or one of its rotations or mirror images has been recorded, else false
+	 */
+	public boolean contains(IceMapView map){
+		return this.seen.containsKey(MapSymmetry.canonicalHash(map));
+	}
+
+	/**
+	 * @return The number of different maps recorded
+	 */
+	public int size(){
+		return this.seen.size();
+	}
+
+	/**
+	 * @return The number of maps rejected as duplicates
+	 */
+	public long getDuplicateCount(){
+		return this.duplicates.get();
+	}
+
+}
@@ -0,0 +1,541 @@
+package com.turtlesort.icegen.generators;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.turtlesort.icegen.CanonicalHash;
+import com.turtlesort.icegen.IceMap;
+import com.turtlesort.icegen.IceMapSolver.Direction;
+import com.turtlesort.icegen.IceMapView;
+import com.turtlesort.icegen.MapSymmetry;
+import com.turtlesort.icegen.ReachabilityAnalyzer;
+import com.turtlesort.icegen.SlideTable;
+
+/**
+ * Evolves a population of maps towards a puzzle with a target number of moves and a single optimal solution,
+ * instead of generating maps at random until one happens to qualify. Each generation keeps its best maps and
+ * fills the rest of the population with children of maps chosen by tournament: the top rows of one parent
+ * joined to the bottom rows of another, with a few tiles changed at random.
+ *
+ * Maps are scored by their {@link Fitness}, which is evaluated for the whole population at once on a fork/join
+ * pool. Fitness does not change when a map is rotated or mirrored, so it is cached by the map's
+ * {@link MapSymmetry#canonicalHash(IceMapView) canonical hash} and surviving or rediscovered maps are not
+ * evaluated again.
+ *
+ * Like the SyntheticMapGenerator, maps have a solid border with the starting tile in the bottom row and the
+ * ending tile in the top row, and a generator created with the same arguments generates the same sequence
+ * of maps. If no map reaches the target within the generation limit, the best map found is returned.
+ */
+public class EvolutionaryMapGenerator implements IceMapGenerator {
+
+	public static final int DEFAULT_POPULATION_SIZE = 64;
+	public static final int DEFAULT_MAX_GENERATIONS = 500;
+
+	private static final int ELITE_COUNT = 2;
+	private static final int TOURNAMENT_SIZE = 3;
+	private static final double CROSSOVER_RATE = 0.7;
+	private static final double ENDPOINT_MUTATION_RATE = 0.1;
+	private static final int MAX_MUTATED_TILES = 3;
+	private static final int MAX_CACHED_FITNESS = 1 << 16;
+
+	private static final Comparator<Individual> BEST_FIRST = new Comparator<Individual>(){
+		@Override
+		public int compare(Individual a, Individual b) {
+			return Double.compare(b.fitness.getScore(), a.fitness.getScore());
+		}
+	};
+
+	private int width;
+	private int height;
+	private double iceDensity;
+	private double boulderDensity;
+	private int targetMoveCount;
+	private Random random;
+	private SyntheticMapGenerator seeds;
+
+	private int populationSize = DEFAULT_POPULATION_SIZE;
+	private int maxGenerations = DEFAULT_MAX_GENERATIONS;
+	private ForkJoinPool pool = ForkJoinPool.commonPool();
+
+	private ConcurrentMap<CanonicalHash, Fitness> fitnessCache = new ConcurrentHashMap<CanonicalHash, Fitness>();
+	private AtomicLong evaluations = new AtomicLong();
+	private AtomicLong cacheHits = new AtomicLong();
+	private int generations;		// Generations needed by the last call to generate()
+	private Fitness lastFitness;	// Fitness of the map returned by the last call to generate()
+
+	/**
+	 * @param width - Width of the generated maps, at least 3
+	 * @param height - Height of the generated maps, at least 3
+	 * @param iceDensity - Fraction of the inner tiles that are ice in the first generation and in mutations
+	 * @param boulderDensity - Fraction of the inner tiles that are solid in the first generation and in mutations
+	 * @param targetMoveCount - The number of moves the optimal solution of a generated map should have
+	 * @param seed - Seed for the random number generator
+	 */
+	public EvolutionaryMapGenerator(int width, int height, double iceDensity, double boulderDensity, int targetMoveCount, long seed){
+
+		if(targetMoveCount < 1){
+			throw new IllegalArgumentException("The target move count must be at least 1");
+		}
+
+		// Checks the dimensions and densities
+		this.seeds = new SyntheticMapGenerator(width, height, iceDensity, boulderDensity, seed);
+
+		this.width = width;
+		this.height = height;
+		this.iceDensity = iceDensity;
+		this.boulderDensity = boulderDensity;
+		this.targetMoveCount = targetMoveCount;
+		this.random = new Random(seed ^ 0x5DEECE66DL);
+	}
+
+	/**
+	 * @param populationSize - Number of maps in each generation, at least 4
+	 */
+	public void setPopulationSize(int populationSize){
+		if(populationSize < ELITE_COUNT + 2){
+			throw new IllegalArgumentException("The population must hold at least " + (ELITE_COUNT + 2) + " maps");
+		}
+		this.populationSize = populationSize;
+	}
+
+	/**
+	 * @param maxGenerations - The most generations to evolve before returning the best map found
+	 */
+	public void setMaxGenerations(int maxGenerations){
+		this.maxGenerations = maxGenerations;
+	}
+
+	/**
+	 * @param pool - The pool fitness is evaluated on. The common pool is used by default.
+	 */
+	public void setPool(ForkJoinPool pool){
+		this.pool = pool;
+	}
+
+	@Override
+	public IceMap generate() {
+
+		Individual[] population = new Individual[this.populationSize];
+		for(int i = 0; i < population.length; i++){
+			population[i] = new Individual(this.seeds.generate());
+		}
+
+		this.evaluate(population);
+		Arrays.sort(population, BEST_FIRST);
+
+		this.generations = 0;
+
+		while(!population[0].fitness.isTarget(this.targetMoveCount) && this.generations < this.maxGenerations){
+
+			Individual[] next = new Individual[population.length];
+			System.arraycopy(population, 0, next, 0, ELITE_COUNT);
+
+			for(int i = ELITE_COUNT; i < next.length; i++){
+
+				Individual parent = this.select(population);
+				IceMap child = this.random.nextDouble() < CROSSOVER_RATE
+						? this.crossover(parent.map, this.select(population).map)
+						: new IceMap(parent.map);
+
+				this.mutate(child);
+				next[i] = new Individual(child);
+			}
+
+			this.evaluate(next);
+			Arrays.sort(next, BEST_FIRST);
+
+			population = next;
+			this.generations++;
+		}
+
+		this.lastFitness = population[0].fitness;
+
+		return population[0].map;
+	}
+
+	/**
+	 * @return The number of generations evolved by the last call to {@link #generate()}
+	 */
+	public int getGenerations(){
+		return this.generations;
+	}
+
+	/**
+	 * @return The fitness of the map returned by the last call to {@link #generate()}, or null
+	 */
+	public Fitness getLastFitness(){
+		return this.lastFitness;
+	}
+
+	/**
+	 * @return The number of maps whose fitness has been evaluated, not counting cache hits
+	 */
+	public long getEvaluationCount(){
+		return this.evaluations.get();
+	}
+
+	/**
+	 * @return The number of maps whose fitness was found in the cache
+	 */
+	public long getCacheHitCount(){
+		return this.cacheHits.get();
+	}
+
+	/*
+	 * Scores every map of the population that has not been scored yet.
+	 */
+	private void evaluate(Individual[] population){
+
+		if(this.fitnessCache.size() > MAX_CACHED_FITNESS){
+			this.fitnessCache.clear();
+		}
+
+		this.pool.invoke(new EvaluationTask(population, 0, population.length));
+	}
+
+	/*
+	 * Picks the best of a few random maps of the population.
+	 */
+	private Individual select(Individual[] population){
+
+		Individual best = population[this.random.nextInt(population.length)];
+
+		for(int i = 1; i < TOURNAMENT_SIZE; i++){
+			Individual contender = population[this.random.nextInt(population.length)];
+			if(contender.fitness.getScore() > best.fitness.getScore()){
+				best = contender;
+			}
+		}
+
+		return best;
+	}
+
+	/*
+	 * Joins the rows of the first parent above a random row to the rows of the second parent below it. The
+	 * ending tile comes from the first parent and the starting tile from the second.
+	 */
+	private IceMap crossover(IceMap top, IceMap bottom){
+
+		IceMap child = new IceMap(top);
+		int split = 1 + this.random.nextInt(this.height - 1);
+
+		for(int y = split; y < this.height; y++){
+			for(int x = 0; x < this.width; x++){
+				child.setTileType(x, y, bottom.getTileType(x, y));
+			}
+		}
+
+		child.setStartTile(bottom.getStartX(), bottom.getStartY());
+		this.clearEndpoints(child);
+
+		return child;
+	}
+
+	/*
+	 * Changes one to a few inner tiles, and sometimes moves the starting or ending tile along its row.
+	 */
+	private void mutate(IceMap map){
+
+		int tiles = 1 + this.random.nextInt(MAX_MUTATED_TILES);
+
+		for(int i = 0; i < tiles; i++){
+
+			int x = 1 + this.random.nextInt(this.width - 2);
+			int y = 1 + this.random.nextInt(this.height - 2);
+			map.setTileType(x, y, this.randomTile());
+		}
+
+		// The old starting or ending tile goes back to being part of the solid border, and the floor tile that
+		// led to it becomes an ordinary inner tile again
+		if(this.random.nextDouble() < ENDPOINT_MUTATION_RATE){
+			if(this.random.nextBoolean()){
+				map.setTileType(map.getStartX(), map.getStartY(), IceMap.Tile.SOLID);
+				map.setTileType(map.getStartX(), map.getStartY() - 1, this.randomTile());
+				map.setStartTile(1 + this.random.nextInt(this.width - 2), this.height - 1);
+			}
+			else{
+				map.setTileType(map.getEndX(), map.getEndY(), IceMap.Tile.SOLID);
+				map.setTileType(map.getEndX(), map.getEndY() + 1, this.randomTile());
+				map.setEndTile(1 + this.random.nextInt(this.width - 2), 0);
+			}
+		}
+
+		this.clearEndpoints(map);
+	}
+
+	/*
+	 * Picks an inner tile type according to the ice and boulder densities.
+	 */
+	private IceMap.Tile randomTile(){
+
+		double roll = this.random.nextDouble();
+
+		if(roll < this.boulderDensity){
+			return IceMap.Tile.SOLID;
+		}
+
+		return roll < this.boulderDensity + this.iceDensity ? IceMap.Tile.ICE : IceMap.Tile.FLOOR;
+	}
+
+	/*
+	 * The tiles next to the starting and ending tiles are always floor, so that the player can step off the
+	 * starting tile and onto the ending tile.
+	 */
+	private void clearEndpoints(IceMap map){
+		map.setTileType(map.getStartX(), map.getStartY() - 1, IceMap.Tile.FLOOR);
+		map.setTileType(map.getEndX(), map.getEndY() + 1, IceMap.Tile.FLOOR);
+	}
+
+	/**
+	 * How close a map is to a good puzzle: the number of moves in its optimal solution, how many optimal and
+	 * near-optimal solutions it has, and how many tiles the player can reach but never leave towards the
+	 * ending tile. A solution here is any sequence of moves that ends on the ending tile, including ones
+	 * that revisit a tile.
+	 */
+	public static class Fitness {
+
+		// Solution counts stop growing here, which is plenty to tell one solution from many
+		private static final long MAX_COUNT = 1L << 40;
+
+		private final int optimalMoveCount;
+		private final long optimalSolutions;
+		private final long nearOptimalSolutions;
+		private final int deadEnds;
+		private final int targetMoveCount;
+
+		private Fitness(int optimalMoveCount, long optimalSolutions, long nearOptimalSolutions, int deadEnds, int targetMoveCount){
+			this.optimalMoveCount = optimalMoveCount;
+			this.optimalSolutions = optimalSolutions;
+			this.nearOptimalSolutions = nearOptimalSolutions;
+			this.deadEnds = deadEnds;
+			this.targetMoveCount = targetMoveCount;
+		}
+
+		/**
+		 * @param map - The map to evaluate
+		 * @param targetMoveCount - The number of moves the optimal solution should have
+		 * @return The map's fitness
+		 */
+		public static Fitness evaluate(IceMapView map, int targetMoveCount){
+
+			int width = map.getWidth();
+			int tiles = width * map.getHeight();
+			Direction[] directions = Direction.values();
+
+			// Breadth first search over the tiles the player can stop on, remembering where each slide ends
+			int[] order = new int[tiles];
+			int[] slides = new int[tiles * 4];
+			int[] moves = new int[tiles];
+			int reached = 0;
+			int end = map.getEndY() * width + map.getEndX();
+
+			Arrays.fill(moves, -1);
+
+			int start = map.getStartY() * width + map.getStartX();
+			moves[start] = 0;
+			order[reached++] = start;
+
+			for(int head = 0; head < reached; head++){
+
+				int current = order[head];
+				if(current == end) continue;
+
+				for(Direction d : directions){
+
+					int destination = SlideTable.slide(map, current % width, current / width, d);
+					slides[head * 4 + d.ordinal()] = destination;
+
+					if(moves[destination] == -1){
+						moves[destination] = moves[current] + 1;
+						order[reached++] = destination;
+					}
+				}
+			}
+
+			if(moves[end] <= 0){
+				return new Fitness(-1, 0, 0, 0, targetMoveCount);
+			}
+
+			int optimal = moves[end];
+
+			// Count the move sequences of each length that end on each tile, up to one move more than optimal.
+			// A sequence stops at the ending tile, and a move that goes nowhere does not count.
+			int[] position = new int[tiles];
+			for(int i = 0; i < reached; i++){
+				position[order[i]] = i;
+			}
+
+			long[] ways = new long[reached];
+			long[] nextWays = new long[reached];
+			long optimalSolutions = 0;
+			long nearOptimalSolutions = 0;
+			ways[0] = 1;
+
+			for(int length = 1; length <= optimal + 1; length++){
+
+				Arrays.fill(nextWays, 0);
+
+				for(int i = 0; i < reached; i++){
+
+					if(ways[i] == 0 || order[i] == end) continue;
+
+					for(int d = 0; d < 4; d++){
+						int destination = slides[i * 4 + d];
+						if(destination != order[i]){
+							int j = position[destination];
+							nextWays[j] = Math.min(MAX_COUNT, nextWays[j] + ways[i]);
+						}
+					}
+				}
+
+				long[] swap = ways;
+				ways = nextWays;
+				nextWays = swap;
+
+				if(length == optimal){
+					optimalSolutions = ways[position[end]];
+				}
+				else if(length == optimal + 1){
+					nearOptimalSolutions = ways[position[end]];
+				}
+			}
+
+			// Reachable tiles from which the ending tile cannot be reached
+			ReachabilityAnalyzer reachability = new ReachabilityAnalyzer(map);
+			int deadEnds = 0;
+
+			for(int i = 1; i < reached; i++){
+				if(!reachability.canReachEnd(order[i] % width, order[i] / width)){
+					deadEnds++;
+				}
+			}
+
+			return new Fitness(optimal, optimalSolutions, nearOptimalSolutions, deadEnds, targetMoveCount);
+		}
+
+		/**
+		 * @return The least number of moves needed to solve the map, or -1 if it cannot be solved
+		 */
+		public int getOptimalMoveCount(){
+			return this.optimalMoveCount;
+		}
+
+		/**
+		 * @return The number of solutions with the optimal number of moves
+		 */
+		public long getOptimalSolutions(){
+			return this.optimalSolutions;
+		}
+
+		/**
+		 * @return The number of solutions with one move more than optimal
+		 */
+		public long getNearOptimalSolutions(){
+			return this.nearOptimalSolutions;
+		}
+
+		/**
+		 * @return The number of tiles the player can stop on but cannot reach the ending tile from
+		 */
+		public int getDeadEnds(){
+			return this.deadEnds;
+		}
+
+		/**
+		 * @return True if the optimal solution has the target number of moves and is the only one
+		 */
+		public boolean isTarget(int targetMoveCount){
+			return this.optimalMoveCount == targetMoveCount && this.optimalSolutions == 1;
+		}
+
+		/**
+		 * The score falls by 10 for each move the optimal solution is away from the target and by the
+		 * logarithm of the number of optimal and (less so) near-optimal solutions. Each dead end adds a little,
+		 * up to 10 of them, since they punish guessing. Maps that cannot be solved score lowest.
+		 * @return The score of the map, where higher is better
+		 */
+		public double getScore(){
+
+			if(this.optimalMoveCount < 0){
+				return -1000;
+			}
+
+			return -10 * Math.abs(this.optimalMoveCount - this.targetMoveCount)
+					- Math.log(this.optimalSolutions)
+					- 0.1 * Math.log(1 + this.nearOptimalSolutions)
+					+ 0.2 * Math.min(this.deadEnds, 10);
+		}
+
+		@Override
+		public String toString(){
+			return "moves=" + this.optimalMoveCount + " optimal=" + this.optimalSolutions
+					+ " nearOptimal=" + this.nearOptimalSolutions + " deadEnds=" + this.deadEnds;
+		}
+	}
+
+	private static class Individual {
+
+		private IceMap map;
+		private Fitness fitness;	// Null until evaluated
+
+		private Individual(IceMap map){
+			this.map = map;
+		}
+	}
+
+	/*
+	 * Evaluates a range of the population, splitting it in half until it is small enough to evaluate directly.
+	 */
+	private class EvaluationTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+		private static final int THRESHOLD = 4;
+
+		private Individual[] population;
+		private int from;
+		private int to;
+
+		private EvaluationTask(Individual[] population, int from, int to){
+			this.population = population;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+
+			if(this.to - this.from > THRESHOLD){
+				int middle = (this.from + this.to) >>> 1;
+				invokeAll(new EvaluationTask(this.population, this.from, middle), new EvaluationTask(this.population, middle, this.to));
+				return;
+			}
+
+			for(int i = this.from; i < this.to; i++){
+
+				Individual individual = this.population[i];
+				if(individual.fitness != null) continue;
+
+				CanonicalHash hash = MapSymmetry.canonicalHash(individual.map);
+				Fitness fitness = fitnessCache.get(hash);
+
+				if(fitness != null){
+					cacheHits.incrementAndGet();
+				}
+				else{
+					fitness = Fitness.evaluate(individual.map, targetMoveCount);
+					evaluations.incrementAndGet();
+					fitnessCache.put(hash, fitness);
+				}
+
+				individual.fitness = fitness;
+			}
+		}
+	}
+
+}
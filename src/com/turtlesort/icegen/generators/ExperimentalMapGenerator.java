@@ -1,11 +1,13 @@
 package com.turtlesort.icegen.generators;
 
-import java.util.LinkedList;
 import java.util.Random;
 
+import com.turtlesort.icegen.AStarSolver;
 import com.turtlesort.icegen.IceMap;
-import com.turtlesort.icegen.IceMapSolver;
 import com.turtlesort.icegen.NavigationNode;
+import com.turtlesort.icegen.ReachabilityAnalyzer;
+import com.turtlesort.icegen.SolutionSet;
+import com.turtlesort.icegen.telemetry.GeneratorTelemetry;
 
 /**
  * Combines techniques used in the BasicMapGenerator and InterferenceMapGenerator.
@@ -13,18 +15,34 @@ import com.turtlesort.icegen.NavigationNode;
 public class ExperimentalMapGenerator implements IceMapGenerator{
 
 	private static final int MOVE_LIMIT = 15;
-	private static final boolean PRUNE_SOLUTION_SET = false;
 	
 	private Random random = new Random();
 	
+	private GeneratorTelemetry telemetry;		// Null unless telemetry has been requested
+	private long solveTime;						// Time spent solving the map currently being generated
+	
+	/**
+	 * @param telemetry - Where to record metrics about generated maps, or null to record nothing
+	 */
+	public void setTelemetry(GeneratorTelemetry telemetry){
+		this.telemetry = telemetry;
+	}
+	
 	@Override
 	public IceMap generate() {
 		
+		long start = System.nanoTime();
+		this.solveTime = 0;
+		
 		IceMap map = new IceMap(12 + random.nextInt(5), 12 + random.nextInt(5));
 		
 		initialize(map);
 		addRandomBoulders(map);
-		addInterference(map);
+		int attempts = addInterference(map);
+		
+		if(this.telemetry != null){
+			this.telemetry.recordMap(System.nanoTime() - start, this.solveTime, attempts);
+		}
 		
 		return map;
 	}
@@ -84,8 +102,14 @@ public class ExperimentalMapGenerator implements IceMapGenerator{
 					map.setTileType(x, y, IceMap.Tile.SOLID);
 					randomBoulders--;
 				}
+				else if(this.telemetry != null){
+					this.telemetry.recordRejection("adjacent_boulder");
+				}
 				
 			}
+			else if(this.telemetry != null){
+				this.telemetry.recordRejection("occupied_tile");
+			}
 			
 			attempts++;
 		}
@@ -94,12 +118,13 @@ public class ExperimentalMapGenerator implements IceMapGenerator{
 	/*
 	 * Solves the map. Takes the optimal solution and finds the move with the greatest
 	 * distance. Places a solid tile on the map that intereferes with that specific move.
-	 * Re-solve the map and repeat.
+	 * Re-solve the map and repeat. Returns the number of attempts made.
 	 */
-	private void addInterference(IceMap map) {
+	private int addInterference(IceMap map) {
 		
-		IceMapSolver solver = new IceMapSolver(map);
-		LinkedList<NavigationNode[]> solutions = solver.solve(MOVE_LIMIT, PRUNE_SOLUTION_SET);
+		AStarSolver solver = new AStarSolver(map);
+		ReachabilityAnalyzer reachability = new ReachabilityAnalyzer(map);
+		SolutionSet solutions = this.solve(solver);
 		int attempts = 0; 
 		
 		int lastX = -1;
@@ -108,6 +133,8 @@ public class ExperimentalMapGenerator implements IceMapGenerator{
 		
 		while(solutions.size() >= 1 && attempts < 1000){
 
+			boolean placed = false;
+			
 			// Deal with the first solution only
 			if(solutions.size() > 0){
 				
@@ -130,7 +157,7 @@ public class ExperimentalMapGenerator implements IceMapGenerator{
 				
 				if(maxDistance > 1){ // The move must achieve a distance of at least 3 tiles
 					
-					System.out.println("Interfering with a move of distance " + maxDistance);
+					this.log("Interfering with a move of distance " + maxDistance);
 					
 					NavigationNode a = solution[selectedMoveIndex];
 					NavigationNode b = solution[selectedMoveIndex+1];
@@ -151,15 +178,44 @@ public class ExperimentalMapGenerator implements IceMapGenerator{
 					lastTile = map.getTileType(x, y);
 					
 					map.setTileType(x, y, IceMap.Tile.SOLID);
+					reachability.tileChanged(x, y);
+					placed = true;
+				}
+				else if(this.telemetry != null){
+					this.telemetry.recordRejection("no_long_move");
 				}
 				
 			}
-			solutions = solver.solve(MOVE_LIMIT, PRUNE_SOLUTION_SET);
+			
+			// A placement that cuts the ending tile off entirely is reversed without solving the map again,
+			// since the map is then the same as when it was last solved
+			if(placed && !reachability.isSolvable()){
+				map.setTileType(lastX, lastY, lastTile);
+				reachability.tileChanged(lastX, lastY);
+				
+				if(this.telemetry != null){
+					this.telemetry.recordReversal();
+					this.telemetry.recordRejection("unreachable");
+				}
+			}
+			else{
+				solutions = this.solve(solver);
+			}
 			
 			if(solutions.isEmpty() && lastTile != null){
 				map.setTileType(lastX, lastY, lastTile);
-				solutions = solver.solve(MOVE_LIMIT, PRUNE_SOLUTION_SET);
-				System.out.println("Reversed last interference");
+				reachability.tileChanged(lastX, lastY);
+				solutions = this.solve(solver);
+				this.log("Reversed last interference");
+				
+				if(this.telemetry != null){
+					this.telemetry.recordReversal();
+					this.telemetry.recordRejection("unsolvable");
+				}
+			}
+			
+			if(this.telemetry != null){
+				this.telemetry.recordInterferenceAttempt(placed);
 			}
 			
 			attempts++;
@@ -167,8 +223,40 @@ public class ExperimentalMapGenerator implements IceMapGenerator{
 
 
 		
-		System.out.println("Attempts: " + attempts);
+		this.log("Attempts: " + attempts);
+		
+		return attempts;
+	}
+	
+	/*
+	 * Prints the progress of the generator, unless telemetry is recorded. The telemetry counts attempts
+	 * and reversals itself, and generators with telemetry run in the server, where nobody reads the output.
+	 */
+	private void log(String message){
+		if(this.telemetry == null){
+			System.out.println(message);
+		}
+	}
+	
+	/*
+	 * Finds the optimal solution of the map within the move limit, keeping track of the time spent solving
+	 * when telemetry is being recorded. Only the optimal solution is used, so the A* solver replaces a
+	 * search of every solution.
+	 */
+	private SolutionSet solve(AStarSolver solver){
+		
+		if(this.telemetry == null){
+			return solver.solve(MOVE_LIMIT, null).getSolutionSet();
+		}
+		
+		long start = System.nanoTime();
+		SolutionSet solutions = solver.solve(MOVE_LIMIT, null).getSolutionSet();
+		long elapsed = System.nanoTime() - start;
+		
+		this.solveTime += elapsed;
+		this.telemetry.recordSolve(elapsed);
 		
+		return solutions;
 	}
 
 	
@@ -1,11 +1,11 @@
 package com.turtlesort.icegen.generators;
 
-import java.util.LinkedList;
 import java.util.Random;
 
 import com.turtlesort.icegen.IceMap;
 import com.turtlesort.icegen.IceMapSolver;
 import com.turtlesort.icegen.NavigationNode;
+import com.turtlesort.icegen.SolutionSet;
 
 /**
  * Creates a trivially solvable IceMap then finds the optimal solution.
@@ -44,7 +44,7 @@ public class InterferenceMapGenerator implements IceMapGenerator {
 		map.setTileType(map.getEndX(), map.getEndY() + 1, IceMap.Tile.FLOOR);
 		
 		IceMapSolver solver = new IceMapSolver(map);
-		LinkedList<NavigationNode[]> solutions = solver.solve(10);
+		SolutionSet solutions = solver.solve(10, false, null).getSolutionSet();
 		int attempts = 0; 
 		
 		int lastX = -1;
@@ -88,7 +88,7 @@ public class InterferenceMapGenerator implements IceMapGenerator {
 
 				}
 			}
-			solutions = solver.solve(10);
+			solutions = solver.solve(10, false, null).getSolutionSet();
 			attempts++;
 		}
 		
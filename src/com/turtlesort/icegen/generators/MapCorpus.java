@@ -0,0 +1,255 @@
+package com.turtlesort.icegen.generators;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+
+import com.turtlesort.icegen.IceMap;
+import com.turtlesort.icegen.IceMapSolver;
+
+/**
+ * A deterministic collection of synthetic maps for benchmarks and regression tests of the solver. The
+ * corpus is made of families of maps, one for every combination of map size, ice density, and boulder
+ * density. Each family contains the same number of maps, generated by a {@link SyntheticMapGenerator}
+ * whose seed is derived from the corpus seed and the family's parameters. Building a corpus twice
+ * with the same arguments gives exactly the same maps.
+ * 
+ * Maps are generated lazily while iterating so that corpora containing very large maps don't have
+ * to fit in memory. The optimal number of moves of every map is recorded alongside it.
+ */
+public class MapCorpus implements Iterable<MapCorpus.Entry> {
+
+	/**
+	 * Map sizes from 16x16 to 2048x2048.
+	 */
+	public static final int[] DEFAULT_SIZES = {16, 32, 64, 128, 256, 512, 1024, 2048};
+	public static final double[] DEFAULT_ICE_DENSITIES = {0.5, 0.65, 0.8};
+	public static final double[] DEFAULT_BOULDER_DENSITIES = {0.05, 0.1, 0.15};
+	
+	/**
+	 * Name of the index file written by {@link #writeTo(File)}.
+	 */
+	public static final String INDEX_FILE_NAME = "corpus.csv";
+	
+	private long seed;
+	private int[] sizes;
+	private double[] iceDensities;
+	private double[] boulderDensities;
+	private int mapsPerFamily;
+	
+	/**
+	 * Creates a corpus using the default sizes and densities.
+	 * @param seed - Seed all maps are derived from
+	 * @param mapsPerFamily - Number of maps generated for every combination of size and densities
+	 */
+	public MapCorpus(long seed, int mapsPerFamily){
+		this(seed, DEFAULT_SIZES, DEFAULT_ICE_DENSITIES, DEFAULT_BOULDER_DENSITIES, mapsPerFamily);
+	}
+	
+	/**
+	 * @param seed - Seed all maps are derived from
+	 * @param sizes - Widths (and heights) of the maps
+	 * @param iceDensities - Fractions of inner tiles that are ice
+	 * @param boulderDensities - Fractions of inner tiles that are solid
+	 * @param mapsPerFamily - Number of maps generated for every combination of size and densities
+	 */
+	public MapCorpus(long seed, int[] sizes, double[] iceDensities, double[] boulderDensities, int mapsPerFamily){
+		this.seed = seed;
+		this.sizes = sizes.clone();
+		this.iceDensities = iceDensities.clone();
+		this.boulderDensities = boulderDensities.clone();
+		this.mapsPerFamily = mapsPerFamily;
+	}
+	
+	/**
+	 * @return The total number of maps in this corpus
+	 */
+	public int size(){
+		return this.sizes.length * this.iceDensities.length * this.boulderDensities.length * this.mapsPerFamily;
+	}
+	
+	/**
+	 * Creates the generator for a single family of maps. The maps of a family are the first
+	 * maps generated by the returned generator.
+	 * @param size - Width and height of the maps
+	 * @param iceDensity - Fraction of inner tiles that are ice
+	 * @param boulderDensity - Fraction of inner tiles that are solid
+	 */
+	public SyntheticMapGenerator getFamilyGenerator(int size, double iceDensity, double boulderDensity){
+		
+		long familySeed = this.seed;
+		familySeed = mix(familySeed + size);
+		familySeed = mix(familySeed + Double.doubleToLongBits(iceDensity));
+		familySeed = mix(familySeed + Double.doubleToLongBits(boulderDensity));
+		
+		return new SyntheticMapGenerator(size, size, iceDensity, boulderDensity, familySeed);
+	}
+	
+	/**
+	 * Iterates over every map of the corpus, family by family, in order of size, ice density, then boulder
+	 * density. Each map is generated and solved when it is reached.
+	 */
+	@Override
+	public Iterator<Entry> iterator() {
+		return new Iterator<Entry>(){
+			
+			private int family = 0;
+			private int index = 0;
+			private SyntheticMapGenerator generator;
+			
+			@Override
+			public boolean hasNext() {
+				return this.family < sizes.length * iceDensities.length * boulderDensities.length && mapsPerFamily > 0;
+			}
+
+			@Override
+			public Entry next() {
+				
+				if(!this.hasNext()){
+					throw new NoSuchElementException();
+				}
+				
+				int size = sizes[this.family / (iceDensities.length * boulderDensities.length)];
+				double iceDensity = iceDensities[(this.family / boulderDensities.length) % iceDensities.length];
+				double boulderDensity = boulderDensities[this.family % boulderDensities.length];
+				
+				if(this.generator == null){
+					this.generator = getFamilyGenerator(size, iceDensity, boulderDensity);
+				}
+				
+				IceMap map = this.generator.generate();
+				map.setName(String.format(Locale.ROOT, "s%d-i%.2f-b%.2f-%d", size, iceDensity, boulderDensity, this.index));
+				
+				Entry entry = new Entry(map, size, iceDensity, boulderDensity, this.index, new IceMapSolver(map).findOptimalMoveCount());
+				
+				if(++this.index == mapsPerFamily){
+					this.index = 0;
+					this.family++;
+					this.generator = null;
+				}
+				
+				return entry;
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+			
+		};
+	}
+	
+	/**
+	 * Writes every map of the corpus to the given directory as a binary map file named after the map, and
+	 * writes an index file (corpus.csv) listing each map's file, parameters, and optimal number of moves.
+	 * @param directory - The directory to write to. It is created if it doesn't exist.
+	 * @throws IOException If a file cannot be written
+	 */
+	public void writeTo(File directory) throws IOException {
+		
+		if(!directory.isDirectory() && !directory.mkdirs()){
+			throw new IOException("Cannot create directory " + directory);
+		}
+		
+		PrintWriter index = new PrintWriter(new FileWriter(new File(directory, INDEX_FILE_NAME)));
+		
+		try {
+			index.println("file,size,iceDensity,boulderDensity,index,optimalMoveCount");
+			
+			for(Entry entry : this){
+				String fileName = entry.getMap().getName() + ".icemap";
+				entry.getMap().writeBinaryFile(new File(directory, fileName));
+				
+				index.println(String.format(Locale.ROOT, "%s,%d,%.2f,%.2f,%d,%d", fileName, entry.getSize(), 
+						entry.getIceDensity(), entry.getBoulderDensity(), entry.getIndex(), entry.getOptimalMoveCount()));
+			}
+			
+		} finally {
+			index.close();
+		}
+	}
+	
+	/*
+	 * SplitMix64 finalizer, spreads similar seeds far apart.
+	 */
+	private static long mix(long z){
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+	
+	/**
+	 * Writes a corpus to a directory.
+	 * Usage: MapCorpus directory [seed] [mapsPerFamily]
+	 */
+	public static void main(String[] args) throws IOException {
+		
+		if(args.length < 1){
+			System.err.println("Usage: MapCorpus directory [seed] [mapsPerFamily]");
+			System.exit(1);
+		}
+		
+		long seed = args.length > 1 ? Long.parseLong(args[1]) : 0;
+		int mapsPerFamily = args.length > 2 ? Integer.parseInt(args[2]) : 1;
+		
+		new MapCorpus(seed, mapsPerFamily).writeTo(new File(args[0]));
+	}
+	
+	/**
+	 * A map of the corpus along with the parameters it was generated with.
+	 */
+	public static class Entry {
+		
+		private IceMap map;
+		private int size;
+		private double iceDensity;
+		private double boulderDensity;
+		private int index;
+		private int optimalMoveCount;
+		
+		public Entry(IceMap map, int size, double iceDensity, double boulderDensity, int index, int optimalMoveCount){
+			this.map = map;
+			this.size = size;
+			this.iceDensity = iceDensity;
+			this.boulderDensity = boulderDensity;
+			this.index = index;
+			this.optimalMoveCount = optimalMoveCount;
+		}
+		
+		public IceMap getMap() {
+			return map;
+		}
+
+		public int getSize() {
+			return size;
+		}
+
+		public double getIceDensity() {
+			return iceDensity;
+		}
+
+		public double getBoulderDensity() {
+			return boulderDensity;
+		}
+
+		/**
+		 * @return Position of the map within its family
+		 */
+		public int getIndex() {
+			return index;
+		}
+
+		/**
+		 * @return The least number of moves needed to solve the map, or -1 if it cannot be solved
+		 */
+		public int getOptimalMoveCount() {
+			return optimalMoveCount;
+		}
+		
+	}
+	
+}
@@ -0,0 +1,84 @@
+package com.turtlesort.icegen.generators;
+
+import java.util.Random;
+
+import com.turtlesort.icegen.IceMap;
+
+/**
+ * Generates maps of a fixed size where every inner tile is randomly chosen to be ice, solid, or floor
+ * according to the given densities. The edge tiles of the map are solid, the start tile is placed in
+ * the bottom row and the end tile in the top row, like the maps of the ExperimentalMapGenerator.
+ * 
+ * Maps are generated from a seeded random number generator, so two generators created with the same
+ * arguments generate the same sequence of maps. This makes the generator suitable for benchmarks and
+ * regression tests. Generated maps are not guaranteed to be solvable.
+ */
+public class SyntheticMapGenerator implements IceMapGenerator {
+
+	private int width;
+	private int height;
+	private double iceDensity;
+	private double boulderDensity;
+	private Random random;
+	
+	/**
+	 * @param width - Width of the generated maps, at least 3
+	 * @param height - Height of the generated maps, at least 3
+	 * @param iceDensity - Fraction of the inner tiles that are ice, between 0 and 1
+	 * @param boulderDensity - Fraction of the inner tiles that are solid, between 0 and 1. The
+	 * remaining inner tiles are floor tiles.
+	 * @param seed - Seed for the random number generator
+	 */
+	public SyntheticMapGenerator(int width, int height, double iceDensity, double boulderDensity, long seed){
+		
+		if(width < 3 || height < 3){
+			throw new IllegalArgumentException("Maps must be at least 3x3");
+		}
+		
+		if(iceDensity < 0 || boulderDensity < 0 || iceDensity + boulderDensity > 1){
+			throw new IllegalArgumentException("Densities must be positive and add up to at most 1");
+		}
+		
+		this.width = width;
+		this.height = height;
+		this.iceDensity = iceDensity;
+		this.boulderDensity = boulderDensity;
+		this.random = new Random(seed);
+	}
+	
+	@Override
+	public IceMap generate() {
+		
+		IceMap map = new IceMap(this.width, this.height);
+		
+		for(int x = 0; x < this.width; x++){
+			for(int y = 0; y < this.height; y++){
+				
+				if(x == 0 || y == 0 || x == this.width - 1 || y == this.height - 1){
+					map.setTileType(x, y, IceMap.Tile.SOLID);
+					continue;
+				}
+				
+				double roll = this.random.nextDouble();
+				
+				if(roll < this.boulderDensity){
+					map.setTileType(x, y, IceMap.Tile.SOLID);
+				}
+				else if(roll >= this.boulderDensity + this.iceDensity){
+					map.setTileType(x, y, IceMap.Tile.FLOOR);
+				}
+			}
+		}
+		
+		// The start tile is placed at the bottom of the map
+		map.setStartTile(1 + this.random.nextInt(this.width - 2), this.height - 1); // last row, but avoid corners
+		map.setTileType(map.getStartX(), map.getStartY() - 1, IceMap.Tile.FLOOR);
+		
+		// The end tile is placed at the top of the map
+		map.setEndTile(1 + this.random.nextInt(this.width - 2), 0); // first row, but avoid corners
+		map.setTileType(map.getEndX(), map.getEndY() + 1, IceMap.Tile.FLOOR);
+		
+		return map;
+	}
+
+}
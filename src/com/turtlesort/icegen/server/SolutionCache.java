@@ -0,0 +1,132 @@
+package com.turtlesort.icegen.server;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.turtlesort.icegen.IceMapView;
+import com.turtlesort.icegen.SolveReport;
+
+/**
+ * A least recently used cache of solve reports, keyed by a hash of the map's content and the solver settings.
+ * Two maps with the same tiles, starting tile and ending tile share an entry no matter what they are named.
+ * All methods are safe to call from several threads.
+ */
+public class SolutionCache {
+
+	private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+	
+	private final int capacity;
+	private final Map<String, SolveReport> entries;
+	private final AtomicLong hits;
+	private final AtomicLong misses;
+	
+	/**
+	 * @param capacity - The most reports to keep
+	 */
+	public SolutionCache(final int capacity){
+		this.capacity = capacity;
+		this.entries = new LinkedHashMap<String, SolveReport>(16, 0.75f, true){
+			private static final long serialVersionUID = 1L;
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, SolveReport> eldest) {
+				return size() > capacity;
+			}
+		};
+		this.hits = new AtomicLong();
+		this.misses = new AtomicLong();
+	}
+	
+	/**
+	 * @return The cached report for the key, or null if there is none
+	 */
+	public SolveReport get(String key){
+		
+		SolveReport report;
+		synchronized(this.entries){
+			report = this.entries.get(key);
+		}
+		
+		if(report != null){
+			this.hits.incrementAndGet();
+		}
+		else{
+			this.misses.incrementAndGet();
+		}
+		
+		return report;
+	}
+	
+	public void put(String key, SolveReport report){
+		synchronized(this.entries){
+			this.entries.put(key, report);
+		}
+	}
+	
+	public int size(){
+		synchronized(this.entries){
+			return this.entries.size();
+		}
+	}
+	
+	public int getCapacity(){
+		return this.capacity;
+	}
+	
+	public long getHits(){
+		return this.hits.get();
+	}
+	
+	public long getMisses(){
+		return this.misses.get();
+	}
+	
+	/**
+	 * @return A SHA-256 hash, in hexadecimal, of the map's dimensions, starting tile, ending tile and tiles
+	 * together with the solver settings
+	 */
+	public static String key(IceMapView map, int moveLimit, boolean pruneSolutionSet){
+		
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			// Every Java platform is required to support SHA-256
+			throw new IllegalStateException(e);
+		}
+		
+		int width = map.getWidth();
+		int height = map.getHeight();
+		
+		byte[] header = new byte[7 * 4 + 1];
+		int[] values = {width, height, map.getStartX(), map.getStartY(), map.getEndX(), map.getEndY(), moveLimit};
+		for(int i = 0; i < values.length; i++){
+			header[i * 4] = (byte)(values[i] >>> 24);
+			header[i * 4 + 1] = (byte)(values[i] >>> 16);
+			header[i * 4 + 2] = (byte)(values[i] >>> 8);
+			header[i * 4 + 3] = (byte)values[i];
+		}
+		header[header.length - 1] = (byte)(pruneSolutionSet ? 1 : 0);
+		digest.update(header);
+		
+		byte[] row = new byte[width];
+		for(int y = 0; y < height; y++){
+			for(int x = 0; x < width; x++){
+				row[x] = (byte)map.getTileType(x, y).ordinal();
+			}
+			digest.update(row);
+		}
+		
+		byte[] hash = digest.digest();
+		char[] hex = new char[hash.length * 2];
+		for(int i = 0; i < hash.length; i++){
+			hex[i * 2] = HEX_DIGITS[(hash[i] >> 4) & 0xF];
+			hex[i * 2 + 1] = HEX_DIGITS[hash[i] & 0xF];
+		}
+		
+		return new String(hex);
+	}
+	
+}
@@ -0,0 +1,280 @@
+package com.turtlesort.icegen.server;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.turtlesort.icegen.CancellationToken;
+import com.turtlesort.icegen.IceMapView;
+import com.turtlesort.icegen.SolveReport;
+import com.turtlesort.icegen.telemetry.LatencyHistogram;
+
+/**
+ * Collects solve requests that arrive close together into small batches before handing them to a pool of
+ * solver threads. Requests in a batch for the same map (and settings) are solved once, as are requests for a
+ * map that is still being solved for an earlier batch. Finished reports are stored in a {@link SolutionCache},
+ * and requests for a cached map are answered without queueing at all. A request answered by another request's
+ * solve gets a copy of the report (see {@link SolveReport#reuseFor(IceMapView)}) named after its own map.
+ */
+public class SolveBatcher {
+
+	private final SolutionCache cache;
+	private final int maxBatchSize;
+	private final long batchWindow;
+	private final long timeBudget;
+	
+	private final BlockingQueue<Job> queue;
+	private final Map<String, List<Job>> inFlight;
+	private final ExecutorService solvers;
+	private final Thread batchThread;
+	private volatile boolean running;
+	
+	private final AtomicLong batches;
+	private final AtomicLong coalesced;
+	private final AtomicLong solves;
+	private final LatencyHistogram batchSizes;
+	private final LatencyHistogram solveTime;
+	
+	/**
+	 * @param cache - Where finished reports are stored
+	 * @param threads - Number of solver threads
+	 * @param maxBatchSize - The most requests to collect into one batch
+	 * @param batchWindowMicros - How long to wait for more requests after the first request of a batch arrives
+	 * @param timeBudgetMillis - How long a single map may be searched for solutions, or 0 for no limit.
+	 * Reports of searches that ran out of time are not cached.
+	 */
+	public SolveBatcher(SolutionCache cache, int threads, int maxBatchSize, long batchWindowMicros, long timeBudgetMillis){
+		
+		this.cache = cache;
+		this.maxBatchSize = maxBatchSize;
+		this.batchWindow = TimeUnit.MICROSECONDS.toNanos(batchWindowMicros);
+		this.timeBudget = timeBudgetMillis;
+		
+		this.queue = new LinkedBlockingQueue<Job>();
+		this.inFlight = new HashMap<String, List<Job>>();
+		this.solvers = Executors.newFixedThreadPool(threads, new ThreadFactory(){
+			private int count = 0;
+			@Override
+			public synchronized Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "SolveBatcher solver " + (++count));
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		
+		this.batches = new AtomicLong();
+		this.coalesced = new AtomicLong();
+		this.solves = new AtomicLong();
+		this.batchSizes = new LatencyHistogram();
+		this.solveTime = new LatencyHistogram();
+		
+		this.running = true;
+		this.batchThread = new Thread(new Runnable(){
+			@Override
+			public void run() {
+				runBatches();
+			}
+		}, "SolveBatcher");
+		this.batchThread.setDaemon(true);
+		this.batchThread.start();
+	}
+	
+	/**
+	 * Queues a map to be solved. Pass an {@link com.turtlesort.icegen.IceMapSnapshot} if the map may be
+	 * modified before the returned future is done.
+	 * @return A future holding the report
+	 */
+	public Future<SolveReport> submit(IceMapView map, int moveLimit, boolean pruneSolutionSet){
+		
+		String key = SolutionCache.key(map, moveLimit, pruneSolutionSet);
+		SolveReport cached = this.cache.get(key);
+		
+		if(cached != null){
+			return CompletableFuture.completedFuture(cached.reuseFor(map));
+		}
+		
+		Job job = new Job(key, map, moveLimit, pruneSolutionSet);
+		this.queue.add(job);
+		
+		return job.result;
+	}
+	
+	/**
+	 * Stops the batch and solver threads. Requests that have not been solved yet fail.
+	 */
+	public void shutdown(){
+		
+		this.running = false;
+		this.batchThread.interrupt();
+		this.solvers.shutdownNow();
+		
+		Job job;
+		while((job = this.queue.poll()) != null){
+			job.result.cancel(false);
+		}
+	}
+	
+	public long getBatches(){
+		return this.batches.get();
+	}
+	
+	/**
+	 * @return The number of requests that were answered by a solve started for another request
+	 */
+	public long getCoalesced(){
+		return this.coalesced.get();
+	}
+	
+	public long getSolves(){
+		return this.solves.get();
+	}
+	
+	public LatencyHistogram getBatchSizes(){
+		return this.batchSizes;
+	}
+	
+	/**
+	 * @return Time taken by each solve, in nanoseconds
+	 */
+	public LatencyHistogram getSolveTime(){
+		return this.solveTime;
+	}
+	
+	private void runBatches(){
+		
+		List<Job> batch = new ArrayList<Job>(this.maxBatchSize);
+		
+		while(this.running){
+			try {
+				batch.add(this.queue.take());
+				
+				long deadline = System.nanoTime() + this.batchWindow;
+				while(batch.size() < this.maxBatchSize){
+					
+					Job next = this.queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+					if(next == null){
+						break;
+					}
+					batch.add(next);
+				}
+				
+				this.dispatch(batch);
+				batch.clear();
+				
+			} catch (InterruptedException e) {
+				for(Job job : batch){
+					job.result.cancel(false);
+				}
+				return;
+			}
+		}
+	}
+	
+	/**
+	 * Starts one solve for each distinct map in the batch that is not already being solved.
+	 */
+	private void dispatch(List<Job> batch){
+		
+		this.batches.incrementAndGet();
+		this.batchSizes.record(batch.size());
+		
+		Map<String, Job> distinct = new LinkedHashMap<String, Job>();
+		
+		synchronized(this.inFlight){
+			for(Job job : batch){
+				
+				List<Job> waiting = this.inFlight.get(job.key);
+				
+				if(waiting != null){
+					waiting.add(job);
+					this.coalesced.incrementAndGet();
+				}
+				else{
+					waiting = new ArrayList<Job>();
+					waiting.add(job);
+					this.inFlight.put(job.key, waiting);
+					distinct.put(job.key, job);
+				}
+			}
+		}
+		
+		for(final Job job : distinct.values()){
+			this.solvers.execute(new Runnable(){
+				@Override
+				public void run() {
+					solve(job);
+				}
+			});
+		}
+	}
+	
+	private void solve(Job job){
+		
+		SolveReport report = null;
+		Throwable error = null;
+		
+		try {
+			CancellationToken token = this.timeBudget > 0 ? new CancellationToken(this.timeBudget) : null;
+			report = SolveReport.solve(job.map, job.moveLimit, job.pruneSolutionSet, token);
+			
+			this.solves.incrementAndGet();
+			this.solveTime.record(report.getSolveTime());
+			
+			if(!report.isTruncated()){
+				this.cache.put(job.key, report);
+			}
+			
+		} catch (RuntimeException e) {
+			error = e;
+		} catch (Error e) {
+			error = e;
+		}
+		
+		List<Job> waiting;
+		synchronized(this.inFlight){
+			waiting = this.inFlight.remove(job.key);
+		}
+		
+		// Requests coalesced with this one may be for maps with other names
+		for(Job other : waiting){
+			if(error != null){
+				other.result.completeExceptionally(error);
+			}
+			else if(other == job){
+				other.result.complete(report);
+			}
+			else{
+				other.result.complete(report.reuseFor(other.map));
+			}
+		}
+	}
+	
+	private static class Job {
+		
+		final String key;
+		final IceMapView map;
+		final int moveLimit;
+		final boolean pruneSolutionSet;
+		final CompletableFuture<SolveReport> result;
+		
+		Job(String key, IceMapView map, int moveLimit, boolean pruneSolutionSet){
+			this.key = key;
+			this.map = map;
+			this.moveLimit = moveLimit;
+			this.pruneSolutionSet = pruneSolutionSet;
+			this.result = new CompletableFuture<SolveReport>();
+		}
+	}
+	
+}
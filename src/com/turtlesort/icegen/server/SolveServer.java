@@ -0,0 +1,478 @@
+package com.turtlesort.icegen.server;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import com.turtlesort.icegen.IceMap;
+import com.turtlesort.icegen.IceMapSolver;
+import com.turtlesort.icegen.SolveReport;
+import com.turtlesort.icegen.generators.BasicMapGenerator;
+import com.turtlesort.icegen.generators.ExperimentalMapGenerator;
+import com.turtlesort.icegen.generators.IceMapGenerator;
+import com.turtlesort.icegen.generators.InterferenceMapGenerator;
+import com.turtlesort.icegen.generators.SyntheticMapGenerator;
+import com.turtlesort.icegen.telemetry.GeneratorTelemetry;
+import com.turtlesort.icegen.telemetry.LatencyHistogram;
+import com.turtlesort.icegen.visualizer.TextVisualizer;
+
+/**
+ * A small HTTP server that solves and generates maps, meant for game clients that validate puzzles built by
+ * players. It listens on the loopback address only. Solves go through a {@link SolveBatcher}, so concurrent
+ * requests are batched and repeated maps are answered from a {@link SolutionCache}.
+ * 
+ * <ul>
+ * <li>POST /solve?limit=20&amp;prune=true&amp;solutions=5 - The body is a map in the format written by
+ * {@link IceMap#writeBinary(java.io.OutputStream)}. Responds with {@link SolveReport#toJson(String, int)}.</li>
+ * <li>GET /generate?generator=synthetic&amp;width=32&amp;height=32&amp;ice=0.65&amp;boulder=0.1&amp;seed=1 -
+ * Responds with JSON holding the optimal move count, the map in the binary format (Base64 encoded)
+ * and the map as text. The generator can also be "basic", "experimental" or "interference".</li>
+ * <li>GET /metrics - Server and generator metrics in the Prometheus text exposition format.</li>
+ * </ul>
+ */
+public class SolveServer {
+
+	public static final int DEFAULT_PORT = 8087;
+	
+	private static final int MAX_REQUEST_SIZE = 16 * 1024 * 1024;
+	private static final int MAX_MOVE_LIMIT = 64;
+	private static final int MAX_GENERATED_TILES = 1024 * 1024;
+	private static final int CACHE_CAPACITY = 4096;
+	private static final int MAX_BATCH_SIZE = 64;
+	private static final long BATCH_WINDOW_MICROS = 500;
+	private static final long SOLVE_TIME_BUDGET_MILLIS = 5000;
+	private static final double NANOSECONDS_PER_SECOND = 1000000000.0;
+	private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+	
+	private HttpServer server;
+	private ExecutorService requestExecutor;
+	private SolutionCache cache;
+	private SolveBatcher batcher;
+	private GeneratorTelemetry generatorTelemetry;
+	
+	private AtomicLong solveRequests;
+	private AtomicLong generateRequests;
+	private AtomicLong failedRequests;
+	private LatencyHistogram solveLatency;
+	private LatencyHistogram generateLatency;
+	
+	/**
+	 * Creates a server on the loopback address. Call {@link #start()} to begin handling requests.
+	 * @param port - The port to listen on, or 0 to pick a free port
+	 * @param threads - Number of threads handling requests, and number of solver threads
+	 * @throws IOException If the port cannot be bound
+	 */
+	public SolveServer(int port, int threads) throws IOException {
+		
+		this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+		this.requestExecutor = Executors.newFixedThreadPool(threads);
+		this.cache = new SolutionCache(CACHE_CAPACITY);
+		this.batcher = new SolveBatcher(this.cache, threads, MAX_BATCH_SIZE, BATCH_WINDOW_MICROS, SOLVE_TIME_BUDGET_MILLIS);
+		this.generatorTelemetry = new GeneratorTelemetry("experimental");
+		
+		this.solveRequests = new AtomicLong();
+		this.generateRequests = new AtomicLong();
+		this.failedRequests = new AtomicLong();
+		this.solveLatency = new LatencyHistogram();
+		this.generateLatency = new LatencyHistogram();
+		
+		this.server.setExecutor(this.requestExecutor);
+		
+		this.server.createContext("/solve", new HttpHandler(){
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				handleSolve(exchange);
+			}
+		});
+		
+		this.server.createContext("/generate", new HttpHandler(){
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				handleGenerate(exchange);
+			}
+		});
+		
+		this.server.createContext("/metrics", new HttpHandler(){
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				handleMetrics(exchange);
+			}
+		});
+	}
+	
+	public void start(){
+		this.server.start();
+	}
+	
+	/**
+	 * Stops accepting requests, waits up to a second for running requests to finish, then stops every thread.
+	 */
+	public void stop(){
+		this.server.stop(1);
+		this.batcher.shutdown();
+		this.requestExecutor.shutdownNow();
+	}
+	
+	public InetSocketAddress getAddress(){
+		return this.server.getAddress();
+	}
+	
+	public SolutionCache getCache(){
+		return this.cache;
+	}
+	
+	public SolveBatcher getBatcher(){
+		return this.batcher;
+	}
+	
+	private void handleSolve(HttpExchange exchange) throws IOException {
+		
+		long start = System.nanoTime();
+		this.solveRequests.incrementAndGet();
+		
+		try {
+			if(!exchange.getRequestMethod().equals("POST")){
+				this.sendError(exchange, 405, "Use POST");
+				return;
+			}
+			
+			Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+			int moveLimit = getInt(query, "limit", 20);
+			boolean prune = Boolean.parseBoolean(getString(query, "prune", "false"));
+			int solutions = getInt(query, "solutions", 5);
+			
+			if(moveLimit < 1 || moveLimit > MAX_MOVE_LIMIT){
+				this.sendError(exchange, 400, "limit must be between 1 and " + MAX_MOVE_LIMIT);
+				return;
+			}
+			
+			byte[] body = readBody(exchange.getRequestBody());
+			if(body == null){
+				this.sendError(exchange, 413, "Maps are limited to " + MAX_REQUEST_SIZE + " bytes");
+				return;
+			}
+			
+			IceMap map = parseMap(body);
+			if(map == null){
+				this.sendError(exchange, 400, "The body is not a binary map");
+				return;
+			}
+			
+			SolveReport report = this.batcher.submit(map, moveLimit, prune).get();
+			this.send(exchange, 200, "application/json", report.toJson(null, solutions));
+			
+		} catch (NumberFormatException e) {
+			this.sendError(exchange, 400, "Invalid number: " + e.getMessage());
+			
+		} catch (ExecutionException e) {
+			e.getCause().printStackTrace();
+			this.sendError(exchange, 500, "The map could not be solved");
+			
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			this.sendError(exchange, 503, "The server is stopping");
+			
+		} catch (IllegalArgumentException e) {
+			this.sendError(exchange, 400, e.getMessage());
+			
+		} catch (RuntimeException e) {
+			e.printStackTrace();
+			this.sendError(exchange, 500, "The map could not be solved");
+			
+		} finally {
+			this.solveLatency.record(System.nanoTime() - start);
+			exchange.close();
+		}
+	}
+	
+	private void handleGenerate(HttpExchange exchange) throws IOException {
+		
+		long start = System.nanoTime();
+		this.generateRequests.incrementAndGet();
+		
+		try {
+			if(!exchange.getRequestMethod().equals("GET")){
+				this.sendError(exchange, 405, "Use GET");
+				return;
+			}
+			
+			Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+			String name = getString(query, "generator", "synthetic");
+			IceMapGenerator generator;
+			
+			if(name.equals("synthetic") || name.equals("basic")){
+				
+				int width = getInt(query, "width", 32);
+				int height = getInt(query, "height", 32);
+				
+				if(width < 4 || height < 4 || (long)width * height > MAX_GENERATED_TILES){
+					this.sendError(exchange, 400, "Maps must be at least 4x4 and at most " + MAX_GENERATED_TILES + " tiles");
+					return;
+				}
+				
+				if(name.equals("synthetic")){
+					double ice = getDouble(query, "ice", 0.65);
+					double boulder = getDouble(query, "boulder", 0.1);
+					long seed = getLong(query, "seed", System.nanoTime());
+					
+					if(ice < 0 || boulder < 0 || ice + boulder > 1){
+						this.sendError(exchange, 400, "ice and boulder must be non-negative and add up to at most 1");
+						return;
+					}
+					
+					generator = new SyntheticMapGenerator(width, height, ice, boulder, seed);
+				}
+				else{
+					// The basic generator picks sizes from its minimum up to, but not including, its maximum
+					generator = new BasicMapGenerator(width, height, width + 1, height + 1);
+				}
+			}
+			else if(name.equals("experimental")){
+				ExperimentalMapGenerator experimental = new ExperimentalMapGenerator();
+				experimental.setTelemetry(this.generatorTelemetry);
+				generator = experimental;
+			}
+			else if(name.equals("interference")){
+				generator = new InterferenceMapGenerator();
+			}
+			else{
+				this.sendError(exchange, 400, "Unknown generator " + name);
+				return;
+			}
+			
+			IceMap map = generator.generate();
+			
+			ByteArrayOutputStream binary = new ByteArrayOutputStream();
+			map.writeBinary(binary);
+			
+			StringBuilder json = new StringBuilder();
+			json.append("{\"name\":").append(map.getName() != null ? SolveReport.quote(map.getName()) : "null");
+			json.append(",\"width\":").append(map.getWidth());
+			json.append(",\"height\":").append(map.getHeight());
+			json.append(",\"optimalMoveCount\":").append(new IceMapSolver(map).findOptimalMoveCount());
+			json.append(",\"map\":").append(SolveReport.quote(Base64.getEncoder().encodeToString(binary.toByteArray())));
+			json.append(",\"text\":").append(SolveReport.quote(new TextVisualizer(map).renderToString()));
+			json.append('}');
+			
+			this.send(exchange, 200, "application/json", json.toString());
+			
+		} catch (NumberFormatException e) {
+			this.sendError(exchange, 400, "Invalid number: " + e.getMessage());
+			
+		} catch (IllegalArgumentException e) {
+			this.sendError(exchange, 400, e.getMessage());
+			
+		} catch (RuntimeException e) {
+			e.printStackTrace();
+			this.sendError(exchange, 500, "The map could not be generated");
+			
+		} finally {
+			this.generateLatency.record(System.nanoTime() - start);
+			exchange.close();
+		}
+	}
+	
+	private void handleMetrics(HttpExchange exchange) throws IOException {
+		
+		try {
+			StringWriter text = new StringWriter();
+			PrintWriter out = new PrintWriter(text);
+			
+			writeCounter(out, "icegen_server_requests_total", "Requests handled, by endpoint", "endpoint=\"solve\"", this.solveRequests.get());
+			out.println("icegen_server_requests_total{endpoint=\"generate\"} " + this.generateRequests.get());
+			writeCounter(out, "icegen_server_failed_requests_total", "Requests answered with an error", "", this.failedRequests.get());
+			writeCounter(out, "icegen_server_cache_hits_total", "Solve requests answered from the solution cache", "", this.cache.getHits());
+			writeCounter(out, "icegen_server_cache_misses_total", "Solve requests not found in the solution cache", "", this.cache.getMisses());
+			writeCounter(out, "icegen_server_batches_total", "Batches of solve requests dispatched", "", this.batcher.getBatches());
+			writeCounter(out, "icegen_server_coalesced_total", "Solve requests answered by a solve started for another request", "", this.batcher.getCoalesced());
+			writeCounter(out, "icegen_server_solves_total", "Maps solved", "", this.batcher.getSolves());
+			
+			out.println("# HELP icegen_server_cache_entries Reports in the solution cache");
+			out.println("# TYPE icegen_server_cache_entries gauge");
+			out.println("icegen_server_cache_entries " + this.cache.size());
+			
+			writeSummary(out, "icegen_server_request_seconds", "Time taken to answer a request, by endpoint", "endpoint=\"solve\"", this.solveLatency, NANOSECONDS_PER_SECOND, true);
+			writeSummary(out, "icegen_server_request_seconds", null, "endpoint=\"generate\"", this.generateLatency, NANOSECONDS_PER_SECOND, false);
+			writeSummary(out, "icegen_server_solve_seconds", "Time taken by a single solve", "", this.batcher.getSolveTime(), NANOSECONDS_PER_SECOND, true);
+			writeSummary(out, "icegen_server_batch_size", "Solve requests per batch", "", this.batcher.getBatchSizes(), 1, true);
+			out.flush();
+			
+			this.generatorTelemetry.writePrometheus(text);
+			
+			this.send(exchange, 200, "text/plain; version=0.0.4", text.toString());
+			
+		} finally {
+			exchange.close();
+		}
+	}
+	
+	private void send(HttpExchange exchange, int status, String contentType, String body) throws IOException {
+		
+		byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+		
+		exchange.getResponseHeaders().set("Content-Type", contentType + "; charset=utf-8");
+		exchange.sendResponseHeaders(status, bytes.length);
+		
+		OutputStream out = exchange.getResponseBody();
+		out.write(bytes);
+		out.close();
+	}
+	
+	private void sendError(HttpExchange exchange, int status, String message) throws IOException {
+		this.failedRequests.incrementAndGet();
+		this.send(exchange, status, "application/json", "{\"error\":" + SolveReport.quote(message) + "}");
+	}
+	
+	/**
+	 * @return The request body, or null if it is larger than {@link #MAX_REQUEST_SIZE}
+	 */
+	private static byte[] readBody(InputStream in) throws IOException {
+		
+		ByteArrayOutputStream body = new ByteArrayOutputStream();
+		byte[] buffer = new byte[8192];
+		int read;
+		
+		while((read = in.read(buffer)) != -1){
+			body.write(buffer, 0, read);
+			if(body.size() > MAX_REQUEST_SIZE){
+				return null;
+			}
+		}
+		
+		return body.toByteArray();
+	}
+	
+	/**
+	 * @return The map, or null if the data is not a complete binary map
+	 */
+	private static IceMap parseMap(byte[] data){
+		
+		// Check the dimensions against the size of the data before the tiles are allocated
+		if(data.length < 7 * 4){
+			return null;
+		}
+		
+		ByteBuffer header = ByteBuffer.wrap(data);
+		long tiles = (long)header.getInt(4) * header.getInt(8);
+		
+		if(tiles > data.length){
+			return null;
+		}
+		
+		try {
+			return IceMap.readBinary(new ByteArrayInputStream(data));
+		} catch (IOException e) {
+			return null;
+		}
+	}
+	
+	private static Map<String, String> parseQuery(String query) throws UnsupportedEncodingException {
+		
+		Map<String, String> values = new HashMap<String, String>();
+		
+		if(query == null){
+			return values;
+		}
+		
+		for(String pair : query.split("&")){
+			int split = pair.indexOf('=');
+			if(split > 0){
+				values.put(URLDecoder.decode(pair.substring(0, split), "UTF-8"), URLDecoder.decode(pair.substring(split + 1), "UTF-8"));
+			}
+			else if(!pair.isEmpty()){
+				values.put(URLDecoder.decode(pair, "UTF-8"), "");
+			}
+		}
+		
+		return values;
+	}
+	
+	private static String getString(Map<String, String> query, String name, String defaultValue){
+		String value = query.get(name);
+		return value != null ? value : defaultValue;
+	}
+	
+	private static int getInt(Map<String, String> query, String name, int defaultValue){
+		String value = query.get(name);
+		return value != null ? Integer.parseInt(value) : defaultValue;
+	}
+	
+	private static long getLong(Map<String, String> query, String name, long defaultValue){
+		String value = query.get(name);
+		return value != null ? Long.parseLong(value) : defaultValue;
+	}
+	
+	private static double getDouble(Map<String, String> query, String name, double defaultValue){
+		String value = query.get(name);
+		return value != null ? Double.parseDouble(value) : defaultValue;
+	}
+	
+	private static void writeCounter(PrintWriter out, String name, String help, String labels, long value){
+		out.println("# HELP " + name + " " + help);
+		out.println("# TYPE " + name + " counter");
+		out.println(name + (labels.isEmpty() ? "" : "{" + labels + "}") + " " + value);
+	}
+	
+	private static void writeSummary(PrintWriter out, String name, String help, String labels, LatencyHistogram histogram, double scale, boolean header){
+		
+		if(header){
+			out.println("# HELP " + name + " " + help);
+			out.println("# TYPE " + name + " summary");
+		}
+		
+		String prefix = labels.isEmpty() ? "" : labels + ",";
+		String suffix = labels.isEmpty() ? "" : "{" + labels + "}";
+		
+		for(double quantile : QUANTILES){
+			out.println(name + "{" + prefix + "quantile=\"" + quantile + "\"} " 
+					+ Double.toString(histogram.getValueAtPercentile(quantile * 100) / scale));
+		}
+		
+		out.println(name + "_sum" + suffix + " " + Double.toString(histogram.getSum() / scale));
+		out.println(name + "_count" + suffix + " " + histogram.getCount());
+	}
+	
+	/**
+	 * Usage: SolveServer [port] [threads]
+	 */
+	public static void main(String[] args) throws IOException, InterruptedException {
+		
+		int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+		int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+		
+		final SolveServer server = new SolveServer(port, threads);
+		server.start();
+		
+		System.out.println("Listening on http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort());
+		
+		Runtime.getRuntime().addShutdownHook(new Thread(){
+			@Override
+			public void run() {
+				server.stop();
+			}
+		});
+		
+		Thread.currentThread().join();
+	}
+	
+}
@@ -18,8 +18,10 @@ import java.awt.event.WindowEvent;
 import java.awt.event.WindowFocusListener;
 import java.io.File;
 import java.util.LinkedList;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 
 import javax.swing.Box;
 import javax.swing.BoxLayout;
@@ -35,24 +37,35 @@ import javax.swing.JPanel;
 import javax.swing.JSlider;
 import javax.swing.KeyStroke;
 import javax.swing.SwingConstants;
+import javax.swing.SwingWorker;
+import javax.swing.Timer;
 import javax.swing.UIManager;
 import javax.swing.event.ChangeEvent;
 import javax.swing.event.ChangeListener;
 import javax.swing.filechooser.FileFilter;
 
+import com.turtlesort.icegen.CancellationToken;
 import com.turtlesort.icegen.IceMap;
 import com.turtlesort.icegen.IceMapSolver;
 import com.turtlesort.icegen.NavigationNode;
+import com.turtlesort.icegen.SolutionListener;
+import com.turtlesort.icegen.SolverResult;
+import com.turtlesort.icegen.visualizer.CachedMapLayer;
 
 /**
  * Draws an IceMap in a JFrame, finds a solution to the map with the least amount of moves, then
  * animates the sequence of moves in the solution.
+ * 
+ * Maps are loaded and solved on a dedicated solver thread. The window's state is only ever
+ * modified on the event dispatch thread, and the solution animation is driven by a Swing timer
+ * so it keeps running while a map is being solved.
  */
 @SuppressWarnings("serial")
 public class SolverWindow extends JFrame {
 
 	private static final String WINDOW_TITLE = "Solver GUI 0.1";
 	private static final String RELOAD_MESSAGE = "Reloading map and resolving...";
+	private static final String SEARCHING_MESSAGE = "Showing first solution found, searching for the optimal solution...";
 	private static final String UNSOLVABLE_MESSAGE = "No solution exists!";
 	
 	private static final Font MESSAGE_FONT = new Font("Arial", Font.PLAIN, 40);
@@ -72,16 +85,19 @@ public class SolverWindow extends JFrame {
 	private JPanel canvas;
 	private int tileWidth;								// In pixels; recalculated every repaint (as the window size can change)
 	private int tileHeight;								// In pixels; recalculated every repaint
+	private CachedMapLayer mapLayer;					// Offscreen image of the map's tiles
 
 	private int displayedSolution;						// Value will be -1 if there are no solutions
-	private LinkedList<NavigationNode[]> allSolutions;	// Will be empty if there are no solutions
+	private List<NavigationNode[]> allSolutions;	// Will be empty if there are no solutions
 
-	private Timer timer;
-	private TimerTask solutionIterator;
+	private ExecutorService solverExecutor;
+	private SolveWorker solveWorker;					// The most recently started solve, null if none has been started
+	private Timer solutionIterator;
 	private int solutionStep;
 	private int moveLimit;
 	private boolean pruneSolutionSet;
 	private boolean isReloadingMap;
+	private boolean isShowingProvisionalSolution;		// True while the first solution found is displayed during a solve
 	
 	private JLabel moveLimitLabel;
 	private JSlider moveLimitSlider;
@@ -94,11 +110,19 @@ public class SolverWindow extends JFrame {
 	 */
 	public SolverWindow() {
 
+		this.mapLayer = new CachedMapLayer(BACKGROUND_COLOR);
 		this.initWindow();
 		this.initMenuBar();
 		this.initMoveLimitDialogWindow();
 		
-		this.timer = new Timer();
+		this.solverExecutor = Executors.newSingleThreadExecutor(new ThreadFactory(){
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "SolverWindow solver");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
 		this.pruneSolutionSet = true;
 		this.moveLimit = 20;
 		
@@ -312,26 +336,27 @@ public class SolverWindow extends JFrame {
 	 */
 	private void restartRepaintTimer(){
 
-		// Setup a timer task that iterates through the moves of the solution
+		// Setup a timer that iterates through the moves of the solution
 
 		if(this.map == null) return;
 
 		if(this.solutionIterator != null){
-			this.solutionIterator.cancel();
+			this.solutionIterator.stop();
 		}
 
 		this.solutionStep = 0;
-		this.solutionIterator = new TimerTask(){
+		this.solutionIterator = new Timer(ANIMATION_DELAY, new ActionListener(){
 			@Override
-			public void run() {
+			public void actionPerformed(ActionEvent e) {
 				repaint();
 
-				if(displayedSolution != -1 && solutionStep++ > allSolutions.get(displayedSolution).length){
-					this.cancel();
+				if(displayedSolution == -1 || solutionStep++ > allSolutions.get(displayedSolution).length){
+					((Timer)e.getSource()).stop();
 				}
 			}
-		};
-		this.timer.schedule(this.solutionIterator, 0, ANIMATION_DELAY);
+		});
+		this.solutionIterator.setInitialDelay(0);
+		this.solutionIterator.start();
 	}
 
 	private void reloadFile(){
@@ -340,58 +365,151 @@ public class SolverWindow extends JFrame {
 	
 	/*
 	 * This method will also re-solve the reloaded map file if it has been changed
-	 * or if true has been given as an argument.
+	 * or if true has been given as an argument. A reload that is still running is
+	 * cancelled and replaced by the new one.
 	 */
-	private void reloadFile(final boolean forceResolve){
-
-		if(!this.isReloadingMap){
-			this.isReloadingMap = true;
-			this.repaint();
-			this.setTitle(WINDOW_TITLE + " - " + "Reloading file...");	
+	private void reloadFile(boolean forceResolve){
 
-			// We reload in another thread so our file loading and map solving
-			// doesn't block the reloading message painted on the screen.
-			this.timer.schedule(new TimerTask(){
-
-				@Override
-				public void run() {
-
-					IceMap oldMap = map;
+		if(this.sourceFile == null) return;
+		
+		if(this.solveWorker != null && !this.solveWorker.isDone()){
+			// The cancelled reload may not have finished solving, so the new one must solve again
+			this.solveWorker.stop();
+			forceResolve = true;
+		}
+		
+		this.isReloadingMap = true;
+		this.isShowingProvisionalSolution = false;
+		this.repaint();
+		this.setTitle(WINDOW_TITLE + " - " + "Reloading file...");	
+
+		// We reload in another thread so our file loading and map solving
+		// doesn't block the reloading message painted on the screen.
+		this.solveWorker = new SolveWorker(forceResolve);
+		this.solverExecutor.execute(this.solveWorker);
+	}
 
-					// If the file's last modified time stamp changed, reread the file again
-					if(sourceFile != null && sourceFile.lastModified() > sourceLastModified){
-						map = IceMap.parseTMXFile(sourceFile);
-						sourceLastModified = sourceFile.lastModified();
-					}
+	/*
+	 * Loads and solves a map on the solver thread. Everything the worker needs from the window is
+	 * copied when it is created, and its results are only applied to the window on the event dispatch
+	 * thread. The first solution discovered is published straight away so there is something to
+	 * look at while the search for the optimal solution continues.
+	 */
+	private class SolveWorker extends SwingWorker<Void, NavigationNode[]> {
+		
+		private final File file;
+		private final long lastModified;
+		private final boolean forceResolve;
+		private final int limit;
+		private final boolean prune;
+		private final CancellationToken token;
+		
+		private volatile IceMap newMap;
+		private long newLastModified;
+		private List<NavigationNode[]> solutions;
+		private boolean resolved;
+		
+		public SolveWorker(boolean forceResolve){
+			this.file = sourceFile;
+			this.lastModified = sourceLastModified;
+			this.newMap = map;
+			this.forceResolve = forceResolve;
+			this.limit = moveLimit;
+			this.prune = pruneSolutionSet;
+			this.token = new CancellationToken();
+		}
+		
+		public void stop(){
+			this.token.cancel();
+			this.cancel(false);
+		}
+		
+		@Override
+		protected Void doInBackground() {
 
-					// Resolve the IceMap if the time stamp changed or if explicitly told to do so
-					if(oldMap != map || forceResolve){
+			IceMap oldMap = this.newMap;
+			this.newLastModified = this.lastModified;
 
-						IceMapSolver solver = new IceMapSolver(map);
-						LinkedList<NavigationNode[]> solutions = solver.solve(moveLimit, pruneSolutionSet);
+			// If the file's last modified time stamp changed, reread the file again
+			if(this.file.lastModified() > this.lastModified){
+				this.newLastModified = this.file.lastModified();
+				this.newMap = IceMap.parseTMXFile(this.file);
+			}
 
-						if(solutions.size() > 0){
-							displayedSolution = 0;
-							allSolutions = solutions;
-						}
-						else{
-							displayedSolution = -1;
-							allSolutions = null;
+			// Resolve the IceMap if the time stamp changed or if explicitly told to do so
+			if(this.newMap != null && (oldMap != this.newMap || this.forceResolve)){
+
+				IceMapSolver solver = new IceMapSolver(this.newMap);
+				solver.setSolutionListener(new SolutionListener(){
+					private boolean isFirst = true;
+					
+					@Override
+					public void solutionFound(NavigationNode[] solution) {
+						if(isFirst){
+							isFirst = false;
+							publish(solution);
 						}
-
 					}
-
-					// Restart the repaint timer
-					restartRepaintTimer();
-					updateStatusLabel();
-
-					setTitle(WINDOW_TITLE + " - " + sourceFile.getAbsolutePath());
-					isReloadingMap = false;
+				});
+				
+				SolverResult result = solver.solve(this.limit, this.prune, this.token);
+				
+				if(!result.isTruncated()){
+					this.solutions = result.getSolutionSet().asList();
+					this.resolved = true;
+				}
+			}
+			
+			return null;
+		}
+		
+		@Override
+		protected void process(List<NavigationNode[]> chunks) {
+			
+			if(this != solveWorker || this.isCancelled()) return;
+			
+			// Show the first solution found until the search is complete
+			LinkedList<NavigationNode[]> provisional = new LinkedList<NavigationNode[]>();
+			provisional.add(chunks.get(0));
+			
+			map = this.newMap;
+			allSolutions = provisional;
+			displayedSolution = 0;
+			isShowingProvisionalSolution = true;
+			
+			restartRepaintTimer();
+			statusLabel.setText(SEARCHING_MESSAGE);
+		}
+		
+		@Override
+		protected void done() {
+			
+			if(this != solveWorker || this.isCancelled()) return;
+			
+			map = this.newMap;
+			sourceLastModified = this.newLastModified;
+			
+			if(this.resolved){
+				if(this.solutions.size() > 0){
+					displayedSolution = 0;
+					allSolutions = this.solutions;
+				}
+				else{
+					displayedSolution = -1;
+					allSolutions = null;
 				}
+			}
 
-			}, 0);
+			// Restart the repaint timer
+			restartRepaintTimer();
+			updateStatusLabel();
 
+			setTitle(WINDOW_TITLE + " - " + this.file.getAbsolutePath());
+			isReloadingMap = false;
+			isShowingProvisionalSolution = false;
+			repaint();
 		}
+		
 	}
 
 	private void showNextSolution(){
@@ -451,7 +569,7 @@ public class SolverWindow extends JFrame {
 		}
 		/**/
 
-		if(this.isReloadingMap){
+		if(this.isReloadingMap && !this.isShowingProvisionalSolution){
 			Graphics2D g2d = (Graphics2D)g;
 			g2d.setColor(GLASS_COLOR);
 			g.fillRect(0, 0, this.getWidth(), this.getHeight());
@@ -481,38 +599,11 @@ public class SolverWindow extends JFrame {
 	}
 
 	/*
-	 * Draws each tile of the IceMap.
+	 * Draws each tile of the IceMap. The tiles are cached in an offscreen image that is only
+	 * rebuilt when the map or the tile size changes.
 	 */
 	private void drawMap(Graphics g){
-
-		for(int x = 0; x < map.getWidth(); x++){
-			for(int y = 0; y < map.getHeight(); y++){
-
-				IceMap.Tile tile = map.getTileType(x, y);
-
-				g.setColor(Color.BLACK);
-
-				if(map.isStart(x, y)){
-					g.setColor(Color.GREEN);	
-				}
-				else if(map.isEnd(x, y)){
-					g.setColor(Color.RED);	
-				}
-				else if(tile == IceMap.Tile.FLOOR){
-					g.setColor(Color.LIGHT_GRAY);	
-				}
-				else if(tile == IceMap.Tile.ICE){
-					g.setColor(Color.WHITE);	
-				}
-
-				g.fillRect(
-						tileToPixelX(x), 
-						tileToPixelY(y),
-						tileWidth, 
-						tileHeight
-						);		
-			}
-		}
+		this.mapLayer.draw(g, map, tileWidth, tileHeight);
 	}
 
 	/*
@@ -574,7 +665,7 @@ public class SolverWindow extends JFrame {
 		s.append(" | ");
 		
 		s.append("Total solutions: ");
-		s.append(this.allSolutions.size());
+		s.append(this.allSolutions != null ? this.allSolutions.size() : 0);
 		s.append(" | ");
 		
 		s.append("Currently displaying solution #");
@@ -0,0 +1,212 @@
+package com.turtlesort.icegen.telemetry;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collects metrics about the maps produced by a map generator: how many interference attempts and
+ * reversals each map needed, how much time was spent generating and solving, and why candidate
+ * changes to a map were rejected. All methods are safe to call from several generator threads.
+ * 
+ * Metrics can be exported in the Prometheus text exposition format, either to any Writer or to a file
+ * that a metrics agent (e.g. the node exporter's textfile collector) scrapes.
+ */
+public class GeneratorTelemetry {
+
+	private static final double NANOSECONDS_PER_SECOND = 1000000000.0;
+	private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+	
+	private String generatorName;
+	
+	private AtomicLong mapsGenerated;
+	private AtomicLong interferenceAttempts;
+	private AtomicLong interferencesPlaced;
+	private AtomicLong reversals;
+	private AtomicLong solves;
+	private ConcurrentMap<String, AtomicLong> rejections;
+	
+	private LatencyHistogram generationTime;
+	private LatencyHistogram solveTimePerMap;
+	private LatencyHistogram solveLatency;
+	private LatencyHistogram attemptsPerMap;
+	
+	/**
+	 * @param generatorName - Name of the generator, exported as the value of the "generator" label
+	 */
+	public GeneratorTelemetry(String generatorName){
+		this.generatorName = generatorName;
+		this.mapsGenerated = new AtomicLong();
+		this.interferenceAttempts = new AtomicLong();
+		this.interferencesPlaced = new AtomicLong();
+		this.reversals = new AtomicLong();
+		this.solves = new AtomicLong();
+		this.rejections = new ConcurrentHashMap<String, AtomicLong>();
+		this.generationTime = new LatencyHistogram();
+		this.solveTimePerMap = new LatencyHistogram();
+		this.solveLatency = new LatencyHistogram();
+		this.attemptsPerMap = new LatencyHistogram();
+	}
+	
+	/**
+	 * Records one call to the solver.
+	 * @param nanos - How long the solve took
+	 */
+	public void recordSolve(long nanos){
+		this.solves.incrementAndGet();
+		this.solveLatency.record(nanos);
+	}
+	
+	/**
+	 * Records one pass of the interference loop.
+	 * @param placed - True if a solid tile was placed during the attempt
+	 */
+	public void recordInterferenceAttempt(boolean placed){
+		this.interferenceAttempts.incrementAndGet();
+		if(placed){
+			this.interferencesPlaced.incrementAndGet();
+		}
+	}
+	
+	/**
+	 * Records that a placed tile was removed again because it made the map unsolvable.
+	 */
+	public void recordReversal(){
+		this.reversals.incrementAndGet();
+	}
+	
+	/**
+	 * Records that a candidate change to a map was rejected.
+	 * @param reason - A short machine readable reason, e.g. "adjacent_boulder"
+	 */
+	public void recordRejection(String reason){
+		
+		AtomicLong counter = this.rejections.get(reason);
+		
+		if(counter == null){
+			AtomicLong newCounter = new AtomicLong();
+			counter = this.rejections.putIfAbsent(reason, newCounter);
+			if(counter == null){
+				counter = newCounter;
+			}
+		}
+		
+		counter.incrementAndGet();
+	}
+	
+	/**
+	 * Records a finished map.
+	 * @param generationNanos - Total time taken to generate the map
+	 * @param solveNanos - Part of the generation time spent in the solver
+	 * @param attempts - Number of interference attempts made for the map
+	 */
+	public void recordMap(long generationNanos, long solveNanos, int attempts){
+		this.mapsGenerated.incrementAndGet();
+		this.generationTime.record(generationNanos);
+		this.solveTimePerMap.record(solveNanos);
+		this.attemptsPerMap.record(attempts);
+	}
+	
+	public long getMapsGenerated(){
+		return this.mapsGenerated.get();
+	}
+	
+	public long getInterferenceAttempts(){
+		return this.interferenceAttempts.get();
+	}
+	
+	public long getReversals(){
+		return this.reversals.get();
+	}
+	
+	/**
+	 * @return The number of rejections recorded for the given reason
+	 */
+	public long getRejections(String reason){
+		AtomicLong counter = this.rejections.get(reason);
+		return counter != null ? counter.get() : 0;
+	}
+	
+	/**
+	 * Writes every metric in the Prometheus text exposition format.
+	 * @param writer - Where to write the metrics. It is flushed but not closed.
+	 */
+	public void writePrometheus(Writer writer){
+		
+		PrintWriter out = new PrintWriter(writer);
+		String labels = "generator=\"" + this.generatorName + "\"";
+		
+		this.writeCounter(out, "icegen_generator_maps_total", "Maps generated", labels, this.mapsGenerated.get());
+		this.writeCounter(out, "icegen_generator_interference_attempts_total", "Passes of the interference loop", labels, this.interferenceAttempts.get());
+		this.writeCounter(out, "icegen_generator_interferences_placed_total", "Solid tiles placed to interfere with the optimal solution", labels, this.interferencesPlaced.get());
+		this.writeCounter(out, "icegen_generator_reversals_total", "Placed tiles removed because they made the map unsolvable", labels, this.reversals.get());
+		this.writeCounter(out, "icegen_generator_solves_total", "Calls to the solver", labels, this.solves.get());
+		
+		out.println("# HELP icegen_generator_rejections_total Candidate changes to a map that were rejected, by reason");
+		out.println("# TYPE icegen_generator_rejections_total counter");
+		for(Map.Entry<String, AtomicLong> rejection : new TreeMap<String, AtomicLong>(this.rejections).entrySet()){
+			out.println("icegen_generator_rejections_total{" + labels + ",reason=\"" + rejection.getKey() + "\"} " + rejection.getValue().get());
+		}
+		
+		this.writeSummary(out, "icegen_generator_generation_seconds", "Time taken to generate a map", labels, this.generationTime, NANOSECONDS_PER_SECOND);
+		this.writeSummary(out, "icegen_generator_map_solve_seconds", "Total solver time spent per generated map", labels, this.solveTimePerMap, NANOSECONDS_PER_SECOND);
+		this.writeSummary(out, "icegen_generator_solve_seconds", "Time taken by a single call to the solver", labels, this.solveLatency, NANOSECONDS_PER_SECOND);
+		this.writeSummary(out, "icegen_generator_attempts_per_map", "Interference attempts made per generated map", labels, this.attemptsPerMap, 1);
+		
+		out.flush();
+	}
+	
+	/**
+	 * Writes every metric in the Prometheus text exposition format to a file. The metrics are written to a
+	 * temporary file first which then replaces the given file, so readers never see a partially written file.
+	 * @param file - The file to write
+	 * @throws IOException If the file cannot be written
+	 */
+	public void writePrometheus(File file) throws IOException {
+		
+		File temporary = new File(file.getAbsoluteFile().getParentFile(), file.getName() + ".tmp");
+		Writer writer = new FileWriter(temporary);
+		
+		try {
+			this.writePrometheus(writer);
+		} finally {
+			writer.close();
+		}
+		
+		if(!temporary.renameTo(file) && !(file.delete() && temporary.renameTo(file))){
+			throw new IOException("Cannot replace " + file);
+		}
+	}
+	
+	private void writeCounter(PrintWriter out, String name, String help, String labels, long value){
+		out.println("# HELP " + name + " " + help);
+		out.println("# TYPE " + name + " counter");
+		out.println(name + "{" + labels + "} " + value);
+	}
+	
+	private void writeSummary(PrintWriter out, String name, String help, String labels, LatencyHistogram histogram, double scale){
+		
+		out.println("# HELP " + name + " " + help);
+		out.println("# TYPE " + name + " summary");
+		
+		for(double quantile : QUANTILES){
+			out.println(name + "{" + labels + ",quantile=\"" + quantile + "\"} " 
+					+ format(histogram.getValueAtPercentile(quantile * 100) / scale));
+		}
+		
+		out.println(name + "_sum{" + labels + "} " + format(histogram.getSum() / scale));
+		out.println(name + "_count{" + labels + "} " + histogram.getCount());
+	}
+	
+	private static String format(double value){
+		return Double.toString(value);
+	}
+	
+}
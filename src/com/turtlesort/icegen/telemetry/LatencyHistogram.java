@@ -0,0 +1,114 @@
+package com.turtlesort.icegen.telemetry;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Records a distribution of non-negative values (typically durations in nanoseconds) in the style of
+ * HdrHistogram: values are counted in buckets whose width grows with the magnitude of the value, so
+ * every recorded value is known to within about 6% no matter how large it is, using a fixed amount
+ * of memory. Recording is lock-free and safe from any number of threads.
+ */
+public class LatencyHistogram {
+
+	// Values below 2^SUB_BUCKET_BITS are counted exactly. Every power of two above that is split
+	// into 2^(SUB_BUCKET_BITS - 1) equally sized buckets.
+	private static final int SUB_BUCKET_BITS = 5;
+	private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+	private static final int HALF_SUB_BUCKET_COUNT = SUB_BUCKET_COUNT / 2;
+	private static final int BUCKET_COUNT = SUB_BUCKET_COUNT + (63 - SUB_BUCKET_BITS + 1) * HALF_SUB_BUCKET_COUNT;
+	
+	private AtomicLongArray counts;
+	private AtomicLong totalCount;
+	private AtomicLong sum;
+	private AtomicLong max;
+	
+	public LatencyHistogram(){
+		this.counts = new AtomicLongArray(BUCKET_COUNT);
+		this.totalCount = new AtomicLong();
+		this.sum = new AtomicLong();
+		this.max = new AtomicLong();
+	}
+	
+	/**
+	 * @param value - The value to record. Negative values are recorded as 0.
+	 */
+	public void record(long value){
+		
+		if(value < 0) value = 0;
+		
+		this.counts.incrementAndGet(bucketOf(value));
+		this.totalCount.incrementAndGet();
+		this.sum.addAndGet(value);
+		
+		long currentMax = this.max.get();
+		while(value > currentMax && !this.max.compareAndSet(currentMax, value)){
+			currentMax = this.max.get();
+		}
+	}
+	
+	/**
+	 * @return Number of values recorded
+	 */
+	public long getCount(){
+		return this.totalCount.get();
+	}
+	
+	/**
+	 * @return Sum of all values recorded
+	 */
+	public long getSum(){
+		return this.sum.get();
+	}
+	
+	/**
+	 * @return The largest value recorded, or 0 if nothing has been recorded
+	 */
+	public long getMax(){
+		return this.max.get();
+	}
+	
+	/**
+	 * @param percentile - A percentile between 0 and 100
+	 * @return A value that at least the given percentage of recorded values are less than or equal to,
+	 * accurate to the precision of the histogram's buckets. Returns 0 if nothing has been recorded.
+	 */
+	public long getValueAtPercentile(double percentile){
+		
+		long count = this.totalCount.get();
+		if(count == 0) return 0;
+		
+		long target = Math.max(1, (long)Math.ceil(count * Math.min(percentile, 100) / 100.0));
+		long seen = 0;
+		
+		for(int i = 0; i < BUCKET_COUNT; i++){
+			seen += this.counts.get(i);
+			if(seen >= target){
+				return Math.min(highestValueOf(i), this.max.get());
+			}
+		}
+		
+		return this.max.get();
+	}
+	
+	private static int bucketOf(long value){
+		
+		if(value < SUB_BUCKET_COUNT) return (int)value;
+		
+		int shift = (63 - Long.numberOfLeadingZeros(value)) - (SUB_BUCKET_BITS - 1);
+		int subBucket = (int)(value >>> shift) - HALF_SUB_BUCKET_COUNT;
+		
+		return SUB_BUCKET_COUNT + (shift - 1) * HALF_SUB_BUCKET_COUNT + subBucket;
+	}
+	
+	private static long highestValueOf(int bucket){
+		
+		if(bucket < SUB_BUCKET_COUNT) return bucket;
+		
+		int shift = (bucket - SUB_BUCKET_COUNT) / HALF_SUB_BUCKET_COUNT + 1;
+		long subBucket = (bucket - SUB_BUCKET_COUNT) % HALF_SUB_BUCKET_COUNT + HALF_SUB_BUCKET_COUNT;
+		
+		return ((subBucket + 1) << shift) - 1;
+	}
+	
+}
@@ -0,0 +1,130 @@
+package com.turtlesort.icegen.visualizer;
+
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+
+import com.turtlesort.icegen.IceMap;
+
+/**
+ * Keeps an offscreen image of an IceMap's tiles so they don't need to be repainted one by one every
+ * animation frame. The image is only rebuilt when the map is edited, a different map is drawn, or
+ * the tile size changes (e.g. when the window is resized). Anything animated, like a solution
+ * line, should be drawn on top after calling {@link #draw(Graphics, IceMap, int, int)}.
+ */
+public class CachedMapLayer {
+
+	private Color backgroundColor;
+	private TilesetRenderer tileset;
+	
+	private BufferedImage image;
+	private IceMap cachedMap;
+	private int cachedModificationCount;
+	private int cachedTileWidth;
+	private int cachedTileHeight;
+	
+	/**
+	 * @param backgroundColor - The color painted in the gaps between tiles
+	 */
+	public CachedMapLayer(Color backgroundColor){
+		this.backgroundColor = backgroundColor;
+	}
+	
+	/**
+	 * Draws the tiles of the map at the top left corner of the given graphics context. Tile (x,y) is drawn
+	 * at pixel (x*(tileWidth + 1), y*(tileHeight + 1)).
+	 * @param g - The graphics context to draw to
+	 * @param map - The map to draw
+	 * @param tileWidth - Width of a tile in pixels
+	 * @param tileHeight - Height of a tile in pixels
+	 */
+	public void draw(Graphics g, IceMap map, int tileWidth, int tileHeight){
+		
+		if(tileWidth <= 0 || tileHeight <= 0) return;
+		
+		if(this.image == null
+				|| this.cachedMap != map
+				|| this.cachedModificationCount != map.getModificationCount()
+				|| this.cachedTileWidth != tileWidth
+				|| this.cachedTileHeight != tileHeight){
+			this.rebuild(map, tileWidth, tileHeight);
+		}
+		
+		g.drawImage(this.image, 0, 0, null);
+	}
+	
+	/**
+	 * Draws tiles with images from a tileset instead of flat colors.
+	 * @param tileset - The tileset to draw tiles with, or null to go back to flat colors
+	 */
+	public void setTileset(TilesetRenderer tileset){
+		this.tileset = tileset;
+		this.invalidate();
+	}
+	
+	/**
+	 * Forces the image to be rebuilt the next time it is drawn.
+	 */
+	public void invalidate(){
+		this.image = null;
+	}
+	
+	/**
+	 * @return The color a tile should be drawn in. The starting and ending tiles have their own colors
+	 * regardless of their tile type.
+	 */
+	public static Color getTileColor(IceMap map, int x, int y){
+		
+		IceMap.Tile tile = map.getTileType(x, y);
+		
+		if(map.isStart(x, y)){
+			return Color.GREEN;	
+		}
+		else if(map.isEnd(x, y)){
+			return Color.RED;	
+		}
+		else if(tile == IceMap.Tile.FLOOR){
+			return Color.LIGHT_GRAY;	
+		}
+		else if(tile == IceMap.Tile.ICE){
+			return Color.WHITE;	
+		}
+		
+		return Color.BLACK;
+	}
+	
+	private void rebuild(IceMap map, int tileWidth, int tileHeight){
+		
+		int width = map.getWidth() * (tileWidth + 1);
+		int height = map.getHeight() * (tileHeight + 1);
+		
+		if(this.image == null || this.image.getWidth() != width || this.image.getHeight() != height){
+			this.image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		}
+		
+		Graphics g = this.image.getGraphics();
+		
+		g.setColor(this.backgroundColor);
+		g.fillRect(0, 0, width, height);
+		
+		if(this.tileset != null){
+			this.tileset.draw(g, map, 0, 0, tileWidth, tileHeight, 1);
+		}
+		else{
+			for(int x = 0; x < map.getWidth(); x++){
+				for(int y = 0; y < map.getHeight(); y++){
+					g.setColor(getTileColor(map, x, y));
+					g.fillRect(x * (tileWidth + 1), y * (tileHeight + 1), tileWidth, tileHeight);
+				}
+			}
+		}
+		
+		g.dispose();
+		
+		this.cachedMap = map;
+		this.cachedModificationCount = map.getModificationCount();
+		this.cachedTileWidth = tileWidth;
+		this.cachedTileHeight = tileHeight;
+	}
+	
+}
@@ -1,21 +1,80 @@
 package com.turtlesort.icegen.visualizer;
 
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 
+import javax.swing.SwingWorker;
+import javax.swing.Timer;
+
+import com.turtlesort.icegen.AStarSolver;
+import com.turtlesort.icegen.CancellationToken;
 import com.turtlesort.icegen.IceMap;
+import com.turtlesort.icegen.IceMapSnapshot;
+import com.turtlesort.icegen.NavigationNode;
+import com.turtlesort.icegen.SlideTable;
+import com.turtlesort.icegen.SolverResult;
 
 @SuppressWarnings("serial")
 
 /**
+ * Lets the user edit the displayed IceMap with the mouse. Once the map has been edited, the shortest path
+ * found by an {@link AStarSolver} is displayed instead of every solution within the move limit. The path is
+ * found again on a background thread shortly after an edit, but only if an edited tile lies on one of its
+ * slides or the starting or ending tile moved. Otherwise the path still solves the map and is kept, although
+ * an edit elsewhere may have opened a shorter one. Slides are kept in a {@link SlideTable} between solves so
+ * that only the slides crossing the edited rows and columns have to be recomputed.
+ * 
  * TODO: Does it make sense to handle TMX files and generators here?
  */
 public class InteractiveVisualizer extends SolutionVisualizer{
 
+	private static final int RESOLVE_DELAY = 30; // Milliseconds to wait for further edits before re-solving
+	
+	private ExecutorService solverExecutor;
+	private Timer resolveTimer;
+	private ResolveWorker resolveWorker;
+	
+	// Tiles edited since the last re-solve was started. Only accessed on the event dispatch thread.
+	private LinkedList<int[]> editedTiles;
+	
+	// Only accessed on the solver thread
+	private SlideTable slideTable;
+	private NavigationNode[] path;				// The displayed path, or null if it has to be found again
+	private int pathStartX;
+	private int pathStartY;
+	private int pathEndX;
+	private int pathEndY;
 	
 	public InteractiveVisualizer(IceMap map) {
 		super(map);
 		
+		this.editedTiles = new LinkedList<int[]>();
+		this.solverExecutor = Executors.newSingleThreadExecutor(new ThreadFactory(){
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "InteractiveVisualizer solver");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		
+		// Wait for a short pause in editing before solving so a burst of clicks only causes one solve
+		this.resolveTimer = new Timer(RESOLVE_DELAY, new ActionListener(){
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				startResolve();
+			}
+		});
+		this.resolveTimer.setRepeats(false);
+		
 		final IceMap iceMap = map;
 		canvas.addMouseListener(new MouseAdapter(){
 
@@ -32,11 +91,13 @@ public class InteractiveVisualizer extends SolutionVisualizer{
 					int button = e.getButton();
 					
 					if((e.getModifiers() & MouseEvent.CTRL_MASK) == MouseEvent.CTRL_MASK && button == MouseEvent.BUTTON1){
+						markEdited(iceMap.getStartX(), iceMap.getStartY());
 						iceMap.setTileType(iceMap.getStartX(), iceMap.getStartY(), IceMap.Tile.ICE);
 						iceMap.setStartTile(tileX, tileY);
 						iceMap.setTileType(tileX, tileY, IceMap.Tile.FLOOR);
 					}
 					else if((e.getModifiers() & MouseEvent.CTRL_MASK) == MouseEvent.CTRL_MASK && button == MouseEvent.BUTTON3){
+						markEdited(iceMap.getStartX(), iceMap.getStartY());
 						iceMap.setTileType(iceMap.getStartX(), iceMap.getStartY(), IceMap.Tile.ICE);
 						iceMap.setEndTile(tileX, tileY);
 						iceMap.setTileType(tileX, tileY, IceMap.Tile.FLOOR);
@@ -54,6 +115,7 @@ public class InteractiveVisualizer extends SolutionVisualizer{
 						iceMap.setTileType(tileX, tileY, IceMap.Tile.ICE);
 					}
 					
+					markEdited(tileX, tileY);
 					repaint();
 					
 				}
@@ -64,7 +126,163 @@ public class InteractiveVisualizer extends SolutionVisualizer{
 		
 	}
 
+	/*
+	 * Remembers an edited tile and (re)starts the countdown to the next solve. A solve that is
+	 * still running is cancelled since its result is already out of date.
+	 */
+	private void markEdited(int x, int y){
+		
+		this.editedTiles.add(new int[]{x, y});
+		
+		if(this.resolveWorker != null){
+			this.resolveWorker.stop();
+		}
+		
+		this.resolveTimer.restart();
+	}
+	
+	/*
+	 * Hands a snapshot of the map and the list of edited tiles to the solver thread. The snapshot means
+	 * the user can keep editing while the solve runs.
+	 */
+	private void startResolve(){
+		
+		this.resolveWorker = new ResolveWorker(this.map.snapshot(), this.editedTiles);
+		this.editedTiles = new LinkedList<int[]>();
+		
+		this.solverExecutor.execute(this.resolveWorker);
+	}
+	
+	private class ResolveWorker extends SwingWorker<List<NavigationNode[]>, Void> {
+		
+		private final IceMapSnapshot snapshot;
+		private final LinkedList<int[]> edits;
+		private final CancellationToken token;
+		
+		public ResolveWorker(IceMapSnapshot snapshot, LinkedList<int[]> edits){
+			this.snapshot = snapshot;
+			this.edits = edits;
+			this.token = new CancellationToken();
+		}
+		
+		/*
+		 * Only the search is cancelled, the worker itself still runs so that its edits
+		 * always reach the slide table.
+		 */
+		public void stop(){
+			this.token.cancel();
+		}
+		
+		@Override
+		protected List<NavigationNode[]> doInBackground() {
+			
+			// Edits are applied to the table even if this solve gets stopped, since
+			// the next solve only gets told about the edits made after this one
+			if(slideTable == null){
+				slideTable = new SlideTable(this.snapshot);
+			}
+			else{
+				slideTable.setMap(this.snapshot);
+				for(int[] tile : this.edits){
+					slideTable.invalidate(tile[0], tile[1]);
+				}
+			}
+			
+			if(path != null && this.isPathUnaffected()){
+				return Collections.singletonList(path);
+			}
+			
+			path = null;
+			
+			AStarSolver solver = new AStarSolver(this.snapshot);
+			solver.setSlideTable(slideTable);
+			
+			SolverResult result = solver.solve(Integer.MAX_VALUE, this.token);
+			
+			// A stopped search leaves the path unknown, so the next worker searches again whatever its edits
+			if(result.isTruncated()){
+				return null;
+			}
+			
+			if(result.getSolutionSet().isEmpty()){
+				return Collections.emptyList();
+			}
+			
+			path = result.getSolutionSet().get(0);
+			pathStartX = this.snapshot.getStartX();
+			pathStartY = this.snapshot.getStartY();
+			pathEndX = this.snapshot.getEndX();
+			pathEndY = this.snapshot.getEndY();
+			
+			return Collections.singletonList(path);
+		}
+		
+		/*
+		 * True if the starting and ending tiles are where they were when the path was found and no edit lies
+		 * on one of the path's slides, including the tile that stops each slide. Every slide then still ends
+		 * where it did.
+		 */
+		private boolean isPathUnaffected(){
+			
+			if(this.snapshot.getStartX() != pathStartX || this.snapshot.getStartY() != pathStartY
+					|| this.snapshot.getEndX() != pathEndX || this.snapshot.getEndY() != pathEndY){
+				return false;
+			}
+			
+			int fromX = pathStartX;
+			int fromY = pathStartY;
+			
+			for(NavigationNode move : path){
+				
+				int toX = move.getDestinationX();
+				int toY = move.getDestinationY();
+				
+				for(int[] tile : this.edits){
+					if(isOnSlide(tile[0], tile[1], fromX, fromY, toX, toY)) return false;
+				}
+				
+				fromX = toX;
+				fromY = toY;
+			}
+			
+			return true;
+		}
+		
+		@Override
+		protected void done() {
+			
+			if(this != resolveWorker) return;
+			
+			try {
+				List<NavigationNode[]> solutions = this.get();
+				
+				if(solutions != null){
+					allSolutions = solutions;
+					displayedSolution = solutions.isEmpty() ? -1 : 0;
+					restartRepaintTimer();
+				}
+				
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+		}
+		
+	}
 
+	/*
+	 * True if the tile lies on the slide between two tiles of the same row or column, or on the tile just past its end.
+	 */
+	private static boolean isOnSlide(int x, int y, int fromX, int fromY, int toX, int toY){
+		
+		if(fromY == toY){
+			int step = toX > fromX ? 1 : -1;
+			return y == fromY && (x - fromX) * step >= 0 && (x - toX) * step <= 1;
+		}
+		
+		int step = toY > fromY ? 1 : -1;
+		return x == fromX && (y - fromY) * step >= 0 && (y - toY) * step <= 1;
+	}
+	
 	private int pixelToTileX(int x){
 		return x/tileWidth;
 	}
@@ -5,8 +5,12 @@ import java.awt.Container;
 import java.awt.Dimension;
 import java.awt.Graphics;
 import java.awt.Toolkit;
+import java.awt.event.MouseWheelEvent;
+import java.awt.event.MouseWheelListener;
 
 import javax.swing.JFrame;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
 
 import com.turtlesort.icegen.IceMap;
 
@@ -15,23 +19,98 @@ public class MapVisualizer extends JFrame {
 	private static final long serialVersionUID = 1L;
 	private static final Color BACKGROUND_COLOR = new Color(200,200,200);
 	
+	private static final int MIN_TILE_SIZE = 4;
+	private static final int MAX_TILE_SIZE = 128;
+	
 	private IceMap map;
+	
+	private TilesetRenderer tileset;
+	private JPanel canvas;
+	private int tileSize;
 
 	public MapVisualizer(IceMap map) {
+		this(map, null);
+	}
+	
+	/**
+	 * @param map - The IceMap to display
+	 * @param tileset - A tileset to draw the map with, or null to draw tiles as flat colors. When a tileset
+	 * is given the map is drawn in a scrollable view that can be zoomed with ctrl + mouse wheel.
+	 */
+	public MapVisualizer(IceMap map, TilesetRenderer tileset) {
 
 		this.map = map;
+		this.tileset = tileset;
 		this.setTitle("Map: " + map.getName());
 		
 	    this.setSize(600, 600);
 	    this.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
 	    
+	    if(tileset != null){
+	    	this.initTilesetCanvas();
+	    }
+	    
 	    Dimension screen = Toolkit.getDefaultToolkit().getScreenSize();
 	    this.setLocation(screen.width/2 - this.getWidth()/2, screen.height/2 - this.getHeight()/2);
 	    
 	}
 	
+	/*
+	 * Places a canvas sized to the whole map in a scroll pane. Swing only asks the canvas to paint
+	 * the area visible in the scroll pane, and the tileset renderer skips every tile outside of it.
+	 */
+	private void initTilesetCanvas(){
+		
+		this.tileSize = TilesetRenderer.SOURCE_TILE_SIZE;
+		
+		this.canvas = new JPanel(){
+			private static final long serialVersionUID = 1L;
+
+			public void paintComponent(Graphics g){
+				super.paintComponent(g);
+				tileset.draw(g, map, 0, 0, tileSize, tileSize, 0);
+			}
+		};
+		this.canvas.setBackground(BACKGROUND_COLOR);
+		this.updateCanvasSize();
+		
+		final JScrollPane scrollPane = new JScrollPane(this.canvas);
+		scrollPane.getVerticalScrollBar().setUnitIncrement(TilesetRenderer.SOURCE_TILE_SIZE);
+		scrollPane.getHorizontalScrollBar().setUnitIncrement(TilesetRenderer.SOURCE_TILE_SIZE);
+		
+		// Zoom in and out with ctrl + mouse wheel, otherwise scroll as usual
+		scrollPane.setWheelScrollingEnabled(false);
+		scrollPane.addMouseWheelListener(new MouseWheelListener(){
+			@Override
+			public void mouseWheelMoved(MouseWheelEvent e) {
+				if(e.isControlDown()){
+					int size = e.getWheelRotation() < 0 ? tileSize * 2 : tileSize / 2;
+					tileSize = Math.max(MIN_TILE_SIZE, Math.min(MAX_TILE_SIZE, size));
+					updateCanvasSize();
+				}
+				else{
+					int delta = e.getUnitsToScroll() * scrollPane.getVerticalScrollBar().getUnitIncrement();
+					scrollPane.getVerticalScrollBar().setValue(scrollPane.getVerticalScrollBar().getValue() + delta);
+				}
+			}
+		});
+		
+		this.add(scrollPane);
+	}
+	
+	private void updateCanvasSize(){
+		this.canvas.setPreferredSize(new Dimension(map.getWidth() * tileSize, map.getHeight() * tileSize));
+		this.canvas.revalidate();
+		this.canvas.repaint();
+	}
+	
 	public void paint(Graphics g) {
 
+		if(this.tileset != null){
+			super.paint(g);
+			return;
+		}
+		
 		g.setColor(BACKGROUND_COLOR);
 		g.fillRect(0, 0, this.getWidth(), this.getHeight());
 		
@@ -15,7 +15,7 @@ import java.awt.event.KeyEvent;
 import java.awt.event.WindowEvent;
 import java.awt.event.WindowFocusListener;
 import java.io.File;
-import java.util.LinkedList;
+import java.util.List;
 import java.util.Timer;
 import java.util.TimerTask;
 
@@ -44,20 +44,21 @@ public class SolutionVisualizer extends JFrame {
 	private static final String RELOAD_MESSAGE = "Reloading map and resolving...";
 	private static final String UNSOLVABLE_MESSAGE = "No solution exists!";
 	
-	private static final int MOVE_LIMIT = 20;
-	private static final boolean PRUNE_SOLUTION_SET = true;
+	protected static final int MOVE_LIMIT = 20;
+	protected static final boolean PRUNE_SOLUTION_SET = true;
 	
 	protected IceMap map;
 	protected JPanel canvas;
 	protected int tileWidth;
 	protected int tileHeight;
+	private CachedMapLayer mapLayer = new CachedMapLayer(BACKGROUND_COLOR);
 	
 	private File sourceFile;
 	private long sourceLastModified;
 	private IceMapGenerator generator;
 
 	protected int displayedSolution;
-	protected LinkedList<NavigationNode[]> allSolutions;
+	protected List<NavigationNode[]> allSolutions;
 	
 	private Timer timer;
 	private TimerTask solutionIterator;
@@ -92,7 +93,7 @@ public class SolutionVisualizer extends JFrame {
 		
 		// Get a solution to the given IceMap
 		IceMapSolver solver = new IceMapSolver(map);
-		LinkedList<NavigationNode[]> solutions = solver.solve(MOVE_LIMIT, PRUNE_SOLUTION_SET);
+		List<NavigationNode[]> solutions = solver.solve(MOVE_LIMIT, PRUNE_SOLUTION_SET, null).getSolutionSet().asList();
 		
 		if(solutions.size() > 0){
 			this.displayedSolution = 0;
@@ -173,7 +174,7 @@ public class SolutionVisualizer extends JFrame {
 						
 						// Resolve the IceMap
 						IceMapSolver solver = new IceMapSolver(map);
-						LinkedList<NavigationNode[]> solutions = solver.solve(MOVE_LIMIT, PRUNE_SOLUTION_SET);
+						List<NavigationNode[]> solutions = solver.solve(MOVE_LIMIT, PRUNE_SOLUTION_SET, null).getSolutionSet().asList();
 
 						if(solutions.size() > 0){
 							displayedSolution = 0;
@@ -233,6 +234,14 @@ public class SolutionVisualizer extends JFrame {
 		this.setVisible(false);
 	}
 	
+	/**
+	 * @param tileset - A tileset to draw the map's tiles with, or null to draw tiles as flat colors
+	 */
+	public void setTileset(TilesetRenderer tileset){
+		this.mapLayer.setTileset(tileset);
+		this.repaint();
+	}
+	
 	protected void restartRepaintTimer(){
 
 		// Setup a timer task that iterates through the moves of the solution
@@ -307,38 +316,11 @@ public class SolutionVisualizer extends JFrame {
 	}
 
 	/**
-	 * Draws each tile of the IceMap.
+	 * Draws each tile of the IceMap. The tiles are cached in an offscreen image that is only
+	 * rebuilt when the map or the tile size changes.
 	 */
 	private void drawMap(Graphics g){
-
-		for(int x = 0; x < map.getWidth(); x++){
-			for(int y = 0; y < map.getHeight(); y++){
-
-				IceMap.Tile tile = map.getTileType(x, y);
-
-				g.setColor(Color.BLACK);
-
-				if(map.isStart(x, y)){
-					g.setColor(Color.GREEN);	
-				}
-				else if(map.isEnd(x, y)){
-					g.setColor(Color.RED);	
-				}
-				else if(tile == IceMap.Tile.FLOOR){
-					g.setColor(Color.LIGHT_GRAY);	
-				}
-				else if(tile == IceMap.Tile.ICE){
-					g.setColor(Color.WHITE);	
-				}
-
-				g.fillRect(
-						tileToPixelX(x), 
-						tileToPixelY(y),
-						tileWidth, 
-						tileHeight
-						);		
-			}
-		}
+		this.mapLayer.draw(g, map, tileWidth, tileHeight);
 	}
 
 	/**
@@ -1,6 +1,8 @@
 package com.turtlesort.icegen.visualizer;
 
 import com.turtlesort.icegen.IceMap;
+import com.turtlesort.icegen.NavigationNode;
+import com.turtlesort.icegen.SolveReport;
 
 public class TextVisualizer {
 
@@ -11,34 +13,52 @@ public class TextVisualizer {
 	}
 	
 	public void render(){
+		System.out.print(this.renderToString());
+	}
+	
+	/**
+	 * @return The same text that {@link #render()} prints, one line per row of the map
+	 */
+	public String renderToString(){
+		
+		StringBuilder s = new StringBuilder();
 		
 		for(int y = 0; y < this.map.getHeight(); y++){
 			for(int x = 0; x < this.map.getWidth(); x++){
 				
 				IceMap.Tile tile = this.map.getTileType(x, y);
 				if(this.map.isStart(x, y)){
-					System.out.print('S');
+					s.append('S');
 				}
 				else if(this.map.isEnd(x, y)){
-					System.out.print('E');
+					s.append('E');
 				}
 				else if(tile == IceMap.Tile.ICE){
-					System.out.print('~');
+					s.append('~');
 				}
 				else if(tile == IceMap.Tile.FLOOR){
-					System.out.print('#');
+					s.append('#');
 				}
 				else if(tile == IceMap.Tile.SOLID){
-					System.out.print('@');
+					s.append('@');
 				}
 				else{
-					System.out.print('?');
+					s.append('?');
 				}
-				System.out.print(' ');
+				s.append(' ');
 			}	
-			System.out.println();
+			s.append(System.lineSeparator());
 		}
 		
+		return s.toString();
+	}
+	
+	/**
+	 * @param solution - A sequence of moves
+	 * @return The first letter of each move's direction, separated by arrows (e.g. "U -> L -> D")
+	 */
+	public static String renderSolution(NavigationNode[] solution){
+		return SolveReport.renderSolution(solution);
 	}
 	
 }
@@ -0,0 +1,184 @@
+package com.turtlesort.icegen.visualizer;
+
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+
+import javax.imageio.ImageIO;
+
+import com.turtlesort.icegen.IceMap;
+
+/**
+ * Draws IceMaps using the tile images in a tileset (e.g. maps/icemaptileset.png). The tileset is
+ * sliced into individual sprites once when it is loaded, and sprites are rescaled only when the
+ * tile size changes, so drawing a tile is a single unscaled image copy. Only the tiles that fall
+ * inside the clip bounds of the graphics context are drawn, which keeps zoomed in views of very
+ * large maps cheap.
+ * 
+ * Sprites are expected in the same order as the tile ids of the TMX files: ice, floor, start, end, solid.
+ */
+public class TilesetRenderer {
+
+	/**
+	 * Size in pixels of a tile in the tileset image.
+	 */
+	public static final int SOURCE_TILE_SIZE = 32;
+	
+	private static final int ICE_SPRITE = 0;
+	private static final int FLOOR_SPRITE = 1;
+	private static final int START_SPRITE = 2;
+	private static final int END_SPRITE = 3;
+	private static final int SOLID_SPRITE = 4;
+	private static final int TOTAL_SPRITES = 5;
+	
+	private BufferedImage[] sprites;
+	private BufferedImage[] scaledSprites;
+	private int scaledWidth;
+	private int scaledHeight;
+	
+	/**
+	 * @param tileset - The tileset image. Must contain at least five tiles of SOURCE_TILE_SIZE pixels, read
+	 * left to right, top to bottom.
+	 */
+	public TilesetRenderer(BufferedImage tileset){
+		
+		int columns = tileset.getWidth() / SOURCE_TILE_SIZE;
+		
+		if(columns == 0 || columns * (tileset.getHeight() / SOURCE_TILE_SIZE) < TOTAL_SPRITES){
+			throw new IllegalArgumentException("Tileset must contain at least " + TOTAL_SPRITES + " tiles");
+		}
+		
+		this.sprites = new BufferedImage[TOTAL_SPRITES];
+		
+		for(int i = 0; i < TOTAL_SPRITES; i++){
+			BufferedImage sprite = new BufferedImage(SOURCE_TILE_SIZE, SOURCE_TILE_SIZE, BufferedImage.TYPE_INT_ARGB);
+			Graphics g = sprite.getGraphics();
+			g.drawImage(tileset.getSubimage((i % columns) * SOURCE_TILE_SIZE, (i / columns) * SOURCE_TILE_SIZE, 
+					SOURCE_TILE_SIZE, SOURCE_TILE_SIZE), 0, 0, null);
+			g.dispose();
+			this.sprites[i] = sprite;
+		}
+		
+		this.scaledSprites = this.sprites;
+		this.scaledWidth = SOURCE_TILE_SIZE;
+		this.scaledHeight = SOURCE_TILE_SIZE;
+	}
+	
+	/**
+	 * Reads a tileset image from a file.
+	 * @param file - The tileset image to read
+	 * @return A renderer using the tileset, or null if the file could not be read.
+	 */
+	public static TilesetRenderer loadTileset(File file){
+		
+		try {
+			BufferedImage image = ImageIO.read(file);
+			if(image != null){
+				return new TilesetRenderer(image);
+			}
+			
+		} catch (IOException e) {
+			e.printStackTrace();
+			
+		} catch (IllegalArgumentException e) {
+			e.printStackTrace();
+		}
+		
+		return null;
+	}
+	
+	/**
+	 * Draws the tiles of the map that are visible within the clip bounds of the graphics context. 
+	 * Tile (x,y) is drawn at pixel (originX + x*(tileWidth + gap), originY + y*(tileHeight + gap)).
+	 * @param g - The graphics context to draw to
+	 * @param map - The map to draw
+	 * @param originX - x-coordinate of the pixel the top left tile is drawn at
+	 * @param originY - y-coordinate of the pixel the top left tile is drawn at
+	 * @param tileWidth - Width of a tile in pixels
+	 * @param tileHeight - Height of a tile in pixels
+	 * @param gap - Number of pixels left between neighbouring tiles
+	 */
+	public void draw(Graphics g, IceMap map, int originX, int originY, int tileWidth, int tileHeight, int gap){
+		
+		if(tileWidth <= 0 || tileHeight <= 0) return;
+		
+		this.scaleSprites(tileWidth, tileHeight);
+		
+		int pitchX = tileWidth + gap;
+		int pitchY = tileHeight + gap;
+		
+		int firstX = 0;
+		int firstY = 0;
+		int lastX = map.getWidth() - 1;
+		int lastY = map.getHeight() - 1;
+		
+		// Cull the tiles outside of the area being painted
+		Rectangle clip = g.getClipBounds();
+		if(clip != null){
+			firstX = Math.max(firstX, Math.floorDiv(clip.x - originX, pitchX));
+			firstY = Math.max(firstY, Math.floorDiv(clip.y - originY, pitchY));
+			lastX = Math.min(lastX, Math.floorDiv(clip.x + clip.width - 1 - originX, pitchX));
+			lastY = Math.min(lastY, Math.floorDiv(clip.y + clip.height - 1 - originY, pitchY));
+		}
+		
+		for(int x = firstX; x <= lastX; x++){
+			for(int y = firstY; y <= lastY; y++){
+				g.drawImage(this.scaledSprites[this.getSpriteIndex(map, x, y)], originX + x * pitchX, originY + y * pitchY, null);
+			}
+		}
+	}
+	
+	private int getSpriteIndex(IceMap map, int x, int y){
+		
+		if(map.isStart(x, y)){
+			return START_SPRITE;
+		}
+		else if(map.isEnd(x, y)){
+			return END_SPRITE;
+		}
+		
+		IceMap.Tile tile = map.getTileType(x, y);
+		
+		if(tile == IceMap.Tile.FLOOR){
+			return FLOOR_SPRITE;
+		}
+		else if(tile == IceMap.Tile.ICE){
+			return ICE_SPRITE;
+		}
+		
+		return SOLID_SPRITE;
+	}
+	
+	/*
+	 * Rescales every sprite to the given size, unless they already have that size.
+	 */
+	private void scaleSprites(int width, int height){
+		
+		if(width == this.scaledWidth && height == this.scaledHeight) return;
+		
+		if(width == SOURCE_TILE_SIZE && height == SOURCE_TILE_SIZE){
+			this.scaledSprites = this.sprites;
+		}
+		else{
+			BufferedImage[] scaled = new BufferedImage[TOTAL_SPRITES];
+			
+			for(int i = 0; i < TOTAL_SPRITES; i++){
+				scaled[i] = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+				Graphics2D g = scaled[i].createGraphics();
+				g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+				g.drawImage(this.sprites[i], 0, 0, width, height, null);
+				g.dispose();
+			}
+			
+			this.scaledSprites = scaled;
+		}
+		
+		this.scaledWidth = width;
+		this.scaledHeight = height;
+	}
+	
+}
@@ -0,0 +1,91 @@
+package com.turtlesort.icegen;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.turtlesort.icegen.generators.SyntheticMapGenerator;
+
+/**
+ * Compares the solutions of {@link AStarSolver} with the breadth first search of
+ * {@link IceMapSolver#findOptimalMoveCount()} on seeded synthetic maps.
+ */
+public class AStarSolverTest {
+
+	private static final int[] SIZES = {8, 16, 32, 64, 128};
+	private static final int MAPS_PER_SIZE = 40;
+
+	@Test
+	public void findsSolutionsOfOptimalLength(){
+
+		for(int size : SIZES){
+			SyntheticMapGenerator generator = new SyntheticMapGenerator(size, size, 0.65, 0.1, size);
+
+			for(int i = 0; i < MAPS_PER_SIZE; i++){
+
+				IceMap map = generator.generate();
+				int optimalMoveCount = new IceMapSolver(map).findOptimalMoveCount();
+				NavigationNode[] solution = new AStarSolver(map).findOptimalSolution();
+
+				String message = "Map " + i + " of size " + size;
+				assertEquals(message, optimalMoveCount, solution == null ? -1 : solution.length);
+
+				if(solution != null){
+					assertValidSolution(message, map, solution);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void respectsTheMoveLimit(){
+
+		SyntheticMapGenerator generator = new SyntheticMapGenerator(32, 32, 0.65, 0.1, 1);
+
+		for(int i = 0; i < MAPS_PER_SIZE; i++){
+
+			IceMap map = generator.generate();
+			int optimalMoveCount = new IceMapSolver(map).findOptimalMoveCount();
+
+			if(optimalMoveCount < 1) continue;
+
+			AStarSolver solver = new AStarSolver(map);
+			assertNull(solver.findOptimalSolution(optimalMoveCount - 1, null));
+			assertNotNull(solver.findOptimalSolution(optimalMoveCount, null));
+		}
+	}
+
+	@Test
+	public void doesNotSolveAMapThatStartsOnTheEnd(){
+
+		IceMap map = new SyntheticMapGenerator(8, 8, 0.65, 0.1, 1).generate();
+		map.setEndTile(map.getStartX(), map.getStartY());
+
+		assertNull(new AStarSolver(map).findOptimalSolution());
+	}
+
+	/*
+	 * Replays the moves of a solution and checks that each one stops where it says and the last one on the end.
+	 */
+	private static void assertValidSolution(String message, IceMap map, NavigationNode[] solution){
+
+		int x = map.getStartX();
+		int y = map.getStartY();
+
+		for(NavigationNode move : solution){
+			int destination = SlideTable.slide(map, x, y, move.getDirection());
+			x = destination % map.getWidth();
+			y = destination / map.getWidth();
+
+			assertEquals(message, move.getDestinationX(), x);
+			assertEquals(message, move.getDestinationY(), y);
+		}
+
+		assertTrue(message, map.isEnd(x, y));
+		assertTrue(message, solution[solution.length - 1].isEnd());
+	}
+
+}
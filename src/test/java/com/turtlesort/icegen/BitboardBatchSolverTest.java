@@ -0,0 +1,110 @@
+package com.turtlesort.icegen;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.turtlesort.icegen.generators.SyntheticMapGenerator;
+
+/**
+ * Compares the solutions of {@link BitboardBatchSolver} with the breadth first search of
+ * {@link IceMapSolver#findOptimalMoveCount()} on seeded synthetic maps.
+ */
+public class BitboardBatchSolverTest {
+
+	private static final int MAPS_PER_SIZE = 60;
+
+	@Test
+	public void findsSolutionsOfOptimalLength(){
+
+		List<IceMap> maps = new ArrayList<IceMap>();
+
+		// Maps of different sizes share batches, and the 20x20 maps are too large for a lane
+		for(int size : new int[]{3, 5, 8, 11, 16, 20}){
+			SyntheticMapGenerator generator = new SyntheticMapGenerator(size, size, 0.65, 0.1, size);
+			for(int i = 0; i < MAPS_PER_SIZE; i++){
+				maps.add(generator.generate());
+			}
+		}
+
+		SyntheticMapGenerator narrow = new SyntheticMapGenerator(16, 5, 0.5, 0.15, 1);
+		for(int i = 0; i < MAPS_PER_SIZE; i++){
+			maps.add(narrow.generate());
+		}
+
+		// A batch size that does not divide the number of maps leaves a partly filled last batch
+		SolverResult[] results = new BitboardBatchSolver(64).solve(maps);
+		assertEquals(maps.size(), results.length);
+
+		for(int i = 0; i < maps.size(); i++){
+
+			IceMap map = maps.get(i);
+			SolutionSet solutions = results[i].getSolutionSet();
+			String message = "Map " + i + " of size " + map.getWidth() + "x" + map.getHeight();
+
+			assertEquals(message, new IceMapSolver(map).findOptimalMoveCount(), solutions.isEmpty() ? -1 : solutions.getLength(0));
+
+			if(!solutions.isEmpty()){
+				assertValidSolution(message, map, solutions.get(0));
+			}
+		}
+	}
+
+	@Test
+	public void agreesWithTheScalarSolver(){
+
+		List<IceMap> maps = new ArrayList<IceMap>();
+		SyntheticMapGenerator generator = new SyntheticMapGenerator(16, 16, 0.8, 0.05, 2);
+
+		for(int i = 0; i < 300; i++){
+			maps.add(generator.generate());
+		}
+
+		SolverResult[] results = new BitboardBatchSolver().solve(maps);
+
+		for(int i = 0; i < maps.size(); i++){
+			SolutionSet scalar = BitboardBatchSolver.solveScalar(maps.get(i)).getSolutionSet();
+			SolutionSet batched = results[i].getSolutionSet();
+
+			assertEquals("Map " + i, scalar.isEmpty() ? -1 : scalar.getLength(0), batched.isEmpty() ? -1 : batched.getLength(0));
+		}
+	}
+
+	@Test
+	public void doesNotSolveAMapThatStartsOnTheEnd(){
+
+		IceMap map = new SyntheticMapGenerator(8, 8, 0.65, 0.1, 1).generate();
+		map.setEndTile(map.getStartX(), map.getStartY());
+
+		List<IceMap> maps = new ArrayList<IceMap>();
+		maps.add(map);
+
+		assertTrue(new BitboardBatchSolver().solve(maps)[0].getSolutionSet().isEmpty());
+	}
+
+	/*
+	 * Replays the moves of a solution and checks that each one stops where it says and the last one on the end.
+	 */
+	private static void assertValidSolution(String message, IceMap map, NavigationNode[] solution){
+
+		int x = map.getStartX();
+		int y = map.getStartY();
+
+		for(NavigationNode move : solution){
+			int destination = SlideTable.slide(map, x, y, move.getDirection());
+			x = destination % map.getWidth();
+			y = destination / map.getWidth();
+
+			assertEquals(message, move.getDestinationX(), x);
+			assertEquals(message, move.getDestinationY(), y);
+		}
+
+		assertTrue(message, map.isEnd(x, y));
+		assertTrue(message, solution[solution.length - 1].isEnd());
+	}
+
+}
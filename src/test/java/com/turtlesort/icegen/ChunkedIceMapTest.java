@@ -0,0 +1,191 @@
+package com.turtlesort.icegen;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests chunk files and the chunk cache of {@link ChunkedIceMap}.
+ */
+public class ChunkedIceMapTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void convertedBinaryFilesReadBackTheSameMap() throws IOException {
+
+		Random random = new Random(1);
+
+		// Sizes that leave partly filled chunks on the right and bottom edges, and chunks larger than the map
+		int[][] sizes = {{37, 23, 8}, {64, 64, 16}, {5, 90, 7}, {10, 10, 32}, {1, 1, 1}};
+
+		for(int[] size : sizes){
+
+			IceMap map = randomMap(random, size[0], size[1]);
+			map.setName("map " + size[0] + "x" + size[1]);
+
+			File binary = this.folder.newFile();
+			File converted = this.folder.newFile();
+			File written = this.folder.newFile();
+
+			map.writeBinaryFile(binary);
+			ChunkedIceMap.convertBinaryFile(binary, converted, size[2]);
+			ChunkedIceMap.write(map, written, size[2]);
+
+			assertArrayEquals(Files.readAllBytes(written.toPath()), Files.readAllBytes(converted.toPath()));
+
+			ChunkedIceMap chunked = new ChunkedIceMap(converted, 2);
+
+			try {
+				assertEquals(size[2], chunked.getChunkSize());
+				assertEquals(map.getWidth(), chunked.getWidth());
+				assertEquals(map.getHeight(), chunked.getHeight());
+				assertEquals(map.getStartX(), chunked.getStartX());
+				assertEquals(map.getStartY(), chunked.getStartY());
+				assertEquals(map.getEndX(), chunked.getEndX());
+				assertEquals(map.getEndY(), chunked.getEndY());
+				assertEquals(map.getName(), chunked.getName());
+
+				// Includes the tiles just outside the map, which read as solid
+				for(int y = -1; y <= map.getHeight(); y++){
+					for(int x = -1; x <= map.getWidth(); x++){
+						assertEquals("Tile " + x + "," + y, map.getTileType(x, y), chunked.getTileType(x, y));
+					}
+				}
+
+				assertEquals(new IceMapSolver(map).findOptimalMoveCount(), new IceMapSolver(chunked).findOptimalMoveCount());
+			} finally {
+				chunked.close();
+			}
+		}
+	}
+
+	@Test
+	public void evictsTheChunkUsedLeastRecently() throws IOException {
+
+		// Four 4x4 chunks, two of which can be resident
+		IceMap map = randomMap(new Random(2), 8, 8);
+		File file = this.folder.newFile();
+		ChunkedIceMap.write(map, file, 4);
+
+		ChunkedIceMap chunked = new ChunkedIceMap(file, 2);
+
+		try {
+			this.read(map, chunked, 0, 0);		// Chunk 0 is copied out of the file
+			this.assertCounts(chunked, 0, 1, 1);
+
+			this.read(map, chunked, 1, 0);		// Chunk 0 again, from the last chunk read
+			this.assertCounts(chunked, 1, 1, 1);
+
+			this.read(map, chunked, 4, 0);		// Chunk 1
+			this.assertCounts(chunked, 1, 2, 2);
+
+			this.read(map, chunked, 0, 1);		// Chunk 0 is resident and now the most recently used
+			this.assertCounts(chunked, 2, 2, 2);
+
+			this.read(map, chunked, 0, 4);		// Chunk 2 takes the place of chunk 1
+			this.assertCounts(chunked, 2, 3, 2);
+
+			this.read(map, chunked, 3, 3);		// Chunk 0 is still resident
+			this.assertCounts(chunked, 3, 3, 2);
+
+			this.read(map, chunked, 5, 1);		// Chunk 1 was evicted, and takes the place of chunk 2
+			this.assertCounts(chunked, 3, 4, 2);
+
+			this.read(map, chunked, 1, 5);		// Chunk 2 was evicted
+			this.assertCounts(chunked, 3, 5, 2);
+
+			this.read(map, chunked, 7, 7);		// Chunk 3 is new
+			this.assertCounts(chunked, 3, 6, 2);
+		} finally {
+			chunked.close();
+		}
+	}
+
+	@Test
+	public void closedMapsCannotBeRead() throws IOException {
+
+		IceMap map = randomMap(new Random(3), 20, 20);
+		File file = this.folder.newFile();
+		ChunkedIceMap.write(map, file, 8);
+
+		ChunkedIceMap chunked = new ChunkedIceMap(file, 4);
+		chunked.getTileType(10, 10);
+		chunked.close();
+
+		assertEquals(0, chunked.getResidentChunkCount());
+
+		try {
+			chunked.getTileType(10, 10);
+			fail("Read a tile of a closed map");
+		} catch (IllegalStateException e) {
+		}
+	}
+
+	@Test
+	public void rejectsFilesThatAreNotChunkFiles() throws IOException {
+
+		IceMap map = randomMap(new Random(4), 20, 20);
+
+		File binary = this.folder.newFile();
+		map.writeBinaryFile(binary);
+
+		try {
+			new ChunkedIceMap(binary, 4).close();
+			fail("Opened a binary map file as a chunk file");
+		} catch (IOException e) {
+		}
+
+		File truncated = this.folder.newFile();
+		ChunkedIceMap.write(map, truncated, 8);
+
+		RandomAccessFile file = new RandomAccessFile(truncated, "rw");
+		file.setLength(file.length() - 1);
+		file.close();
+
+		try {
+			new ChunkedIceMap(truncated, 4).close();
+			fail("Opened a truncated chunk file");
+		} catch (IOException e) {
+		}
+	}
+
+	private void read(IceMap map, ChunkedIceMap chunked, int x, int y){
+		assertEquals("Tile " + x + "," + y, map.getTileType(x, y), chunked.getTileType(x, y));
+	}
+
+	private void assertCounts(ChunkedIceMap chunked, long hits, long misses, int resident){
+		assertEquals("Hits", hits, chunked.getChunkHits());
+		assertEquals("Misses", misses, chunked.getChunkMisses());
+		assertEquals("Resident chunks", resident, chunked.getResidentChunkCount());
+	}
+
+	private static IceMap randomMap(Random random, int width, int height){
+
+		IceMap map = new IceMap(width, height);
+		IceMap.Tile[] types = IceMap.Tile.values();
+
+		for(int x = 0; x < width; x++){
+			for(int y = 0; y < height; y++){
+				map.setTileType(x, y, types[random.nextInt(types.length)]);
+			}
+		}
+
+		map.setStartTile(random.nextInt(width), random.nextInt(height));
+		map.setEndTile(random.nextInt(width), random.nextInt(height));
+
+		return map;
+	}
+
+}
@@ -0,0 +1,155 @@
+package com.turtlesort.icegen;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests that contracting forced and corridor tiles keeps shortest paths intact: the expanded solutions must
+ * be real sequences of slides, as short as the breadth first search over the full slide graph.
+ */
+public class ContractedSlideGraphTest {
+
+	@Test
+	public void contractsAFloorCorridorToItsEnds(){
+
+		// A straight corridor of floor: every move covers a single tile
+		IceMap map = new IceMap(12, 3);
+		for(int x = 0; x < 12; x++){
+			map.setTileType(x, 0, IceMap.Tile.SOLID);
+			map.setTileType(x, 2, IceMap.Tile.SOLID);
+		}
+		map.setTileType(0, 1, IceMap.Tile.SOLID);
+		map.setTileType(11, 1, IceMap.Tile.SOLID);
+		for(int x = 1; x < 11; x++){
+			map.setTileType(x, 1, IceMap.Tile.FLOOR);
+		}
+		map.setStartTile(1, 1);
+		map.setEndTile(10, 1);
+
+		ContractedSlideGraph graph = new ContractedSlideGraph(map);
+
+		// The ending tile is never left, so the tile before it cannot be walked through both ways and stays
+		assertEquals(10, graph.getStopTileCount());
+		assertEquals(3, graph.getNodeCount());
+		assertEquals(3, graph.getEdgeCount());
+		assertEquals(9, graph.findOptimalMoveCount());
+
+		NavigationNode[] solution = graph.findOptimalSolution();
+		assertEquals(9, solution.length);
+		for(int move = 0; move < solution.length; move++){
+			assertEquals(IceMapSolver.Direction.RIGHT, solution[move].getDirection());
+			assertEquals(2 + move, solution[move].getDestinationX());
+		}
+		assertValidSolution(map, solution);
+	}
+
+	@Test
+	public void expandsShortestPathsOnRandomMaps(){
+
+		Random random = new Random(3);
+		int solved = 0;
+
+		for(int i = 0; i < 500; i++){
+
+			IceMap map = randomMap(random, 3 + random.nextInt(30), 3 + random.nextInt(30));
+			int optimalMoveCount = new IceMapSolver(map).findOptimalMoveCount();
+
+			ContractedSlideGraph graph = new ContractedSlideGraph(map);
+			NavigationNode[] solution = graph.findOptimalSolution();
+
+			assertEquals("Map " + i, optimalMoveCount, graph.findOptimalMoveCount());
+			assertTrue(graph.getNodeCount() <= graph.getStopTileCount());
+
+			if(optimalMoveCount == -1){
+				assertNull("Map " + i, solution);
+				continue;
+			}
+
+			assertEquals("Map " + i, optimalMoveCount, solution.length);
+			assertValidSolution(map, solution);
+			solved++;
+		}
+
+		assertTrue(solved > 100);
+	}
+
+	@Test
+	public void answersRepeatedQueriesTheSame(){
+
+		IceMap map = randomMap(new Random(5), 40, 40);
+		map.setTileType(map.getStartX(), map.getStartY(), IceMap.Tile.FLOOR);
+
+		ContractedSlideGraph graph = new ContractedSlideGraph(map);
+		int optimalMoveCount = graph.findOptimalMoveCount();
+
+		for(int i = 0; i < 3; i++){
+			assertEquals(optimalMoveCount, graph.findOptimalMoveCount());
+			NavigationNode[] solution = graph.findOptimalSolution();
+			assertEquals(optimalMoveCount, solution == null ? -1 : solution.length);
+		}
+	}
+
+	@Test
+	public void aMapThatStartsOnTheEndHasNoSolution(){
+
+		IceMap map = randomMap(new Random(1), 10, 10);
+		map.setEndTile(map.getStartX(), map.getStartY());
+
+		ContractedSlideGraph graph = new ContractedSlideGraph(map);
+		assertEquals(-1, graph.findOptimalMoveCount());
+		assertNull(graph.findOptimalSolution());
+	}
+
+	/*
+	 * A map without a solid border, so slides also stop at the edges, with a random mix of tiles that
+	 * gives many forced and corridor tiles.
+	 */
+	private static IceMap randomMap(Random random, int width, int height){
+
+		IceMap map = new IceMap(width, height);
+		double solid = random.nextDouble() * 0.4;
+		double ice = random.nextDouble() * 0.5;
+
+		for(int x = 0; x < width; x++){
+			for(int y = 0; y < height; y++){
+				double roll = random.nextDouble();
+				map.setTileType(x, y, roll < solid ? IceMap.Tile.SOLID : roll < solid + ice ? IceMap.Tile.ICE : IceMap.Tile.FLOOR);
+			}
+		}
+
+		map.setStartTile(random.nextInt(width), random.nextInt(height));
+		map.setEndTile(random.nextInt(width), random.nextInt(height));
+
+		return map;
+	}
+
+	/*
+	 * Replays the solution, checking that no move passes the ending tile before the last one.
+	 */
+	private static void assertValidSolution(IceMap map, NavigationNode[] solution){
+
+		int x = map.getStartX();
+		int y = map.getStartY();
+
+		for(int move = 0; move < solution.length; move++){
+
+			assertTrue(!map.isEnd(x, y));
+
+			int destination = SlideTable.slide(map, x, y, solution[move].getDirection());
+			x = destination % map.getWidth();
+			y = destination / map.getWidth();
+
+			assertEquals(solution[move].getDestinationX(), x);
+			assertEquals(solution[move].getDestinationY(), y);
+		}
+
+		assertTrue(map.isEnd(x, y));
+		assertTrue(solution[solution.length - 1].isEnd());
+	}
+
+}
@@ -0,0 +1,240 @@
+package com.turtlesort.icegen;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.turtlesort.icegen.generators.SyntheticMapGenerator;
+
+/**
+ * Checks that {@link IceMapSolver#solve(int, boolean)} still finds the solutions the original solver found,
+ * before opposite moves were pruned during the search, nodes were kept in an arena and solutions were
+ * packed into a {@link SolutionSet}. The original solutions of each map were recorded as their number and
+ * the hash code of their moves written out in order by {@link #encode(List)}.
+ */
+public class IceMapSolverTest {
+
+	private static final Recorded[] TMX_MAPS = {
+		new Recorded("map1", 18, false, 1, 0xd194b121),
+		new Recorded("map1", 20, false, 9, 0x5a75217a),
+		new Recorded("map1", 20, true, 1, 0xd194b121),
+		new Recorded("map2", 18, false, 513, 0xccc8e2cd),
+		new Recorded("map2", 18, true, 28, 0xcf5269f1),
+		new Recorded("map2", 20, false, 1148, 0xb5d19047),
+		new Recorded("map2", 20, true, 44, 0x51a2fb6f),
+		new Recorded("map3", 18, false, 518, 0x291e90cb),
+		new Recorded("map3", 18, true, 5, 0xfe30fc3c),
+		new Recorded("map3", 20, false, 1601, 0x6c10d328),
+		new Recorded("map3", 20, true, 7, 0x70369c90),
+	};
+
+	// The first four maps of a SyntheticMapGenerator(size, size, 0.65, 0.1, size), solved with a move limit of 10
+	private static final Recorded[] SYNTHETIC_MAPS = {
+		new Recorded("8-0", 10, false, 17, 0x5b767ae0),
+		new Recorded("8-0", 10, true, 1, 0x3e53cfdf),
+		new Recorded("8-1", 10, false, 24, 0x2f47312a),
+		new Recorded("8-1", 10, true, 7, 0x2ce14c62),
+		new Recorded("8-2", 10, false, 13, 0x66d585e9),
+		new Recorded("8-2", 10, true, 5, 0x5f956bbf),
+		new Recorded("8-3", 10, false, 29, 0x21e925d1),
+		new Recorded("8-3", 10, true, 8, 0x2a3c2a08),
+		new Recorded("12-0", 10, false, 18, 0x2d02b0aa),
+		new Recorded("12-0", 10, true, 12, 0xaab12c6b),
+		new Recorded("12-1", 10, false, 13, 0xc36c27c0),
+		new Recorded("12-1", 10, true, 3, 0xea494112),
+		new Recorded("12-2", 10, false, 32, 0xc9afafe0),
+		new Recorded("12-2", 10, true, 18, 0x779e52e0),
+		new Recorded("12-3", 10, false, 39, 0x194200fb),
+		new Recorded("12-3", 10, true, 24, 0x7e9c7756),
+		new Recorded("16-0", 10, false, 0, 0x00000000),
+		new Recorded("16-0", 10, true, 0, 0x00000000),
+		new Recorded("16-1", 10, false, 15, 0x0a800f67),
+		new Recorded("16-1", 10, true, 5, 0x718c503b),
+		new Recorded("16-2", 10, false, 5, 0x209c36be),
+		new Recorded("16-2", 10, true, 4, 0x76ef62e2),
+		new Recorded("16-3", 10, false, 8, 0xa90eb736),
+		new Recorded("16-3", 10, true, 6, 0x9062c66a),
+	};
+
+	@Test
+	public void findsTheRecordedSolutionsOfTheTmxMaps(){
+		for(Recorded recorded : TMX_MAPS){
+			IceMap map = loadTmxMap(recorded.map);
+			recorded.check(map, new IceMapSolver(map).solve(recorded.moveLimit, recorded.prune));
+		}
+	}
+
+	@Test
+	public void findsTheRecordedSolutionsOfSyntheticMaps(){
+		for(Recorded recorded : SYNTHETIC_MAPS){
+			IceMap map = generateSyntheticMap(recorded.map);
+			recorded.check(map, new IceMapSolver(map).solve(recorded.moveLimit, recorded.prune));
+		}
+	}
+
+	/*
+	 * The nodes of every solve come from an arena that is reset when the solver starts again, so a solver
+	 * used with different limits and pruning must give the same solutions as a new one.
+	 */
+	@Test
+	public void repeatedSolvesOnOneSolverGiveTheRecordedSolutions(){
+
+		IceMap map = loadTmxMap("map2");
+		IceMapSolver solver = new IceMapSolver(map);
+
+		int[] order = {6, 4, 3, 5, 6, 3};
+
+		for(int i : order){
+			Recorded recorded = TMX_MAPS[i];
+			recorded.check(map, solver.solve(recorded.moveLimit, recorded.prune));
+		}
+	}
+
+	@Test
+	public void solutionSetMatchesTheSolutionList(){
+
+		IceMap map = loadTmxMap("map3");
+		IceMapSolver solver = new IceMapSolver(map);
+
+		SolutionSet solutions = solver.solve(20, false, null).getSolutionSet();
+		List<NavigationNode[]> list = solver.solve(20, false);
+
+		assertEquals(list.size(), solutions.size());
+		assertEquals(encode(list), encode(solutions.asList()));
+
+		for(int i = 0; i < solutions.size(); i++){
+
+			NavigationNode[] solution = list.get(i);
+			assertEquals(solution.length, solutions.getLength(i));
+
+			for(int move = 0; move < solution.length; move++){
+				assertEquals(solution[move].getDestinationX(), solutions.getX(i, move));
+				assertEquals(solution[move].getDestinationY(), solutions.getY(i, move));
+				assertEquals(solution[move].getDirection(), solutions.getDirection(i, move));
+			}
+		}
+	}
+
+	@Test
+	public void pruningKeepsTheOptimalSolutionAndOnlyRemovesSolutions(){
+
+		for(int i = 0; i < 4; i++){
+
+			IceMap map = generateSyntheticMap("12-" + i);
+			List<NavigationNode[]> all = new IceMapSolver(map).solve(10, false);
+			List<NavigationNode[]> pruned = new IceMapSolver(map).solve(10, true);
+
+			Set<String> unpruned = new HashSet<String>();
+			for(NavigationNode[] solution : all){
+				unpruned.add(encode(single(solution)));
+			}
+
+			assertEquals(all.get(0).length, pruned.get(0).length);
+
+			for(NavigationNode[] solution : pruned){
+				assertTrue(unpruned.contains(encode(single(solution))));
+			}
+		}
+	}
+
+	private static IceMap loadTmxMap(String name){
+		return IceMap.parseTMXFile(new File("maps", name + ".tmx"));
+	}
+
+	/*
+	 * Generates the map named "size-index", the map at that index of the sequence generated for a size.
+	 */
+	private static IceMap generateSyntheticMap(String name){
+
+		int size = Integer.parseInt(name.substring(0, name.indexOf('-')));
+		int index = Integer.parseInt(name.substring(name.indexOf('-') + 1));
+
+		SyntheticMapGenerator generator = new SyntheticMapGenerator(size, size, 0.65, 0.1, size);
+		IceMap map = generator.generate();
+
+		for(int i = 0; i < index; i++){
+			map = generator.generate();
+		}
+
+		return map;
+	}
+
+	private static List<NavigationNode[]> single(NavigationNode[] solution){
+		List<NavigationNode[]> list = new ArrayList<NavigationNode[]>();
+		list.add(solution);
+		return list;
+	}
+
+	/*
+	 * Writes out the direction and destination of every move, marking moves that end on the ending tile.
+	 */
+	private static String encode(List<NavigationNode[]> solutions){
+
+		StringBuilder s = new StringBuilder();
+
+		for(NavigationNode[] solution : solutions){
+			for(NavigationNode move : solution){
+				s.append(move.getDirection().toString().charAt(0));
+				s.append(move.getDestinationX()).append(',').append(move.getDestinationY());
+				if(move.isEnd()) s.append('!');
+				s.append(' ');
+			}
+			s.append(';');
+		}
+
+		return s.toString();
+	}
+
+	private static class Recorded {
+
+		private final String map;
+		private final int moveLimit;
+		private final boolean prune;
+		private final int solutions;
+		private final int hash;
+
+		public Recorded(String map, int moveLimit, boolean prune, int solutions, int hash){
+			this.map = map;
+			this.moveLimit = moveLimit;
+			this.prune = prune;
+			this.solutions = solutions;
+			this.hash = hash;
+		}
+
+		/*
+		 * Compares the solutions with the recorded ones, and replays each move to check where it stops.
+		 */
+		public void check(IceMap map, List<NavigationNode[]> found){
+
+			String message = this.map + " limit " + this.moveLimit + (this.prune ? " pruned" : "");
+
+			assertEquals(message, this.solutions, found.size());
+			assertEquals(message, Integer.toHexString(this.hash), Integer.toHexString(encode(found).hashCode()));
+
+			for(NavigationNode[] solution : found){
+
+				int x = map.getStartX();
+				int y = map.getStartY();
+
+				for(NavigationNode move : solution){
+					int destination = SlideTable.slide(map, x, y, move.getDirection());
+					x = destination % map.getWidth();
+					y = destination / map.getWidth();
+					assertEquals(message, move.getDestinationX(), x);
+					assertEquals(message, move.getDestinationY(), y);
+				}
+
+				assertTrue(message, map.isEnd(x, y));
+			}
+		}
+
+	}
+
+}
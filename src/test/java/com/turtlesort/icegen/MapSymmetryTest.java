@@ -0,0 +1,144 @@
+package com.turtlesort.icegen;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * Tests the eight rotations and mirror images of a map and the canonical hash that identifies them.
+ */
+public class MapSymmetryTest {
+
+	@Test
+	public void everyTransformHasTheSameCanonicalHash(){
+
+		Random random = new Random(7);
+
+		for(int i = 0; i < 20; i++){
+
+			IceMap map = randomMap(random, 3 + random.nextInt(12), 3 + random.nextInt(12));
+			CanonicalHash hash = MapSymmetry.canonicalHash(map);
+
+			for(int t = 0; t < MapSymmetry.TRANSFORMS; t++){
+				IceMap transformed = MapSymmetry.transform(map, t);
+				assertEquals("Transform " + t + " of map " + i, hash, MapSymmetry.canonicalHash(transformed));
+				assertEquals(hash, MapSymmetry.hash(MapSymmetry.canonicalForm(transformed), 0));
+			}
+		}
+	}
+
+	@Test
+	public void transformsOfAnAsymmetricMapAreDistinct(){
+
+		IceMap map = randomMap(new Random(1), 6, 9);
+		Set<CanonicalHash> hashes = new HashSet<CanonicalHash>();
+
+		for(int t = 0; t < MapSymmetry.TRANSFORMS; t++){
+			hashes.add(MapSymmetry.hash(map, t));
+			assertEquals(MapSymmetry.hash(map, t), MapSymmetry.hash(MapSymmetry.transform(map, t), 0));
+		}
+
+		assertEquals(MapSymmetry.TRANSFORMS, hashes.size());
+	}
+
+	@Test
+	public void transformMovesTilesStartAndEnd(){
+
+		IceMap map = randomMap(new Random(2), 5, 4);
+		map.setStartTile(1, 2);
+		map.setEndTile(4, 0);
+		map.setName("asymmetric");
+
+		// Transform number: expected start, expected end
+		int[][] expected = {
+			{1, 2, 4, 0},		// Unchanged
+			{3, 2, 0, 0},		// Mirrored in x
+			{1, 1, 4, 3},		// Mirrored in y
+			{3, 1, 0, 3},		// Rotated half a turn
+			{2, 1, 0, 4},		// Axes swapped
+			{2, 3, 0, 0},		// Mirrored in x, then axes swapped
+			{1, 1, 3, 4},		// Mirrored in y, then axes swapped
+			{1, 3, 3, 0},		// Both mirrors, then axes swapped
+		};
+
+		for(int t = 0; t < MapSymmetry.TRANSFORMS; t++){
+
+			IceMap transformed = MapSymmetry.transform(map, t);
+			String message = "Transform " + t;
+
+			assertEquals(message, (t & 4) != 0 ? 4 : 5, transformed.getWidth());
+			assertEquals(message, (t & 4) != 0 ? 5 : 4, transformed.getHeight());
+			assertEquals(message, expected[t][0], transformed.getStartX());
+			assertEquals(message, expected[t][1], transformed.getStartY());
+			assertEquals(message, expected[t][2], transformed.getEndX());
+			assertEquals(message, expected[t][3], transformed.getEndY());
+			assertEquals("asymmetric", transformed.getName());
+
+			for(int x = 0; x < map.getWidth(); x++){
+				for(int y = 0; y < map.getHeight(); y++){
+					int u = MapSymmetry.transformX(map, t, x, y);
+					int v = MapSymmetry.transformY(map, t, x, y);
+					assertEquals(message, map.getTileType(x, y), transformed.getTileType(u, v));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void transformsKeepTheOptimalMoveCount(){
+
+		Random random = new Random(3);
+
+		for(int i = 0; i < 20; i++){
+
+			IceMap map = randomMap(random, 4 + random.nextInt(12), 4 + random.nextInt(12));
+			int optimalMoveCount = new IceMapSolver(map).findOptimalMoveCount();
+
+			for(int t = 1; t < MapSymmetry.TRANSFORMS; t++){
+				assertEquals(optimalMoveCount, new IceMapSolver(MapSymmetry.transform(map, t)).findOptimalMoveCount());
+			}
+		}
+	}
+
+	@Test
+	public void hashCoversTilesStartAndEnd(){
+
+		IceMap map = randomMap(new Random(4), 8, 8);
+		CanonicalHash hash = MapSymmetry.canonicalHash(map);
+
+		IceMap edited = new IceMap(map);
+		edited.setTileType(3, 3, map.getTileType(3, 3) == IceMap.Tile.SOLID ? IceMap.Tile.ICE : IceMap.Tile.SOLID);
+		assertFalse(hash.equals(MapSymmetry.canonicalHash(edited)));
+
+		IceMap swapped = new IceMap(map);
+		swapped.setStartTile(map.getEndX(), map.getEndY());
+		swapped.setEndTile(map.getStartX(), map.getStartY());
+		assertFalse(hash.equals(MapSymmetry.canonicalHash(swapped)));
+
+		assertTrue(hash.equals(MapSymmetry.canonicalHash(new IceMap(map))));
+	}
+
+	private static IceMap randomMap(Random random, int width, int height){
+
+		IceMap map = new IceMap(width, height);
+		IceMap.Tile[] types = IceMap.Tile.values();
+
+		for(int x = 0; x < width; x++){
+			for(int y = 0; y < height; y++){
+				map.setTileType(x, y, types[random.nextInt(types.length)]);
+			}
+		}
+
+		map.setStartTile(random.nextInt(width), random.nextInt(height));
+		map.setEndTile(random.nextInt(width), random.nextInt(height));
+
+		return map;
+	}
+
+}
@@ -0,0 +1,181 @@
+package com.turtlesort.icegen;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests maps whose tiles are stored in a direct buffer: they must read, write and solve exactly like maps
+ * stored on the heap, and refuse to be used once closed.
+ */
+public class OffHeapIceMapTest {
+
+	@Test
+	public void newTilesAreIce(){
+
+		IceMap map = new IceMap(5, 3, true);
+
+		try {
+			assertTrue(map.isOffHeap());
+			for(int x = 0; x < 5; x++){
+				for(int y = 0; y < 3; y++){
+					assertEquals(IceMap.Tile.ICE, map.getTileType(x, y));
+				}
+			}
+		} finally {
+			map.close();
+		}
+	}
+
+	@Test
+	public void readsTheSameBinaryMapAsTheHeap() throws IOException {
+
+		IceMap heap = randomMap(new Random(1), 37, 23);
+		heap.setName("random");
+
+		byte[] written = toBinary(heap);
+		IceMap offHeap = IceMap.readBinary(new ByteArrayInputStream(written), true);
+
+		try {
+			assertTrue(offHeap.isOffHeap());
+			assertSameMap(heap, offHeap);
+
+			// Writing the off-heap map gives the same bytes back
+			assertArrayEquals(written, toBinary(offHeap));
+		} finally {
+			offHeap.close();
+		}
+	}
+
+	@Test
+	public void parsesTheSameTmxMapsAsTheHeap(){
+
+		for(int i = 1; i <= 3; i++){
+
+			File file = new File("maps", "map" + i + ".tmx");
+			IceMap heap = IceMap.parseTMXFile(file);
+			IceMap offHeap = IceMap.parseTMXFile(file, true);
+
+			try {
+				assertSameMap(heap, offHeap);
+				assertEquals(new IceMapSolver(heap).solve(18, true).size(), new IceMapSolver(offHeap).solve(18, true).size());
+			} finally {
+				offHeap.close();
+			}
+		}
+	}
+
+	@Test
+	public void copiesAreIndependent(){
+
+		IceMap original = new IceMap(6, 6, true);
+		original.setTileType(2, 2, IceMap.Tile.SOLID);
+
+		IceMap copy = new IceMap(original);
+		copy.setTileType(2, 2, IceMap.Tile.FLOOR);
+		copy.setTileType(3, 3, IceMap.Tile.SOLID);
+
+		assertTrue(copy.isOffHeap());
+		assertEquals(IceMap.Tile.SOLID, original.getTileType(2, 2));
+		assertEquals(IceMap.Tile.ICE, original.getTileType(3, 3));
+
+		original.close();
+		assertEquals(IceMap.Tile.FLOOR, copy.getTileType(2, 2));
+		copy.close();
+	}
+
+	@Test
+	public void refusesToBeUsedAfterClosing() throws IOException {
+
+		IceMap map = randomMap(new Random(2), 8, 8);
+		IceMap offHeap = IceMap.readBinary(new ByteArrayInputStream(toBinary(map)), true);
+		IceMapSnapshot snapshot = offHeap.snapshot();
+
+		offHeap.close();
+		offHeap.close();		// A second close has no effect
+
+		try {
+			offHeap.getTileType(0, 0);
+			fail("Read a tile of a closed map");
+		} catch (IllegalStateException e) {
+		}
+
+		try {
+			offHeap.setTileType(0, 0, IceMap.Tile.SOLID);
+			fail("Wrote a tile of a closed map");
+		} catch (IllegalStateException e) {
+		}
+
+		try {
+			offHeap.writeBinary(new ByteArrayOutputStream());
+			fail("Wrote a closed map");
+		} catch (IllegalStateException e) {
+		}
+
+		// Snapshots hold their own copy of the tiles
+		assertSameMap(map, snapshot);
+	}
+
+	@Test
+	public void closingAMapOnTheHeapHasNoEffect(){
+
+		IceMap map = randomMap(new Random(3), 4, 4);
+		IceMap.Tile tile = map.getTileType(1, 1);
+
+		map.close();
+
+		assertFalse(map.isOffHeap());
+		assertEquals(tile, map.getTileType(1, 1));
+	}
+
+	private static byte[] toBinary(IceMap map) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		map.writeBinary(out);
+		return out.toByteArray();
+	}
+
+	private static void assertSameMap(IceMapView expected, IceMapView actual){
+
+		assertEquals(expected.getWidth(), actual.getWidth());
+		assertEquals(expected.getHeight(), actual.getHeight());
+		assertEquals(expected.getStartX(), actual.getStartX());
+		assertEquals(expected.getStartY(), actual.getStartY());
+		assertEquals(expected.getEndX(), actual.getEndX());
+		assertEquals(expected.getEndY(), actual.getEndY());
+		assertEquals(expected.getName(), actual.getName());
+
+		for(int x = 0; x < expected.getWidth(); x++){
+			for(int y = 0; y < expected.getHeight(); y++){
+				assertEquals("Tile " + x + "," + y, expected.getTileType(x, y), actual.getTileType(x, y));
+			}
+		}
+	}
+
+	private static IceMap randomMap(Random random, int width, int height){
+
+		IceMap map = new IceMap(width, height);
+		IceMap.Tile[] types = IceMap.Tile.values();
+
+		for(int x = 0; x < width; x++){
+			for(int y = 0; y < height; y++){
+				map.setTileType(x, y, types[random.nextInt(types.length)]);
+			}
+		}
+
+		map.setStartTile(random.nextInt(width), random.nextInt(height));
+		map.setEndTile(random.nextInt(width), random.nextInt(height));
+
+		return map;
+	}
+
+}
@@ -0,0 +1,110 @@
+package com.turtlesort.icegen;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.turtlesort.icegen.generators.SyntheticMapGenerator;
+
+/**
+ * Compares the answers of {@link ReachabilityAnalyzer} with the breadth first search of
+ * {@link IceMapSolver#findOptimalMoveCount()} on seeded synthetic maps, before and after editing them.
+ */
+public class ReachabilityAnalyzerTest {
+
+	private static final int[] SIZES = {8, 16, 32, 64};
+	private static final int MAPS_PER_SIZE = 40;
+	private static final int EDITS_PER_MAP = 100;
+
+	@Test
+	public void agreesWithTheSolverOnGeneratedMaps(){
+
+		for(int size : SIZES){
+			SyntheticMapGenerator generator = new SyntheticMapGenerator(size, size, 0.6, 0.2, size);
+
+			for(int i = 0; i < MAPS_PER_SIZE; i++){
+				IceMap map = generator.generate();
+				assertEquals("Map " + i + " of size " + size, isSolvable(map), new ReachabilityAnalyzer(map).isSolvable());
+			}
+		}
+	}
+
+	@Test
+	public void agreesWithTheSolverAfterEdits(){
+
+		Random random = new Random(1);
+		IceMap.Tile[] types = IceMap.Tile.values();
+
+		for(int size : SIZES){
+			SyntheticMapGenerator generator = new SyntheticMapGenerator(size, size, 0.6, 0.2, size);
+
+			for(int i = 0; i < MAPS_PER_SIZE / 4; i++){
+
+				IceMap map = generator.generate();
+				ReachabilityAnalyzer analyzer = new ReachabilityAnalyzer(map);
+
+				for(int edit = 0; edit < EDITS_PER_MAP; edit++){
+
+					int x = 1 + random.nextInt(size - 2);
+					int y = 1 + random.nextInt(size - 2);
+
+					if(map.isStart(x, y) || map.isEnd(x, y)) continue;
+
+					map.setTileType(x, y, types[random.nextInt(types.length)]);
+					analyzer.tileChanged(x, y);
+
+					assertEquals("Edit " + edit + " of map " + i + " of size " + size, isSolvable(map), analyzer.isSolvable());
+				}
+			}
+		}
+	}
+
+	@Test
+	public void knowsWhichTilesCanReachTheEnd(){
+
+		IceMap map = new SyntheticMapGenerator(16, 16, 0.6, 0.2, 1).generate();
+		ReachabilityAnalyzer analyzer = new ReachabilityAnalyzer(map);
+		boolean[][] reachesEnd = new boolean[map.getWidth()][map.getHeight()];
+
+		for(int x = 0; x < map.getWidth(); x++){
+			for(int y = 0; y < map.getHeight(); y++){
+				reachesEnd[x][y] = analyzer.canReachEnd(x, y);
+			}
+		}
+
+		for(int x = 0; x < map.getWidth(); x++){
+			for(int y = 0; y < map.getHeight(); y++){
+
+				IceMap.Tile type = map.getTileType(x, y);
+				if(type == IceMap.Tile.SOLID){
+					assertFalse(reachesEnd[x][y]);
+					continue;
+				}
+
+				if(map.isEnd(x, y)) continue;
+
+				// Start from the tile without changing its type, which setStartTile does
+				map.setStartTile(x, y);
+				map.setTileType(x, y, type);
+				assertEquals("Tile " + x + "," + y, isSolvable(map), reachesEnd[x][y]);
+			}
+		}
+	}
+
+	@Test
+	public void aMapThatStartsOnTheEndIsNotSolvable(){
+
+		IceMap map = new SyntheticMapGenerator(8, 8, 0.6, 0.2, 1).generate();
+		map.setEndTile(map.getStartX(), map.getStartY());
+
+		assertFalse(new ReachabilityAnalyzer(map).isSolvable());
+	}
+
+	private static boolean isSolvable(IceMap map){
+		return new IceMapSolver(map).findOptimalMoveCount() >= 0;
+	}
+
+}
@@ -0,0 +1,168 @@
+package com.turtlesort.icegen.cli;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.turtlesort.icegen.IceMap;
+import com.turtlesort.icegen.IceMapSolver;
+
+/**
+ * Runs several workers on one work directory, the way separate processes would share it, and checks that the
+ * merged maps are the same as those of a single worker.
+ */
+public class DistributedGeneratorTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void workersSharingAJobMergeToTheMapsOfOneWorker() throws Exception {
+
+		File single = this.folder.newFolder("single");
+		DistributedGenerator reference = DistributedGenerator.createJob(single, job());
+		long referenceAccepted = reference.work("only");
+		File referenceOutput = this.folder.newFolder("single-output");
+		reference.merge(referenceOutput);
+
+		File shared = this.folder.newFolder("shared");
+		final DistributedGenerator generator = DistributedGenerator.createJob(shared, job());
+
+		// A worker died while generating the third range, leaving an expired lease and a partial segment
+		File abandoned = new File(shared, "leases/200.0.lease");
+		Files.write(abandoned.toPath(), "dead".getBytes(StandardCharsets.UTF_8));
+		assertTrue(abandoned.setLastModified(System.currentTimeMillis() - 60000));
+
+		File dead = new File(shared, "segments/dead");
+		assertTrue(dead.mkdirs());
+		Files.write(new File(dead, "200.part").toPath(), new byte[]{1, 2, 3});
+
+		final long[] accepted = new long[2];
+		final Throwable[] failures = new Throwable[2];
+		Thread[] workers = new Thread[2];
+
+		for(int i = 0; i < workers.length; i++){
+
+			final int worker = i;
+
+			workers[i] = new Thread(new Runnable(){
+				@Override
+				public void run() {
+					try {
+						accepted[worker] = generator.work("worker" + worker);
+					} catch (Throwable e) {
+						failures[worker] = e;
+					}
+				}
+			});
+			workers[i].start();
+		}
+
+		for(Thread worker : workers){
+			worker.join();
+		}
+
+		for(Throwable failure : failures){
+			if(failure != null) throw new AssertionError(failure);
+		}
+
+		assertEquals(generator.getRangeCount(), generator.getDoneRangeCount());
+		assertEquals(referenceAccepted, accepted[0] + accepted[1]);
+		assertEquals(0, new File(shared, "leases").list(new SuffixFilter(".lease")).length);
+
+		// A worker that was too slow to keep its lease may still finish, generating a range a second time
+		File slow = new File(shared, "segments/slow");
+		assertTrue(slow.mkdirs());
+		for(int i = 0; i < workers.length; i++){
+			File segment = new File(shared, "segments/worker" + i + "/300.seg");
+			if(segment.exists()){
+				Files.copy(segment.toPath(), new File(slow, "300.seg").toPath());
+			}
+		}
+		assertTrue(new File(slow, "300.seg").exists());
+
+		File output = this.folder.newFolder("shared-output");
+		generator.merge(output);
+
+		String[] expectedFiles = referenceOutput.list();
+		String[] files = output.list();
+		Arrays.sort(expectedFiles);
+		Arrays.sort(files);
+		assertArrayEquals(expectedFiles, files);
+
+		for(String file : files){
+			assertArrayEquals(file, Files.readAllBytes(new File(referenceOutput, file).toPath()), Files.readAllBytes(new File(output, file).toPath()));
+		}
+	}
+
+	@Test
+	public void indexListsTheOptimalMoveCountOfEachMap() throws IOException {
+
+		File directory = this.folder.newFolder("job");
+		DistributedGenerator generator = DistributedGenerator.createJob(directory, job());
+		generator.work("only");
+
+		File output = this.folder.newFolder("output");
+		long written = generator.merge(output);
+
+		List<String> lines = Files.readAllLines(new File(output, DistributedGenerator.INDEX_FILE_NAME).toPath(), StandardCharsets.UTF_8);
+		assertEquals("file,optimalMoveCount", lines.get(0));
+		assertEquals(written + 1, lines.size());
+		assertTrue(written > 0);
+
+		for(String line : lines.subList(1, lines.size())){
+
+			String[] fields = line.split(",");
+			IceMap map = IceMap.parseBinaryFile(new File(output, fields[0]));
+
+			assertEquals(line, new IceMapSolver(map).findOptimalMoveCount(), Integer.parseInt(fields[1]));
+		}
+	}
+
+	/*
+	 * Eight ranges of small maps, with the shortest lease timeout a job allows.
+	 */
+	private static Properties job(){
+
+		Properties job = new Properties();
+		job.setProperty("generator", "synthetic");
+		job.setProperty("width", "9");
+		job.setProperty("height", "9");
+		job.setProperty("minMoves", "3");
+		job.setProperty("firstSeed", "0");
+		job.setProperty("seedCount", "800");
+		job.setProperty("leaseSize", "100");
+		job.setProperty("leaseTimeout", "2");
+
+		return job;
+	}
+
+	private static class SuffixFilter implements FilenameFilter {
+
+		private final String suffix;
+
+		public SuffixFilter(String suffix){
+			this.suffix = suffix;
+		}
+
+		@Override
+		public boolean accept(File directory, String name) {
+			return name.endsWith(this.suffix);
+		}
+
+	}
+
+}